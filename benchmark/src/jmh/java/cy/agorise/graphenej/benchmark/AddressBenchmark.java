@@ -0,0 +1,40 @@
+package cy.agorise.graphenej.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+import cy.agorise.graphenej.Address;
+import cy.agorise.graphenej.errors.MalformedAddressException;
+
+/**
+ * Parsing and formatting of base58 addresses.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AddressBenchmark {
+
+    private String encoded;
+
+    @Setup
+    public void setUp(){
+        encoded = BenchmarkKeys.SOURCE_ADDRESS.toString();
+    }
+
+    @Benchmark
+    public Address parse() throws MalformedAddressException {
+        return new Address(encoded);
+    }
+
+    @Benchmark
+    public String format(){
+        return BenchmarkKeys.SOURCE_ADDRESS.toString();
+    }
+}
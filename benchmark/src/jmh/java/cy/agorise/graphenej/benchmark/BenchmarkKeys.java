@@ -0,0 +1,30 @@
+package cy.agorise.graphenej.benchmark;
+
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.core.Sha256Hash;
+
+import java.io.UnsupportedEncodingException;
+
+import cy.agorise.graphenej.Address;
+
+/**
+ * Deterministic keys shared by all benchmarks, so that results can be compared across runs.
+ */
+class BenchmarkKeys {
+
+    static final ECKey SOURCE = fromSeed("graphenej-benchmark-source");
+    static final ECKey DESTINATION = fromSeed("graphenej-benchmark-destination");
+
+    static final Address SOURCE_ADDRESS = new Address(ECKey.fromPublicOnly(SOURCE.getPubKey()));
+    static final Address DESTINATION_ADDRESS = new Address(ECKey.fromPublicOnly(DESTINATION.getPubKey()));
+
+    private BenchmarkKeys(){}
+
+    private static ECKey fromSeed(String seed){
+        try {
+            return ECKey.fromPrivate(Sha256Hash.hash(seed.getBytes("UTF-8")));
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package cy.agorise.graphenej.benchmark;
+
+import com.google.gson.Gson;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Type;
+import java.util.concurrent.TimeUnit;
+
+import cy.agorise.graphenej.api.android.DeserializationMap;
+import cy.agorise.graphenej.api.calls.ApiCallable;
+import cy.agorise.graphenej.api.calls.GetBlock;
+import cy.agorise.graphenej.api.calls.GetFullAccounts;
+import cy.agorise.graphenej.api.calls.GetRelativeAccountHistory;
+import cy.agorise.graphenej.models.JsonRpcResponse;
+
+/**
+ * De-serialization of recorded full node responses, the same way the NetworkClient does it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DeserializationBenchmark {
+
+    @Param({"get_block", "get_relative_account_history", "get_full_accounts"})
+    public String payload;
+
+    private String text;
+    private Gson gson;
+    private Type responseType;
+
+    @Setup
+    public void setUp() throws IOException {
+        Class<? extends ApiCallable> requestClass;
+        if(payload.equals("get_block")){
+            requestClass = GetBlock.class;
+        }else if(payload.equals("get_relative_account_history")){
+            requestClass = GetRelativeAccountHistory.class;
+        }else{
+            requestClass = GetFullAccounts.class;
+        }
+        DeserializationMap deserializationMap = new DeserializationMap();
+        gson = deserializationMap.getGson(requestClass);
+        responseType = deserializationMap.getResponseType(requestClass);
+        text = readPayload("/payloads/" + payload + ".json");
+    }
+
+    @Benchmark
+    public JsonRpcResponse<?> decode(){
+        return gson.fromJson(text, responseType);
+    }
+
+    private static String readPayload(String resource) throws IOException {
+        InputStream stream = DeserializationBenchmark.class.getResourceAsStream(resource);
+        if(stream == null) throw new IOException("Missing payload: " + resource);
+        try {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while((read = stream.read(buffer)) != -1){
+                output.write(buffer, 0, read);
+            }
+            return output.toString("UTF-8");
+        } finally {
+            stream.close();
+        }
+    }
+}
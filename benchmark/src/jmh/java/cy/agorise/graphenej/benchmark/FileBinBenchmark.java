@@ -0,0 +1,64 @@
+package cy.agorise.graphenej.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import cy.agorise.graphenej.Chains;
+import cy.agorise.graphenej.FileBin;
+import cy.agorise.graphenej.models.backup.LinkedAccount;
+import cy.agorise.graphenej.models.backup.PrivateKeyBackup;
+import cy.agorise.graphenej.models.backup.Wallet;
+import cy.agorise.graphenej.models.backup.WalletBackup;
+
+/**
+ * Creation and restoration of wallet backup files.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class FileBinBenchmark {
+    private static final String PASSWORD = "benchmark-password";
+    private static final String BRAIN_KEY = "BARIC BICKERN LITZ TIPFUL JINGLED POOL TUMBAK PURIST STOPPER TARR SKILLED CHOPPER NEWGATE TROPIN CHARM PARADE";
+
+    private WalletBackup walletBackup;
+    private byte[] serialized;
+
+    @Setup
+    public void setUp(){
+        Wallet wallet = new Wallet("benchmark", BRAIN_KEY, 1, Chains.BITSHARES.CHAIN_ID, PASSWORD);
+        byte[] encryptionKey = wallet.getEncryptionKey(PASSWORD);
+
+        ArrayList<Wallet> wallets = new ArrayList<>();
+        wallets.add(wallet);
+        ArrayList<PrivateKeyBackup> privateKeys = new ArrayList<>();
+        privateKeys.add(new PrivateKeyBackup(BenchmarkKeys.SOURCE.getPrivKeyBytes(), 1, 1, encryptionKey));
+        ArrayList<LinkedAccount> accounts = new ArrayList<>();
+        accounts.add(new LinkedAccount("benchmark", Chains.BITSHARES.CHAIN_ID));
+
+        walletBackup = new WalletBackup(wallets, privateKeys, accounts);
+        serialized = FileBin.serializeWalletBackup(walletBackup, PASSWORD);
+    }
+
+    @Benchmark
+    public byte[] serializeWalletBackup(){
+        return FileBin.serializeWalletBackup(walletBackup, PASSWORD);
+    }
+
+    @Benchmark
+    public WalletBackup deserializeWalletBackup(){
+        return FileBin.deserializeWalletBackup(serialized, PASSWORD);
+    }
+
+    @Benchmark
+    public WalletBackup roundTrip(){
+        return FileBin.deserializeWalletBackup(FileBin.serializeWalletBackup(walletBackup, PASSWORD), PASSWORD);
+    }
+}
@@ -0,0 +1,52 @@
+package cy.agorise.graphenej.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import cy.agorise.graphenej.Memo;
+import cy.agorise.graphenej.errors.ChecksumException;
+
+/**
+ * Encryption and decryption of memo messages of different lengths.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MemoBenchmark {
+
+    @Param({"16", "256"})
+    public int messageLength;
+
+    private final BigInteger nonce = new BigInteger("386471255144360");
+
+    private String message;
+    private byte[] encrypted;
+
+    @Setup
+    public void setUp(){
+        char[] chars = new char[messageLength];
+        Arrays.fill(chars, 'm');
+        message = new String(chars);
+        encrypted = Memo.encryptMessage(BenchmarkKeys.SOURCE, BenchmarkKeys.DESTINATION_ADDRESS, nonce, message);
+    }
+
+    @Benchmark
+    public byte[] encryptMessage(){
+        return Memo.encryptMessage(BenchmarkKeys.SOURCE, BenchmarkKeys.DESTINATION_ADDRESS, nonce, message);
+    }
+
+    @Benchmark
+    public String decryptMessage() throws ChecksumException {
+        return Memo.decryptMessage(BenchmarkKeys.DESTINATION, BenchmarkKeys.SOURCE_ADDRESS, nonce, encrypted);
+    }
+}
@@ -0,0 +1,74 @@
+package cy.agorise.graphenej.benchmark;
+
+import com.google.common.primitives.UnsignedLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import cy.agorise.graphenej.Asset;
+import cy.agorise.graphenej.AssetAmount;
+import cy.agorise.graphenej.BaseOperation;
+import cy.agorise.graphenej.BlockData;
+import cy.agorise.graphenej.Memo;
+import cy.agorise.graphenej.Transaction;
+import cy.agorise.graphenej.UserAccount;
+import cy.agorise.graphenej.operations.TransferOperationBuilder;
+
+/**
+ * Serialization and signing of transactions holding a number of transfer operations with memos.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TransactionBenchmark {
+
+    @Param({"1", "10"})
+    public int operationCount;
+
+    private Transaction transaction;
+
+    @Setup
+    public void setUp(){
+        Asset core = new Asset("1.3.0");
+        ArrayList<BaseOperation> operations = new ArrayList<>();
+        for(int i = 0; i < operationCount; i++){
+            BigInteger nonce = BigInteger.valueOf(386471255144360L + i);
+            byte[] message = Memo.encryptMessage(BenchmarkKeys.SOURCE, BenchmarkKeys.DESTINATION_ADDRESS, nonce, "benchmark memo " + i);
+            operations.add(new TransferOperationBuilder()
+                    .setSource(new UserAccount("1.2.140994"))
+                    .setDestination(new UserAccount("1.2.139313"))
+                    .setTransferAmount(new AssetAmount(UnsignedLong.valueOf(100000 + i), core))
+                    .setFee(new AssetAmount(UnsignedLong.valueOf(264174), core))
+                    .setMemo(new Memo(BenchmarkKeys.SOURCE_ADDRESS, BenchmarkKeys.DESTINATION_ADDRESS, nonce, message))
+                    .build());
+        }
+        // Fixed block data, so that every run signs exactly the same bytes
+        BlockData blockData = new BlockData(21283, 3429598451L, 1552581810);
+        transaction = new Transaction(BenchmarkKeys.SOURCE, blockData, operations);
+    }
+
+    @Benchmark
+    public byte[] toBytes(){
+        return transaction.toBytes();
+    }
+
+    @Benchmark
+    public byte[] getGrapheneSignature(){
+        return transaction.getGrapheneSignature();
+    }
+
+    @Benchmark
+    public String toJsonString(){
+        return transaction.toJsonString();
+    }
+}
@@ -48,6 +48,7 @@ public class Asset extends GrapheneObject {
     private AssetOptions options;
     private String bitasset_data_id;
     private AssetType mAssetType;
+    private transient boolean mInterned;
 
     /**
      * Simple constructor
@@ -104,10 +105,12 @@ public class Asset extends GrapheneObject {
     }
 
     public void setSymbol(String symbol){
+        checkMutable();
         this.symbol = symbol;
     }
 
     public void setPrecision(int precision){
+        checkMutable();
         this.precision = precision;
     }
 
@@ -115,11 +118,15 @@ public class Asset extends GrapheneObject {
         return this.precision;
     }
 
-    public void setIssuer(String issuer){ this.issuer = issuer; }
+    public void setIssuer(String issuer){
+        checkMutable();
+        this.issuer = issuer;
+    }
 
     public String getIssuer() { return this.issuer; }
 
     public void setDescription(String description) {
+        checkMutable();
         this.description = description;
     }
 
@@ -132,10 +139,12 @@ public class Asset extends GrapheneObject {
     }
 
     public void setDynamicAssetDataId(String dynamic_asset_data_id) {
+        checkMutable();
         this.dynamic_asset_data_id = dynamic_asset_data_id;
     }
 
     public void setAssetOptions(AssetOptions options){
+        checkMutable();
         this.options = options;
     }
 
@@ -148,6 +157,7 @@ public class Asset extends GrapheneObject {
     }
 
     public void setBitassetDataId(String id){
+        checkMutable();
         this.bitasset_data_id = id;
     }
 
@@ -156,18 +166,40 @@ public class Asset extends GrapheneObject {
     }
 
     public void setAssetType(AssetType mAssetType) {
+        checkMutable();
         this.mAssetType = mAssetType;
     }
 
+    /**
+     * @return  True if this is the canonical instance kept by the {@link AssetRegistry}, in
+     *          which case it is shared and cannot be modified.
+     */
+    public boolean isInterned(){
+        return mInterned;
+    }
+
+    /**
+     * Marks this instance as the canonical one, after which it cannot be modified anymore.
+     */
+    void setInterned(){
+        mInterned = true;
+    }
+
+    private void checkMutable(){
+        if(mInterned)
+            throw new UnsupportedOperationException("Asset " + getObjectId() + " is shared through the AssetRegistry, modify a copy instead");
+    }
+
     @Override
     public int hashCode() {
-        return this.getObjectId() == null ? 0 : this.getObjectId().hashCode();
+        long packedId = this.getPackedId();
+        return (int) (packedId ^ (packedId >>> 32));
     }
 
     @Override
     public boolean equals(Object other) {
         if(other instanceof Asset){
-            return this.getObjectId().equals(((Asset)other).getObjectId());
+            return this.getPackedId() == ((Asset)other).getPackedId();
         }else{
             return false;
         }
@@ -205,7 +237,7 @@ public class Asset extends GrapheneObject {
             if(bitassetDataId != null){
                 asset.setBitassetDataId(bitassetDataId.getAsString());
             }
-            return asset;
+            return AssetRegistry.getInstance().register(asset);
         }
     }
 }
\ No newline at end of file
@@ -3,7 +3,6 @@ package cy.agorise.graphenej;
 import com.google.common.math.DoubleMath;
 import com.google.common.primitives.Bytes;
 import com.google.common.primitives.UnsignedLong;
-import com.google.gson.GsonBuilder;
 import com.google.gson.JsonDeserializationContext;
 import com.google.gson.JsonDeserializer;
 import com.google.gson.JsonElement;
@@ -11,6 +10,7 @@ import com.google.gson.JsonObject;
 import com.google.gson.JsonParseException;
 import com.google.gson.JsonSerializationContext;
 import com.google.gson.JsonSerializer;
+import com.google.gson.stream.JsonWriter;
 
 import java.io.ByteArrayOutputStream;
 import java.io.DataOutput;
@@ -23,11 +23,12 @@ import java.math.RoundingMode;
 import cy.agorise.graphenej.errors.IncompatibleOperation;
 import cy.agorise.graphenej.interfaces.ByteSerializable;
 import cy.agorise.graphenej.interfaces.JsonSerializable;
+import cy.agorise.graphenej.interfaces.JsonStreamable;
 
 /**
  * Class used to represent a specific amount of a certain asset
  */
-public class AssetAmount implements ByteSerializable, JsonSerializable {
+public class AssetAmount implements ByteSerializable, JsonSerializable, JsonStreamable {
     /**
      * Constants used in the JSON serialization procedure.
      */
@@ -48,12 +49,22 @@ public class AssetAmount implements ByteSerializable, JsonSerializable {
     }
 
     /**
-     * Copy constructor
+     * Copy constructor. An interned Asset instance is shared with the other instance, any other
+     * one is copied.
      * @param assetAmount The other instance
      */
     public AssetAmount(AssetAmount assetAmount){
-        this.amount = UnsignedLong.valueOf(assetAmount.getAmount().toString());
-        this.asset = new Asset(assetAmount.getAsset());
+        this.amount = assetAmount.getAmount();
+        this.asset = copyOf(assetAmount.getAsset());
+    }
+
+    /**
+     * Interned assets are read-only and can be shared, any other one might still be modified.
+     * @param asset The asset
+     * @return      The same asset if it is interned, a copy of it otherwise
+     */
+    private static Asset copyOf(Asset asset){
+        return asset.isInterned() ? asset : new Asset(asset);
     }
 
     /**
@@ -109,7 +120,7 @@ public class AssetAmount implements ByteSerializable, JsonSerializable {
         BigDecimal originalAmount = new BigDecimal(amount.bigIntegerValue());
         BigDecimal decimalResult = originalAmount.multiply(new BigDecimal(factor));
         UnsignedLong resultingAmount = UnsignedLong.valueOf(DoubleMath.roundToBigInteger(decimalResult.doubleValue(), roundingMode));
-        return new AssetAmount(resultingAmount, new Asset(asset));
+        return new AssetAmount(resultingAmount, copyOf(asset));
     }
 
     /**
@@ -131,7 +142,7 @@ public class AssetAmount implements ByteSerializable, JsonSerializable {
         BigDecimal originalAmount = new BigDecimal(amount.bigIntegerValue());
         BigDecimal decimalAmount = originalAmount.divide(new BigDecimal(divisor), 18, RoundingMode.HALF_UP);
         UnsignedLong resultingAmount = UnsignedLong.valueOf(DoubleMath.roundToBigInteger(decimalAmount.doubleValue(), roundingMode));
-        return new AssetAmount(resultingAmount, new Asset(asset));
+        return new AssetAmount(resultingAmount, copyOf(asset));
     }
 
 
@@ -178,9 +189,15 @@ public class AssetAmount implements ByteSerializable, JsonSerializable {
 
     @Override
     public String toJsonString() {
-        GsonBuilder gsonBuilder = new GsonBuilder();
-        gsonBuilder.registerTypeAdapter(AssetAmount.class, new AssetAmountSerializer());
-        return gsonBuilder.create().toJson(this);
+        return JsonStreamSerializer.toJsonString(this);
+    }
+
+    @Override
+    public void writeJson(JsonWriter writer) throws IOException {
+        writer.beginObject();
+        writer.name(KEY_AMOUNT).value(amount);
+        writer.name(KEY_ASSET_ID).value(asset.getObjectId());
+        writer.endObject();
     }
 
     @Override
@@ -219,7 +236,7 @@ public class AssetAmount implements ByteSerializable, JsonSerializable {
         public AssetAmount deserialize(JsonElement json, Type type, JsonDeserializationContext jsonDeserializationContext) throws JsonParseException {
             Long amount = json.getAsJsonObject().get(KEY_AMOUNT).getAsLong();
             String assetId = json.getAsJsonObject().get(KEY_ASSET_ID).getAsString();
-            AssetAmount assetAmount = new AssetAmount(UnsignedLong.valueOf(amount), new Asset(assetId));
+            AssetAmount assetAmount = new AssetAmount(UnsignedLong.valueOf(amount), AssetRegistry.getInstance().intern(assetId));
             return assetAmount;
         }
     }
@@ -0,0 +1,130 @@
+package cy.agorise.graphenej;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide registry holding a single canonical {@link Asset} instance per asset id.
+ * <p>
+ * All the de-serializers obtain their assets from here, so that the thousands of
+ * {@link AssetAmount} instances that might be held by balance or order book views share
+ * a few Asset instances instead of each one carrying its own copy of the id, symbol and precision.
+ * Assets only known by their id are represented by an instance holding just the id. As soon as
+ * the asset definition is received, for instance in the response to the 'get_assets',
+ * 'list_assets' or 'lookup_asset_symbols' API calls, the definition becomes the canonical
+ * instance for all the assets de-serialized from then on.
+ * <p>
+ * Canonical instances are shared by many threads, so they are read-only: their setters throw an
+ * {@link UnsupportedOperationException}. Callers that need a different instance can build their
+ * own copy with {@link Asset#Asset(Asset)}. A newer definition replaces the previous instance
+ * instead of updating it, so an instance handed out before the definition arrived keeps holding
+ * just the id. Those who need the symbol or precision should look the asset up again with
+ * {@link #get(String)}.
+ * <p>
+ * The registry only holds weak references to its instances. An asset nobody refers to anymore
+ * is dropped, and is created again the next time it is needed, holding just its id until its
+ * definition is received again.
+ */
+public class AssetRegistry {
+
+    private static final AssetRegistry INSTANCE = new AssetRegistry();
+
+    private final ConcurrentHashMap<String, AssetReference> mAssets = new ConcurrentHashMap<>();
+
+    private final ReferenceQueue<Asset> mQueue = new ReferenceQueue<>();
+
+    /**
+     * Weak reference to a canonical instance, remembering the id it was stored under so that
+     * the entry can be removed once the instance has been collected.
+     */
+    private static class AssetReference extends WeakReference<Asset> {
+        private final String mId;
+
+        AssetReference(String id, Asset asset, ReferenceQueue<Asset> queue){
+            super(asset, queue);
+            mId = id;
+        }
+    }
+
+    public static AssetRegistry getInstance(){
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the canonical instance of an asset, creating it if needed.
+     *
+     * @param id    The asset id, in the form 1.3.x
+     * @return      The canonical Asset instance
+     */
+    public Asset intern(String id){
+        expungeStaleEntries();
+        while(true){
+            AssetReference reference = mAssets.get(id);
+            Asset asset = reference != null ? reference.get() : null;
+            if(asset != null)
+                return asset;
+            Asset created = new Asset(id);
+            created.setInterned();
+            AssetReference replacement = new AssetReference(id, created, mQueue);
+            boolean stored = reference == null
+                    ? mAssets.putIfAbsent(id, replacement) == null
+                    : mAssets.replace(id, reference, replacement);
+            if(stored)
+                return created;
+        }
+    }
+
+    /**
+     * Registers the definition of an asset, as received from a full node. The given instance
+     * replaces the previous canonical one, which is left untouched for those still holding it.
+     * The given instance becomes read-only.
+     *
+     * @param definition    The full asset definition
+     * @return              The given definition, now the canonical Asset instance
+     */
+    public Asset register(Asset definition){
+        expungeStaleEntries();
+        definition.setInterned();
+        mAssets.put(definition.getObjectId(), new AssetReference(definition.getObjectId(), definition, mQueue));
+        return definition;
+    }
+
+    /**
+     * @param id    The asset id
+     * @return      The canonical instance, or null if this asset is not known
+     */
+    public Asset get(String id){
+        AssetReference reference = mAssets.get(id);
+        return reference != null ? reference.get() : null;
+    }
+
+    /**
+     * @return  Number of registered assets, which might still include some that are not
+     *          referred to anymore
+     */
+    public int size(){
+        expungeStaleEntries();
+        return mAssets.size();
+    }
+
+    /**
+     * Removes all registered assets. Instances handed out before remain valid, but are no
+     * longer canonical.
+     */
+    public void clear(){
+        mAssets.clear();
+    }
+
+    /**
+     * Removes the entries whose instances have been collected.
+     */
+    private void expungeStaleEntries(){
+        Reference<? extends Asset> reference;
+        while((reference = mQueue.poll()) != null){
+            AssetReference assetReference = (AssetReference) reference;
+            mAssets.remove(assetReference.mId, assetReference);
+        }
+    }
+}
@@ -2,8 +2,6 @@ package cy.agorise.graphenej;
 
 import com.google.gson.annotations.Expose;
 
-import java.util.Locale;
-
 /**
  * <p>
  * Generic class used to represent a graphene object as defined in
@@ -24,13 +22,20 @@ public class GrapheneObject {
     protected int type;
     protected long instance;
 
+    // Cached result of getObjectId()
+    private transient String formattedId;
+
     public GrapheneObject(String id){
         this.id = id;
-        String[] parts = id.split("\\.");
-        if(parts.length == 3){
-            this.space = Integer.parseInt(parts[0]);
-            this.type = Integer.parseInt(parts[1]);
-            this.instance = Long.parseLong(parts[2]);
+        long packedId = ObjectId.parse(id);
+        if(packedId != ObjectId.INVALID){
+            this.space = ObjectId.getSpace(packedId);
+            this.type = ObjectId.getType(packedId);
+            this.instance = ObjectId.getInstance(packedId);
+            if(!ObjectId.hasLeadingZeros(id)){
+                // The string we already have is exactly what getObjectId() would build
+                this.formattedId = id;
+            }
         }
     }
 
@@ -39,82 +44,26 @@ public class GrapheneObject {
      * @return A String containing the full object apiId in the form {space}.{type}.{instance}
      */
     public String getObjectId(){
-        return String.format(Locale.US, "%d.%d.%d", space, type, instance);
+        String formatted = formattedId;
+        if(formatted == null){
+            formatted = ObjectId.format(getPackedId());
+            formattedId = formatted;
+        }
+        return formatted;
+    }
+
+    /**
+     * @return The object id packed into a single long, as described in {@link ObjectId}.
+     */
+    public long getPackedId(){
+        return ObjectId.pack(space, type, instance);
     }
 
     /**
      * Returns the type of this object.
-     * @return Instance of the ObjectType enum.
+     * @return Instance of the ObjectType enum, or null if the space and type are unknown.
      */
     public ObjectType getObjectType(){
-        switch(space){
-            case PROTOCOL_SPACE:
-                switch(type){
-                    case 1:
-                        return ObjectType.BASE_OBJECT;
-                    case 2:
-                        return ObjectType.ACCOUNT_OBJECT;
-                    case 3:
-                        return ObjectType.ASSET_OBJECT;
-                    case 4:
-                        return ObjectType.FORCE_SETTLEMENT_OBJECT;
-                    case 5:
-                        return ObjectType.COMMITTEE_MEMBER_OBJECT;
-                    case 6:
-                        return ObjectType.WITNESS_OBJECT;
-                    case 7:
-                        return ObjectType.LIMIT_ORDER_OBJECT;
-                    case 8:
-                        return ObjectType.CALL_ORDER_OBJECT;
-                    case 9:
-                        return ObjectType.CUSTOM_OBJECT;
-                    case 10:
-                        return ObjectType.PROPOSAL_OBJECT;
-                    case 11:
-                        return ObjectType.OPERATION_HISTORY_OBJECT;
-                    case 12:
-                        return ObjectType.WITHDRAW_PERMISSION_OBJECT;
-                    case 13:
-                        return ObjectType.VESTING_BALANCE_OBJECT;
-                    case 14:
-                        return ObjectType.WORKER_OBJECT;
-                    case 15:
-                        return ObjectType.BALANCE_OBJECT;
-                    case 16:
-                        return ObjectType.HTLC_OBJECT;
-                }
-            case IMPLEMENTATION_SPACE:
-                switch(type){
-                    case 0:
-                        return ObjectType.GLOBAL_PROPERTY_OBJECT;
-                    case 1:
-                        return ObjectType.DYNAMIC_GLOBAL_PROPERTY_OBJECT;
-                    case 3:
-                        return ObjectType.ASSET_DYNAMIC_DATA;
-                    case 4:
-                        return ObjectType.ASSET_BITASSET_DATA;
-                    case 5:
-                        return ObjectType.ACCOUNT_BALANCE_OBJECT;
-                    case 6:
-                        return ObjectType.ACCOUNT_STATISTICS_OBJECT;
-                    case 7:
-                        return ObjectType.TRANSACTION_OBJECT;
-                    case 8:
-                        return ObjectType.BLOCK_SUMMARY_OBJECT;
-                    case 9:
-                        return ObjectType.ACCOUNT_TRANSACTION_HISTORY_OBJECT;
-                    case 10:
-                        return ObjectType.BLINDED_BALANCE_OBJECT;
-                    case 11:
-                        return ObjectType.CHAIN_PROPERTY_OBJECT;
-                    case 12:
-                        return ObjectType.WITNESS_SCHEDULE_OBJECT;
-                    case 13:
-                        return ObjectType.BUDGET_RECORD_OBJECT;
-                    case 14:
-                        return ObjectType.SPECIAL_AUTHORITY_OBJECT;
-                }
-        }
-        return null;
+        return ObjectType.fromSpaceAndType(space, type);
     }
-}
\ No newline at end of file
+}
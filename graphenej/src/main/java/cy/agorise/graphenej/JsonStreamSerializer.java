@@ -0,0 +1,190 @@
+package cy.agorise.graphenej;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.logging.Logger;
+
+import cy.agorise.graphenej.interfaces.JsonSerializable;
+import cy.agorise.graphenej.interfaces.JsonStreamable;
+
+/**
+ * Class used to write the JSON representation of outgoing messages straight into a
+ * character buffer that is reused by every call made from the same thread.
+ * <p>
+ * Entities implementing {@link JsonStreamable} are streamed directly. All other
+ * {@link JsonSerializable} entities are written from the tree returned by their
+ * toJsonObject method.
+ */
+public class JsonStreamSerializer {
+
+    // Buffers larger than this are not kept for reuse, so that a single huge message
+    // does not keep its memory around
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+
+    private static final Logger logger = Logger.getLogger(JsonStreamSerializer.class.getName());
+
+    private static final Gson gson = new Gson();
+
+    // Streams an entity into whatever writer Gson provides, which might be building a tree
+    private static final TypeAdapter<JsonStreamable> streamableAdapter = new TypeAdapter<JsonStreamable>() {
+        @Override
+        public void write(JsonWriter writer, JsonStreamable streamable) throws IOException {
+            // Null object members are omitted, as they are in the string representation
+            writer.setSerializeNulls(false);
+            streamable.writeJson(writer);
+        }
+
+        @Override
+        public JsonStreamable read(JsonReader reader) {
+            throw new UnsupportedOperationException("Streamable entities are only written");
+        }
+    };
+
+    private static final ThreadLocal<BufferWriter> buffers = new ThreadLocal<BufferWriter>() {
+        @Override
+        protected BufferWriter initialValue() {
+            return new BufferWriter();
+        }
+    };
+
+    private JsonStreamSerializer(){}
+
+    /**
+     * Obtains the JSON representation of an entity.
+     *
+     * @param streamable    The entity to serialize
+     * @return              The JSON-formatted string
+     */
+    public static String toJsonString(JsonStreamable streamable){
+        BufferWriter buffer = buffers.get();
+        if(buffer.inUse){
+            // An entity is being serialized from within another one's serialization
+            buffer = new BufferWriter();
+        }
+        buffer.inUse = true;
+        try{
+            JsonWriter writer = new JsonWriter(buffer);
+            // The tree based serialization used to escape HTML characters, we keep doing so
+            writer.setHtmlSafe(true);
+            // Null object members are omitted, as they were by Gson
+            writer.setSerializeNulls(false);
+            streamable.writeJson(writer);
+            writer.flush();
+            return buffer.builder.toString();
+        }catch(IOException e){
+            // Writing to memory cannot really fail
+            throw new IllegalStateException(e);
+        }finally{
+            buffer.reset();
+            buffer.inUse = false;
+        }
+    }
+
+    /**
+     * Builds the JSON tree of an entity straight from its streamed representation, without
+     * going through a string.
+     *
+     * @param streamable    The entity to serialize
+     * @return              The JSON tree
+     */
+    public static JsonElement toJsonTree(JsonStreamable streamable){
+        return streamableAdapter.toJsonTree(streamable);
+    }
+
+    /**
+     * Writes a value of any of the types accepted as API call parameters.
+     *
+     * @param writer    The writer to use
+     * @param value     The value to write
+     * @return          False if the type of the value is not supported and nothing was written
+     * @throws IOException  If the underlying writer fails
+     */
+    public static boolean writeValue(JsonWriter writer, Object value) throws IOException {
+        if(value == null){
+            writer.nullValue();
+        }else if(value instanceof JsonStreamable){
+            ((JsonStreamable) value).writeJson(writer);
+        }else if(value instanceof JsonSerializable){
+            writeElement(writer, ((JsonSerializable) value).toJsonObject());
+        }else if(value instanceof String){
+            writer.value((String) value);
+        }else if(value instanceof Number){
+            writer.value((Number) value);
+        }else if(value instanceof Boolean){
+            writer.value((Boolean) value);
+        }else if(value instanceof List){
+            writer.beginArray();
+            for(Object element : (List) value){
+                if(element != null && !writeValue(writer, element)){
+                    logger.fine("Skipping list element of type: " + element.getClass());
+                }
+            }
+            writer.endArray();
+        }else{
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Writes an already built JSON tree.
+     *
+     * @param writer    The writer to use
+     * @param element   The tree to write, null is written as a JSON null
+     * @throws IOException  If the underlying writer fails
+     */
+    public static void writeElement(JsonWriter writer, JsonElement element) throws IOException {
+        gson.toJson(element != null ? element : JsonNull.INSTANCE, writer);
+    }
+
+    /**
+     * Character sink backed by a StringBuilder that can be reused once its contents are read.
+     */
+    private static class BufferWriter extends Writer {
+        private StringBuilder builder = new StringBuilder(256);
+        private boolean inUse;
+
+        void reset(){
+            if(builder.capacity() > MAX_RETAINED_CAPACITY){
+                builder = new StringBuilder(256);
+            }else{
+                builder.setLength(0);
+            }
+        }
+
+        @Override
+        public void write(char[] chars, int offset, int length) {
+            builder.append(chars, offset, length);
+        }
+
+        @Override
+        public void write(int c) {
+            builder.append((char) c);
+        }
+
+        @Override
+        public void write(String str, int offset, int length) {
+            builder.append(str, offset, offset + length);
+        }
+
+        @Override
+        public Writer append(CharSequence sequence) {
+            builder.append(sequence);
+            return this;
+        }
+
+        @Override
+        public void flush() { }
+
+        @Override
+        public void close() { }
+    }
+}
@@ -0,0 +1,119 @@
+package cy.agorise.graphenej;
+
+/**
+ * Utility methods to handle object ids packed into a single long, just like the full nodes do.
+ * <p>
+ * The space takes the 8 most significant bits, the type the next 8 bits and the instance the
+ * remaining 48 bits. This allows ids to be parsed without any allocation, compared with a
+ * single instruction and used as keys of primitive maps like {@link ObjectIdMap}.
+ */
+public final class ObjectId {
+
+    /**
+     * Value returned by {@link #parse(String)} for strings that are not valid object ids.
+     */
+    public static final long INVALID = -1;
+
+    private static final int SPACE_SHIFT = 56;
+    private static final int TYPE_SHIFT = 48;
+    private static final long INSTANCE_MASK = (1L << TYPE_SHIFT) - 1;
+
+    private ObjectId(){}
+
+    /**
+     * Packs the parts of an object id.
+     *
+     * @param space     The space, between 0 and 255
+     * @param type      The type, between 0 and 255
+     * @param instance  The instance, between 0 and 2^48 - 1
+     * @return          The packed id
+     */
+    public static long pack(int space, int type, long instance){
+        if(space < 0 || space > 0xff || type < 0 || type > 0xff || instance < 0 || instance > INSTANCE_MASK)
+            throw new IllegalArgumentException(String.format("Invalid object id: %d.%d.%d", space, type, instance));
+        return ((long) space << SPACE_SHIFT) | ((long) type << TYPE_SHIFT) | instance;
+    }
+
+    public static int getSpace(long packedId){
+        return (int) (packedId >>> SPACE_SHIFT);
+    }
+
+    public static int getType(long packedId){
+        return (int) (packedId >>> TYPE_SHIFT) & 0xff;
+    }
+
+    public static long getInstance(long packedId){
+        return packedId & INSTANCE_MASK;
+    }
+
+    /**
+     * Parses an object id in the form {space}.{type}.{instance}.
+     *
+     * @param id    The object id
+     * @return      The packed id, or {@link #INVALID} if the string is not a valid object id.
+     */
+    public static long parse(String id){
+        if(id == null) return INVALID;
+        int length = id.length();
+        long space = 0, type = 0, value = 0;
+        int part = 0;
+        int digits = 0;
+        for(int i = 0; i < length; i++){
+            char c = id.charAt(i);
+            if(c >= '0' && c <= '9'){
+                value = value * 10 + (c - '0');
+                if(value > INSTANCE_MASK) return INVALID;
+                digits++;
+            }else if(c == '.' && digits > 0 && part < 2){
+                if(part == 0) space = value;
+                else type = value;
+                part++;
+                value = 0;
+                digits = 0;
+            }else{
+                return INVALID;
+            }
+        }
+        if(part != 2 || digits == 0 || space > 0xff || type > 0xff) return INVALID;
+        return (space << SPACE_SHIFT) | (type << TYPE_SHIFT) | value;
+    }
+
+    /**
+     * Tells whether a string is exactly the formatted version of a valid object id, which
+     * is the case unless any of its parts has leading zeros.
+     *
+     * @param id    The object id
+     * @return      True if {@link #format(long)} returns an equal string for its packed id
+     */
+    public static boolean isCanonical(String id){
+        return parse(id) != INVALID && !hasLeadingZeros(id);
+    }
+
+    /**
+     * @param id    A valid object id
+     * @return      True if any of its parts has leading zeros
+     */
+    static boolean hasLeadingZeros(String id){
+        for(int i = 0; i < id.length() - 1; i++){
+            if(id.charAt(i) == '0' && (i == 0 || id.charAt(i - 1) == '.') && id.charAt(i + 1) != '.')
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Formats a packed id.
+     *
+     * @param packedId  The packed id
+     * @return          The object id in the form {space}.{type}.{instance}
+     */
+    public static String format(long packedId){
+        return new StringBuilder(24)
+                .append(getSpace(packedId))
+                .append('.')
+                .append(getType(packedId))
+                .append('.')
+                .append(getInstance(packedId))
+                .toString();
+    }
+}
@@ -0,0 +1,177 @@
+package cy.agorise.graphenej;
+
+import java.util.Arrays;
+
+/**
+ * Map from object ids to values, with the ids stored as packed longs as described in
+ * {@link ObjectId}.
+ * <p>
+ * Contrary to a HashMap keyed by the id strings, neither the lookups nor the insertions of
+ * existing keys allocate any object, and every entry takes just a slot in two arrays. It uses
+ * open addressing with linear probing. This class is not thread-safe.
+ *
+ * @param <V>   Type of the values
+ */
+public class ObjectIdMap<V> {
+
+    private static final long EMPTY = ObjectId.INVALID;
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private long[] mKeys;
+    private Object[] mValues;
+    private int mSize;
+
+    public ObjectIdMap(){
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param expectedSize  Number of entries the map can hold before having to grow.
+     */
+    public ObjectIdMap(int expectedSize){
+        int capacity = Integer.highestOneBit(Math.max(expectedSize, 2) * 2 - 1) * 2;
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity){
+        mKeys = new long[capacity];
+        Arrays.fill(mKeys, EMPTY);
+        mValues = new Object[capacity];
+    }
+
+    /**
+     * @param packedId  The packed object id
+     * @return          The value, or null if there is none
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long packedId){
+        int slot = find(packedId);
+        return slot >= 0 ? (V) mValues[slot] : null;
+    }
+
+    /**
+     * @param id    The object id
+     * @return      The value, or null if there is none or the id is invalid
+     */
+    public V get(String id){
+        long packedId = ObjectId.parse(id);
+        return packedId != ObjectId.INVALID ? get(packedId) : null;
+    }
+
+    public boolean containsKey(long packedId){
+        return find(packedId) >= 0;
+    }
+
+    /**
+     * Associates a value to an object id.
+     *
+     * @param packedId  The packed object id
+     * @param value     The value
+     * @return          The previous value, or null if there was none
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long packedId, V value){
+        if(packedId == EMPTY) throw new IllegalArgumentException("Invalid object id");
+        int mask = mKeys.length - 1;
+        int slot = slotOf(packedId, mask);
+        while(mKeys[slot] != EMPTY){
+            if(mKeys[slot] == packedId){
+                V previous = (V) mValues[slot];
+                mValues[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        mKeys[slot] = packedId;
+        mValues[slot] = value;
+        if(++mSize * 4 > mKeys.length * 3){
+            grow();
+        }
+        return null;
+    }
+
+    /**
+     * Associates a value to an object id.
+     *
+     * @param id    The object id
+     * @param value The value
+     * @return      The previous value, or null if there was none
+     * @throws IllegalArgumentException If the id is not a valid object id
+     */
+    public V put(String id, V value){
+        return put(ObjectId.parse(id), value);
+    }
+
+    /**
+     * Removes the value associated to an object id.
+     *
+     * @param packedId  The packed object id
+     * @return          The removed value, or null if there was none
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long packedId){
+        int slot = find(packedId);
+        if(slot < 0) return null;
+        V previous = (V) mValues[slot];
+        // Shifting back the following entries of the same run, so that none becomes unreachable
+        int mask = mKeys.length - 1;
+        int next = (slot + 1) & mask;
+        while(mKeys[next] != EMPTY){
+            int ideal = slotOf(mKeys[next], mask);
+            if(((next - ideal) & mask) >= ((next - slot) & mask)){
+                mKeys[slot] = mKeys[next];
+                mValues[slot] = mValues[next];
+                slot = next;
+            }
+            next = (next + 1) & mask;
+        }
+        mKeys[slot] = EMPTY;
+        mValues[slot] = null;
+        mSize--;
+        return previous;
+    }
+
+    public int size(){
+        return mSize;
+    }
+
+    public boolean isEmpty(){
+        return mSize == 0;
+    }
+
+    public void clear(){
+        Arrays.fill(mKeys, EMPTY);
+        Arrays.fill(mValues, null);
+        mSize = 0;
+    }
+
+    private int find(long packedId){
+        if(packedId == EMPTY) return -1;
+        int mask = mKeys.length - 1;
+        int slot = slotOf(packedId, mask);
+        while(mKeys[slot] != EMPTY){
+            if(mKeys[slot] == packedId) return slot;
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void grow(){
+        long[] keys = mKeys;
+        Object[] values = mValues;
+        allocate(keys.length * 2);
+        mSize = 0;
+        for(int i = 0; i < keys.length; i++){
+            if(keys[i] != EMPTY) put(keys[i], (V) values[i]);
+        }
+    }
+
+    private static int slotOf(long packedId, int mask){
+        // Instances are sequential, so the bits are mixed to spread consecutive ids
+        long hash = packedId * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
@@ -5,173 +5,87 @@ package cy.agorise.graphenej;
  */
 
 public enum ObjectType {
-    BASE_OBJECT,
-    ACCOUNT_OBJECT,
-    ASSET_OBJECT,
-    FORCE_SETTLEMENT_OBJECT,
-    COMMITTEE_MEMBER_OBJECT,
-    WITNESS_OBJECT,
-    LIMIT_ORDER_OBJECT,
-    CALL_ORDER_OBJECT,
-    CUSTOM_OBJECT,
-    PROPOSAL_OBJECT,
-    OPERATION_HISTORY_OBJECT,
-    WITHDRAW_PERMISSION_OBJECT,
-    VESTING_BALANCE_OBJECT,
-    WORKER_OBJECT,
-    BALANCE_OBJECT,
-    HTLC_OBJECT,
-    GLOBAL_PROPERTY_OBJECT,
-    DYNAMIC_GLOBAL_PROPERTY_OBJECT,
-    ASSET_DYNAMIC_DATA,
-    ASSET_BITASSET_DATA,
-    ACCOUNT_BALANCE_OBJECT,
-    ACCOUNT_STATISTICS_OBJECT,
-    TRANSACTION_OBJECT,
-    BLOCK_SUMMARY_OBJECT,
-    ACCOUNT_TRANSACTION_HISTORY_OBJECT,
-    BLINDED_BALANCE_OBJECT,
-    CHAIN_PROPERTY_OBJECT,
-    WITNESS_SCHEDULE_OBJECT,
-    BUDGET_RECORD_OBJECT,
-    SPECIAL_AUTHORITY_OBJECT;
+    BASE_OBJECT(1, 1),
+    ACCOUNT_OBJECT(1, 2),
+    ASSET_OBJECT(1, 3),
+    FORCE_SETTLEMENT_OBJECT(1, 4),
+    COMMITTEE_MEMBER_OBJECT(1, 5),
+    WITNESS_OBJECT(1, 6),
+    LIMIT_ORDER_OBJECT(1, 7),
+    CALL_ORDER_OBJECT(1, 8),
+    CUSTOM_OBJECT(1, 9),
+    PROPOSAL_OBJECT(1, 10),
+    OPERATION_HISTORY_OBJECT(1, 11),
+    WITHDRAW_PERMISSION_OBJECT(1, 12),
+    VESTING_BALANCE_OBJECT(1, 13),
+    WORKER_OBJECT(1, 14),
+    BALANCE_OBJECT(1, 15),
+    HTLC_OBJECT(1, 16),
+    GLOBAL_PROPERTY_OBJECT(2, 0),
+    DYNAMIC_GLOBAL_PROPERTY_OBJECT(2, 1),
+    ASSET_DYNAMIC_DATA(2, 3),
+    ASSET_BITASSET_DATA(2, 4),
+    ACCOUNT_BALANCE_OBJECT(2, 5),
+    ACCOUNT_STATISTICS_OBJECT(2, 6),
+    TRANSACTION_OBJECT(2, 7),
+    BLOCK_SUMMARY_OBJECT(2, 8),
+    ACCOUNT_TRANSACTION_HISTORY_OBJECT(2, 9),
+    BLINDED_BALANCE_OBJECT(2, 10),
+    CHAIN_PROPERTY_OBJECT(2, 11),
+    WITNESS_SCHEDULE_OBJECT(2, 12),
+    BUDGET_RECORD_OBJECT(2, 13),
+    SPECIAL_AUTHORITY_OBJECT(2, 14);
 
-    private int getSpace(){
-        int space = 1;
-        switch(this){
-            case BASE_OBJECT:
-            case ACCOUNT_OBJECT:
-            case ASSET_OBJECT:
-            case FORCE_SETTLEMENT_OBJECT:
-            case COMMITTEE_MEMBER_OBJECT:
-            case WITNESS_OBJECT:
-            case LIMIT_ORDER_OBJECT:
-            case CALL_ORDER_OBJECT:
-            case CUSTOM_OBJECT:
-            case PROPOSAL_OBJECT:
-            case OPERATION_HISTORY_OBJECT:
-            case WITHDRAW_PERMISSION_OBJECT:
-            case VESTING_BALANCE_OBJECT:
-            case WORKER_OBJECT:
-            case BALANCE_OBJECT:
-            case HTLC_OBJECT:
-                space = 1;
-                break;
-            case GLOBAL_PROPERTY_OBJECT:
-            case DYNAMIC_GLOBAL_PROPERTY_OBJECT:
-            case ASSET_DYNAMIC_DATA:
-            case ASSET_BITASSET_DATA:
-            case ACCOUNT_BALANCE_OBJECT:
-            case ACCOUNT_STATISTICS_OBJECT:
-            case TRANSACTION_OBJECT:
-            case BLOCK_SUMMARY_OBJECT:
-            case ACCOUNT_TRANSACTION_HISTORY_OBJECT:
-            case BLINDED_BALANCE_OBJECT:
-            case CHAIN_PROPERTY_OBJECT:
-            case WITNESS_SCHEDULE_OBJECT:
-            case BUDGET_RECORD_OBJECT:
-            case SPECIAL_AUTHORITY_OBJECT:
-                space = 2;
-                break;
+    // Table used to look up object types by space and type, indexed as [space][type]
+    private static final ObjectType[][] TYPES = new ObjectType[3][17];
+    static {
+        for(ObjectType objectType : values()){
+            TYPES[objectType.space][objectType.type] = objectType;
         }
+    }
+
+    private final int space;
+    private final int type;
+    private final String genericObjectId;
+
+    ObjectType(int space, int type){
+        this.space = space;
+        this.type = type;
+        this.genericObjectId = space + "." + type + ".0";
+    }
+
+    public int getSpace(){
         return space;
     }
 
-    private int getType(){
-        int type = 0;
-        switch(this){
-            case BASE_OBJECT:
-                type = 1;
-                break;
-            case ACCOUNT_OBJECT:
-                type = 2;
-                break;
-            case ASSET_OBJECT:
-                type = 3;
-                break;
-            case FORCE_SETTLEMENT_OBJECT:
-                type = 4;
-                break;
-            case COMMITTEE_MEMBER_OBJECT:
-                type = 5;
-                break;
-            case WITNESS_OBJECT:
-                type = 6;
-                break;
-            case LIMIT_ORDER_OBJECT:
-                type = 7;
-                break;
-            case CALL_ORDER_OBJECT:
-                type = 8;
-                break;
-            case CUSTOM_OBJECT:
-                type = 9;
-                break;
-            case PROPOSAL_OBJECT:
-                type = 10;
-                break;
-            case OPERATION_HISTORY_OBJECT:
-                type = 11;
-                break;
-            case WITHDRAW_PERMISSION_OBJECT:
-                type = 12;
-                break;
-            case VESTING_BALANCE_OBJECT:
-                type = 13;
-                break;
-            case WORKER_OBJECT:
-                type = 14;
-                break;
-            case BALANCE_OBJECT:
-                type = 15;
-                break;
-            case HTLC_OBJECT:
-                type = 16;
-            case GLOBAL_PROPERTY_OBJECT:
-                type = 0;
-                break;
-            case DYNAMIC_GLOBAL_PROPERTY_OBJECT:
-                type = 1;
-                break;
-            case ASSET_DYNAMIC_DATA:
-                type = 3;
-                break;
-            case ASSET_BITASSET_DATA:
-                type = 4;
-                break;
-            case ACCOUNT_BALANCE_OBJECT:
-                type = 5;
-                break;
-            case ACCOUNT_STATISTICS_OBJECT:
-                type = 6;
-                break;
-            case TRANSACTION_OBJECT:
-                type = 7;
-                break;
-            case BLOCK_SUMMARY_OBJECT:
-                type = 8;
-                break;
-            case ACCOUNT_TRANSACTION_HISTORY_OBJECT:
-                type = 9;
-                break;
-            case BLINDED_BALANCE_OBJECT:
-                type = 10;
-                break;
-            case CHAIN_PROPERTY_OBJECT:
-                type = 11;
-                break;
-            case WITNESS_SCHEDULE_OBJECT:
-                type = 12;
-                break;
-            case BUDGET_RECORD_OBJECT:
-                type = 13;
-                break;
-            case SPECIAL_AUTHORITY_OBJECT:
-                type = 14;
-        }
+    public int getType(){
         return type;
     }
 
+    /**
+     * Looks up the object type corresponding to a space and type.
+     *
+     * @param space The space of an object id
+     * @param type  The type of an object id
+     * @return      The object type, or null if there is none
+     */
+    public static ObjectType fromSpaceAndType(int space, int type){
+        if(space < 0 || space >= TYPES.length || type < 0 || type >= TYPES[space].length)
+            return null;
+        return TYPES[space][type];
+    }
+
+    /**
+     * Looks up the object type of a packed object id.
+     *
+     * @param packedId  Object id packed as described in {@link ObjectId}
+     * @return          The object type, or null if there is none
+     */
+    public static ObjectType fromPackedId(long packedId){
+        if(packedId == ObjectId.INVALID) return null;
+        return fromSpaceAndType(ObjectId.getSpace(packedId), ObjectId.getType(packedId));
+    }
+
     /**
      * This method is used to return the generic object type in the form space.type.0.
      *
@@ -181,6 +95,6 @@ public enum ObjectType {
      * @return: The generic object type
      */
     public String getGenericObjectId(){
-        return String.format("%d.%d.0", getSpace(), getType());
+        return genericObjectId;
     }
 }
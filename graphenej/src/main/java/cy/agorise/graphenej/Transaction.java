@@ -1,8 +1,6 @@
 package cy.agorise.graphenej;
 
 import com.google.common.primitives.Bytes;
-import com.google.gson.GsonBuilder;
-import com.google.gson.JsonArray;
 import com.google.gson.JsonDeserializationContext;
 import com.google.gson.JsonDeserializer;
 import com.google.gson.JsonElement;
@@ -10,12 +8,14 @@ import com.google.gson.JsonObject;
 import com.google.gson.JsonParseException;
 import com.google.gson.JsonSerializationContext;
 import com.google.gson.JsonSerializer;
+import com.google.gson.stream.JsonWriter;
 
 import org.bitcoinj.core.DumpedPrivateKey;
 import org.bitcoinj.core.ECKey;
 import org.bitcoinj.core.Sha256Hash;
 import org.bitcoinj.core.Utils;
 
+import java.io.IOException;
 import java.lang.reflect.Type;
 import java.text.ParsePosition;
 import java.text.SimpleDateFormat;
@@ -24,9 +24,12 @@ import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 import java.util.TimeZone;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import cy.agorise.graphenej.interfaces.ByteSerializable;
 import cy.agorise.graphenej.interfaces.JsonSerializable;
+import cy.agorise.graphenej.interfaces.JsonStreamable;
 import cy.agorise.graphenej.operations.CustomOperation;
 import cy.agorise.graphenej.operations.LimitOrderCreateOperation;
 import cy.agorise.graphenej.operations.TransferOperation;
@@ -34,7 +37,8 @@ import cy.agorise.graphenej.operations.TransferOperation;
 /**
  * Class used to represent a generic Graphene transaction.
  */
-public class Transaction implements ByteSerializable, JsonSerializable {
+public class Transaction implements ByteSerializable, JsonSerializable, JsonStreamable {
+    private static final Logger logger = Logger.getLogger(Transaction.class.getName());
 
     /* Default expiration time */
     public static final int DEFAULT_EXPIRATION_TIME = 30;
@@ -228,22 +232,20 @@ public class Transaction implements ByteSerializable, JsonSerializable {
 
     @Override
     public String toJsonString() {
-        GsonBuilder gsonBuilder = new GsonBuilder();
-        gsonBuilder.registerTypeAdapter(Transaction.class, new TransactionSerializer());
-        return gsonBuilder.create().toJson(this);
+        return JsonStreamSerializer.toJsonString(this);
     }
 
     @Override
-    public JsonObject toJsonObject() {
-        JsonObject obj = new JsonObject();
-
+    public void writeJson(JsonWriter writer) throws IOException {
         // Getting the signature before anything else,
         // since this might change the transaction expiration data slightly
         byte[] signature = null;
-        try{
-            signature = getGrapheneSignature();
-        }catch(Exception e){
-            System.out.println("Could not generate signature");
+        if(privateKey != null){
+            try{
+                signature = getGrapheneSignature();
+            }catch(Exception e){
+                logger.log(Level.WARNING, "Could not generate signature", e);
+            }
         }
 
         // Formatting expiration time
@@ -251,31 +253,35 @@ public class Transaction implements ByteSerializable, JsonSerializable {
         SimpleDateFormat dateFormat = new SimpleDateFormat(Util.TIME_DATE_FORMAT);
         dateFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
 
-        // Adding expiration
-        obj.addProperty(KEY_EXPIRATION, dateFormat.format(expirationTime));
-
+        writer.beginObject();
+        writer.name(KEY_EXPIRATION).value(dateFormat.format(expirationTime));
         if(signature != null){
-            // Adding signature
-            JsonArray signatureArray = new JsonArray();
-            signatureArray.add(Util.bytesToHex(signature));
-            obj.add(KEY_SIGNATURES, signatureArray);
+            writer.name(KEY_SIGNATURES).beginArray();
+            writer.value(Util.bytesToHex(signature));
+            writer.endArray();
         }
-
-        JsonArray operationsArray = new JsonArray();
+        writer.name(KEY_OPERATIONS).beginArray();
         for(BaseOperation operation : operations){
-            operationsArray.add(operation.toJsonObject());
+            // Operations without a streaming implementation are written from their JSON tree
+            JsonStreamSerializer.writeValue(writer, operation);
         }
-        // Adding operations
-        obj.add(KEY_OPERATIONS, operationsArray);
-
-        // Adding extensions
-        obj.add(KEY_EXTENSIONS, new JsonArray());
-
-        // Adding block data
-        obj.addProperty(KEY_REF_BLOCK_NUM, blockData.getRefBlockNum());
-        obj.addProperty(KEY_REF_BLOCK_PREFIX, blockData.getRefBlockPrefix());
+        writer.endArray();
+        writer.name(KEY_EXTENSIONS).beginArray().endArray();
+        writer.name(KEY_REF_BLOCK_NUM).value(blockData.getRefBlockNum());
+        writer.name(KEY_REF_BLOCK_PREFIX).value(blockData.getRefBlockPrefix());
+        writer.endObject();
+    }
 
-        return obj;
+    /**
+     * Builds the JSON tree of this transaction by streaming it into a tree writer, so that
+     * both representations are always the same. The signature is computed just once, by
+     * {@link #writeJson(JsonWriter)}.
+     *
+     * @return  The JSON representation of this transaction
+     */
+    @Override
+    public JsonObject toJsonObject() {
+        return JsonStreamSerializer.toJsonTree(this).getAsJsonObject();
     }
 
     /**
@@ -4,9 +4,12 @@ import com.google.gson.ExclusionStrategy;
 import com.google.gson.FieldAttributes;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
 
-import java.util.HashMap;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 
 import cy.agorise.graphenej.AccountOptions;
 import cy.agorise.graphenej.Asset;
@@ -19,6 +22,7 @@ import cy.agorise.graphenej.LimitOrder;
 import cy.agorise.graphenej.Memo;
 import cy.agorise.graphenej.Transaction;
 import cy.agorise.graphenej.UserAccount;
+import cy.agorise.graphenej.api.calls.ApiCallable;
 import cy.agorise.graphenej.api.calls.GetAccountBalances;
 import cy.agorise.graphenej.api.calls.GetAccountByName;
 import cy.agorise.graphenej.api.calls.GetAccountHistoryByOperations;
@@ -46,6 +50,7 @@ import cy.agorise.graphenej.models.BucketObject;
 import cy.agorise.graphenej.models.DynamicGlobalProperties;
 import cy.agorise.graphenej.models.FullAccountDetails;
 import cy.agorise.graphenej.models.HistoryOperationDetail;
+import cy.agorise.graphenej.models.JsonRpcResponse;
 import cy.agorise.graphenej.models.OperationHistory;
 import cy.agorise.graphenej.models.ReportedAssetFeed;
 import cy.agorise.graphenej.operations.CustomOperation;
@@ -55,21 +60,36 @@ import cy.agorise.graphenej.operations.TransferOperation;
 /**
  * Class used to store a mapping of request class to two important things:
  *
- * 1- The class to which the corresponding response should be de-serialized to
+ * 1- The full type to which the corresponding response should be de-serialized to
  * 2- An instance of the Gson class, with all required type adapters
+ *
+ * Both are computed only once, when the call is registered, so that looking them up
+ * for every incoming response is just a matter of a single map access.
  */
 public class DeserializationMap {
     private final String TAG = this.getClass().getName();
 
-    private HashMap<Class, Class> mClassMap = new HashMap<>();
+    private ConcurrentHashMap<Class<? extends ApiCallable>, Entry> mEntries = new ConcurrentHashMap<>();
 
-    private HashMap<Class, Gson> mGsonMap = new HashMap<>();
+    /**
+     * Registry entry of a single request class.
+     */
+    private static class Entry {
+        final Type responseType;
+        final Class<?> payloadClass;
+        final Gson gson;
+
+        Entry(Type responseType, Class<?> payloadClass, Gson gson){
+            this.responseType = responseType;
+            this.payloadClass = payloadClass;
+            this.gson = gson;
+        }
+    }
 
-    DeserializationMap(){
+    public DeserializationMap(){
         Gson genericGson = new Gson();
 
         // GetBlock
-        mClassMap.put(GetBlock.class, Block.class);
         Gson getBlockGson = new GsonBuilder()
                 .registerTypeAdapter(Transaction.class, new Transaction.TransactionDeserializer())
                 .registerTypeAdapter(TransferOperation.class, new TransferOperation.TransferDeserializer())
@@ -77,25 +97,22 @@ public class DeserializationMap {
                 .registerTypeAdapter(CustomOperation.class, new CustomOperation.CustomOperationDeserializer())
                 .registerTypeAdapter(AssetAmount.class, new AssetAmount.AssetAmountDeserializer())
                 .create();
-        mGsonMap.put(GetBlock.class, getBlockGson);
+        register(GetBlock.class, new TypeToken<JsonRpcResponse<Block>>(){}.getType(), getBlockGson);
 
         // GetAccounts
-        mClassMap.put(GetAccounts.class, List.class);
         Gson getAccountsGson = new GsonBuilder()
                 .registerTypeAdapter(Authority.class, new Authority.AuthorityDeserializer())
                 .registerTypeAdapter(AccountOptions.class, new AccountOptions.AccountOptionsDeserializer(false))
                 .create();
-        mGsonMap.put(GetAccounts.class, getAccountsGson);
+        register(GetAccounts.class, new TypeToken<JsonRpcResponse<List<AccountProperties>>>(){}.getType(), getAccountsGson);
 
         // GetRequiredFees
-        mClassMap.put(GetRequiredFees.class, List.class);
         Gson getRequiredFeesGson = new GsonBuilder()
                 .registerTypeAdapter(AssetAmount.class, new AssetAmount.AssetAmountDeserializer())
                 .create();
-        mGsonMap.put(GetRequiredFees.class, getRequiredFeesGson);
+        register(GetRequiredFees.class, new TypeToken<JsonRpcResponse<List<AssetAmount>>>(){}.getType(), getRequiredFeesGson);
 
         // GetRelativeAccountHistory
-        mClassMap.put(GetRelativeAccountHistory.class, List.class);
         Gson getRelativeAcountHistoryGson = new GsonBuilder()
             .setExclusionStrategies(new SkipAccountOptionsStrategy(), new SkipAssetOptionsStrategy())
                 .registerTypeAdapter(BaseOperation.class, new BaseOperation.OperationDeserializer())
@@ -104,28 +121,24 @@ public class DeserializationMap {
             .registerTypeAdapter(AssetAmount.class, new AssetAmount.AssetAmountDeserializer())
             .registerTypeAdapter(Memo.class, new Memo.MemoDeserializer())
             .create();
-        mGsonMap.put(GetRelativeAccountHistory.class, getRelativeAcountHistoryGson);
+        register(GetRelativeAccountHistory.class, new TypeToken<JsonRpcResponse<List<OperationHistory>>>(){}.getType(), getRelativeAcountHistoryGson);
 
         // GetBlockHeader
-        mClassMap.put(GetBlockHeader.class, BlockHeader.class);
-        mGsonMap.put(GetBlockHeader.class, genericGson);
+        register(GetBlockHeader.class, new TypeToken<JsonRpcResponse<BlockHeader>>(){}.getType(), genericGson);
 
         // GetMarketHistory
-        mClassMap.put(GetMarketHistory.class, List.class);
         Gson getMarketHistoryGson = new GsonBuilder()
             .registerTypeAdapter(BucketObject.class, new BucketObject.BucketDeserializer())
             .create();
-        mGsonMap.put(GetMarketHistory.class, getMarketHistoryGson);
+        register(GetMarketHistory.class, new TypeToken<JsonRpcResponse<List<BucketObject>>>(){}.getType(), getMarketHistoryGson);
 
         // LookupAssetSymbols
-        mClassMap.put(LookupAssetSymbols.class, List.class);
         Gson lookupAssetSymbolGson = new GsonBuilder()
                 .registerTypeAdapter(Asset.class, new Asset.AssetDeserializer())
                 .create();
-        mGsonMap.put(LookupAssetSymbols.class, lookupAssetSymbolGson);
+        register(LookupAssetSymbols.class, new TypeToken<JsonRpcResponse<List<Asset>>>(){}.getType(), lookupAssetSymbolGson);
 
         // GetObjects
-        mClassMap.put(GetObjects.class, List.class);
         Gson getObjectsGson = new GsonBuilder()
                 .registerTypeAdapter(Asset.class, new Asset.AssetDeserializer())
                 .registerTypeAdapter(BitAssetData.class, new BitAssetData.BitAssetDataDeserializer())
@@ -133,34 +146,31 @@ public class DeserializationMap {
                 .registerTypeAdapter(AssetFeed.class, new AssetFeed.AssetFeedDeserializer())
                 .registerTypeAdapter(AssetAmount.class, new AssetAmount.AssetAmountDeserializer())
                 .create();
-        mGsonMap.put(GetObjects.class, getObjectsGson);
+        //TODO: Add support for other types of 'get_objects' request types
+        register(GetObjects.class, new TypeToken<JsonRpcResponse<List<BitAssetData>>>(){}.getType(), getObjectsGson);
 
         // ListAssets
-        mClassMap.put(ListAssets.class, List.class);
         Gson listAssetsGson = new GsonBuilder()
             .registerTypeAdapter(Asset.class, new Asset.AssetDeserializer())
             .create();
-        mGsonMap.put(ListAssets.class, listAssetsGson);
+        register(ListAssets.class, new TypeToken<JsonRpcResponse<List<Asset>>>(){}.getType(), listAssetsGson);
 
         // GetAccountByName
-        mClassMap.put(GetAccountByName.class, AccountProperties.class);
         Gson getAccountByNameGson = new GsonBuilder()
             .registerTypeAdapter(Authority.class, new Authority.AuthorityDeserializer())
             .registerTypeAdapter(AccountOptions.class, new AccountOptions.AccountOptionsDeserializer())
             .create();
-        mGsonMap.put(GetAccountByName.class, getAccountByNameGson);
+        register(GetAccountByName.class, new TypeToken<JsonRpcResponse<AccountProperties>>(){}.getType(), getAccountByNameGson);
 
         // GetLimitOrders
-        mClassMap.put(GetLimitOrders.class, List.class);
         Gson getLimitOrdersGson = new GsonBuilder()
             .registerTypeAdapter(AssetAmount.class, new AssetAmount.AssetAmountDeserializer())
             .registerTypeAdapter(UserAccount.class, new UserAccount.UserAccountSimpleDeserializer())
             .registerTypeAdapter(LimitOrder.class, new LimitOrder.LimitOrderDeserializer())
             .create();
-        mGsonMap.put(GetLimitOrders.class, getLimitOrdersGson);
+        register(GetLimitOrders.class, new TypeToken<JsonRpcResponse<List<LimitOrder>>>(){}.getType(), getLimitOrdersGson);
 
         // GetAccountHistoryByOperations
-        mClassMap.put(GetAccountHistoryByOperations.class, HistoryOperationDetail.class);
         Gson getAccountHistoryByOperationsGson = new GsonBuilder()
                 .setExclusionStrategies(new DeserializationMap.SkipAccountOptionsStrategy(), new DeserializationMap.SkipAssetOptionsStrategy())
                 .registerTypeAdapter(BaseOperation.class, new BaseOperation.OperationDeserializer())
@@ -170,63 +180,85 @@ public class DeserializationMap {
                 .registerTypeAdapter(UserAccount.class, new UserAccount.UserAccountSimpleDeserializer())
                 .registerTypeAdapter(AssetAmount.class, new AssetAmount.AssetAmountDeserializer())
                 .create();
-        mGsonMap.put(GetAccountHistoryByOperations.class, getAccountHistoryByOperationsGson);
+        register(GetAccountHistoryByOperations.class, new TypeToken<JsonRpcResponse<HistoryOperationDetail>>(){}.getType(), getAccountHistoryByOperationsGson);
 
         // GetFullAccounts
-        mClassMap.put(GetFullAccounts.class, List.class);
         Gson getFullAccountsGson = new GsonBuilder()
                 .registerTypeAdapter(FullAccountDetails.class, new FullAccountDetails.FullAccountDeserializer())
                 .registerTypeAdapter(Authority.class, new Authority.AuthorityDeserializer())
                 .registerTypeAdapter(Memo.class, new Memo.MemoDeserializer())
                 .registerTypeAdapter(AccountOptions.class, new AccountOptions.AccountOptionsDeserializer())
                 .create();
-        mGsonMap.put(GetFullAccounts.class, getFullAccountsGson);
+        register(GetFullAccounts.class, new TypeToken<JsonRpcResponse<List<FullAccountDetails>>>(){}.getType(), getFullAccountsGson);
 
         // GetDynamicGlobalProperties
-        mClassMap.put(GetDynamicGlobalProperties.class, DynamicGlobalProperties.class);
         Gson getDynamicGlobalPropertiesGson = new GsonBuilder()
                 .registerTypeAdapter(DynamicGlobalProperties.class, new DynamicGlobalProperties.DynamicGlobalPropertiesDeserializer())
                 .create();
-        mGsonMap.put(GetDynamicGlobalProperties.class, getDynamicGlobalPropertiesGson);
+        register(GetDynamicGlobalProperties.class, new TypeToken<JsonRpcResponse<DynamicGlobalProperties>>(){}.getType(), getDynamicGlobalPropertiesGson);
 
         // GetKeyReferences
-        mClassMap.put(GetKeyReferences.class, List.class);
         Gson getKeyReferencesGson = new GsonBuilder()
                 .registerTypeAdapter(UserAccount.class, new UserAccount.UserAccountSimpleDeserializer())
                 .create();
-        mGsonMap.put(GetKeyReferences.class, getKeyReferencesGson);
+        register(GetKeyReferences.class, new TypeToken<JsonRpcResponse<List<List<UserAccount>>>>(){}.getType(), getKeyReferencesGson);
 
         // GetAccountBalances
-        mClassMap.put(GetAccountBalances.class, List.class);
         Gson getAccountBalancesGson = new GsonBuilder()
                 .registerTypeAdapter(AssetAmount.class, new AssetAmount.AssetAmountDeserializer())
                 .create();
-        mGsonMap.put(GetAccountBalances.class, getAccountBalancesGson);
+        register(GetAccountBalances.class, new TypeToken<JsonRpcResponse<List<AssetAmount>>>(){}.getType(), getAccountBalancesGson);
 
         // GetAssets
-        mClassMap.put(GetAssets.class, List.class);
         Gson getAssetsGson = new GsonBuilder()
                 .registerTypeAdapter(Asset.class, new Asset.AssetDeserializer())
                 .create();
-        mGsonMap.put(GetAssets.class, getAssetsGson);
+        register(GetAssets.class, new TypeToken<JsonRpcResponse<List<Asset>>>(){}.getType(), getAssetsGson);
 
         // GetTransaction
-        mClassMap.put(GetTransaction.class, Transaction.class);
         Gson getTransactionGson = new GsonBuilder()
                 .registerTypeAdapter(Transaction.class, new Transaction.TransactionDeserializer())
                 .registerTypeAdapter(Memo.class, new Memo.MemoDeserializer())
                 .registerTypeAdapter(AssetAmount.class, new AssetAmount.AssetAmountDeserializer())
                 .registerTypeAdapter(TransferOperation.class, new TransferOperation.TransferDeserializer())
                 .create();
-        mGsonMap.put(GetTransaction.class, getTransactionGson);
+        register(GetTransaction.class, new TypeToken<JsonRpcResponse<Transaction>>(){}.getType(), getTransactionGson);
+    }
+
+    /**
+     * Registers the response type of a request class, together with the Gson instance
+     * able to de-serialize it. Registering a class again replaces its previous entry.
+     *
+     * @param requestClass  The class of the API call wrapper
+     * @param responseType  The full type of the response, like JsonRpcResponse&lt;List&lt;Asset&gt;&gt;
+     * @param gson          Gson instance with all the type adapters required by the response
+     */
+    public void register(Class<? extends ApiCallable> requestClass, Type responseType, Gson gson){
+        Class<?> payloadClass = null;
+        if(responseType instanceof ParameterizedType){
+            Type payloadType = ((ParameterizedType) responseType).getActualTypeArguments()[0];
+            payloadClass = TypeToken.get(payloadType).getRawType();
+        }
+        mEntries.put(requestClass, new Entry(responseType, payloadClass, gson));
     }
 
-    public Class getReceivedClass(Class _class){
-        return mClassMap.get(_class);
+    public Class<?> getReceivedClass(Class<? extends ApiCallable> _class){
+        Entry entry = mEntries.get(_class);
+        return entry != null ? entry.payloadClass : null;
     }
 
-    public Gson getGson(Class aClass) {
-        return mGsonMap.get(aClass);
+    public Gson getGson(Class<? extends ApiCallable> aClass) {
+        Entry entry = mEntries.get(aClass);
+        return entry != null ? entry.gson : null;
+    }
+
+    /**
+     * @param aClass    The class of the API call wrapper
+     * @return          The full type of its response, or null if the class was not registered
+     */
+    public Type getResponseType(Class<? extends ApiCallable> aClass){
+        Entry entry = mEntries.get(aClass);
+        return entry != null ? entry.responseType : null;
     }
 
     /**
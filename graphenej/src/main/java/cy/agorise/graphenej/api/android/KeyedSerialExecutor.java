@@ -0,0 +1,107 @@
+package cy.agorise.graphenej.api.android;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Executor that runs tasks on a shared pool while keeping the order of the tasks submitted
+ * with the same key.
+ * <p>
+ * Tasks with the same key run one after the other, in the order they were submitted, while
+ * tasks with different keys can run concurrently on any of the threads of the pool.
+ */
+class KeyedSerialExecutor {
+    private final Logger logger = Logger.getLogger(this.getClass().getName());
+
+    private final Executor mExecutor;
+
+    // Pending tasks of every key that currently has a task queued or running
+    private final HashMap<Object, ArrayDeque<Runnable>> mLanes = new HashMap<>();
+
+    // Number of tasks submitted that have not finished running yet
+    private final AtomicInteger mQueued = new AtomicInteger();
+
+    /**
+     * Constructor
+     *
+     * @param executor  The executor whose threads will run the tasks.
+     */
+    KeyedSerialExecutor(Executor executor){
+        mExecutor = executor;
+    }
+
+    /**
+     * Submits a task to be run after all previously submitted tasks with the same key.
+     *
+     * @param key   Key of the task
+     * @param task  The task to run
+     * @throws java.util.concurrent.RejectedExecutionException if the underlying executor
+     *          does not accept more tasks
+     */
+    void execute(final Object key, Runnable task){
+        mQueued.incrementAndGet();
+        synchronized (mLanes){
+            ArrayDeque<Runnable> lane = mLanes.get(key);
+            if(lane != null){
+                // A drain task is already working on this key, it will get to this one too
+                lane.add(task);
+                return;
+            }
+            lane = new ArrayDeque<>();
+            lane.add(task);
+            mLanes.put(key, lane);
+        }
+        try{
+            mExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    drain(key);
+                }
+            });
+        }catch(RuntimeException e){
+            synchronized (mLanes){
+                mLanes.remove(key);
+            }
+            mQueued.decrementAndGet();
+            throw e;
+        }
+    }
+
+    /**
+     * @return  The number of submitted tasks that are either waiting or running.
+     */
+    int getQueuedCount(){
+        return mQueued.get();
+    }
+
+    /**
+     * Runs all tasks queued with the given key, until none is left.
+     *
+     * @param key   Key of the tasks
+     */
+    private void drain(Object key){
+        while(true){
+            Runnable task;
+            synchronized (mLanes){
+                ArrayDeque<Runnable> lane = mLanes.get(key);
+                task = lane.poll();
+                if(task == null){
+                    mLanes.remove(key);
+                    return;
+                }
+            }
+            try{
+                task.run();
+            }catch(RuntimeException e){
+                // A failing task must not stall the ones queued behind it
+                logger.log(Level.SEVERE, "Task with key " + key + " failed", e);
+            }finally{
+                mQueued.decrementAndGet();
+            }
+        }
+    }
+}
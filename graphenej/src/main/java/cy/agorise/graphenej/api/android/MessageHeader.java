@@ -0,0 +1,94 @@
+package cy.agorise.graphenej.api.android;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import cy.agorise.graphenej.models.JsonRpcNotification;
+
+/**
+ * Class that holds the fields of an incoming JSON-RPC message needed to route it, namely
+ * its 'id', or its 'method' and subscription id in the case of notifications.
+ * <p>
+ * These are obtained with a streaming {@link JsonReader} that stops as soon as they are
+ * found, so that the actual payload only has to be de-serialized once, directly into its final
+ * type. Responses carry an id and notifications carry a method, but never both.
+ */
+class MessageHeader {
+
+    /**
+     * Value of the {@link #id} and {@link #subscriptionId} fields of messages that carry none.
+     */
+    static final long NO_ID = -1;
+
+    private static final String KEY_ID = "id";
+
+    // Id of the request this message responds to, or NO_ID
+    final long id;
+
+    // Method of a notification, or null
+    final String method;
+
+    // Id of the subscription a notification belongs to, or NO_ID
+    final long subscriptionId;
+
+    private MessageHeader(long id, String method, long subscriptionId){
+        this.id = id;
+        this.method = method;
+        this.subscriptionId = subscriptionId;
+    }
+
+    /**
+     * @return  True if this message is a notification, false if it is a response.
+     */
+    boolean isNotification(){
+        return method != null;
+    }
+
+    /**
+     * Reads the routing fields of a raw message.
+     *
+     * @param text  Raw text, as received
+     * @return      The header of the message. If the message could not be read, a header
+     *              with no id and no method is returned.
+     */
+    static MessageHeader read(String text){
+        JsonReader reader = new JsonReader(new StringReader(text));
+        String method = null;
+        long subscriptionId = NO_ID;
+        boolean paramsRead = false;
+        try{
+            reader.beginObject();
+            while(reader.hasNext()){
+                String name = reader.nextName();
+                if(KEY_ID.equals(name) && reader.peek() != JsonToken.NULL){
+                    // Ids are usually numbers, but nextLong also accepts them as strings
+                    return new MessageHeader(reader.nextLong(), null, NO_ID);
+                }else if(JsonRpcNotification.KEY_METHOD.equals(name) && reader.peek() == JsonToken.STRING){
+                    method = reader.nextString();
+                    if(paramsRead) break;
+                }else if(JsonRpcNotification.KEY_PARAMS.equals(name) && reader.peek() == JsonToken.BEGIN_ARRAY){
+                    // The subscription id is the first of the notification parameters
+                    reader.beginArray();
+                    if(reader.hasNext() && reader.peek() == JsonToken.NUMBER){
+                        subscriptionId = reader.nextLong();
+                    }
+                    paramsRead = true;
+                    if(method != null) break;
+                    while(reader.hasNext()){
+                        reader.skipValue();
+                    }
+                    reader.endArray();
+                }else{
+                    reader.skipValue();
+                }
+            }
+        }catch(IOException | IllegalStateException | NumberFormatException e){
+            // Malformed messages are handled as responses with no id
+            return new MessageHeader(NO_ID, null, NO_ID);
+        }
+        return new MessageHeader(NO_ID, method, subscriptionId);
+    }
+}
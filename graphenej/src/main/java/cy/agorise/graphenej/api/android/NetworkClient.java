@@ -0,0 +1,1733 @@
+package cy.agorise.graphenej.api.android;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import cy.agorise.graphenej.AssetAmount;
+import cy.agorise.graphenej.BaseOperation;
+import cy.agorise.graphenej.Memo;
+import cy.agorise.graphenej.RPC;
+import cy.agorise.graphenej.Transaction;
+import cy.agorise.graphenej.UserAccount;
+import cy.agorise.graphenej.api.ApiAccess;
+import cy.agorise.graphenej.api.ConnectionStatusUpdate;
+import cy.agorise.graphenej.api.calls.ApiCallable;
+import cy.agorise.graphenej.api.calls.CancelAllSubscriptions;
+import cy.agorise.graphenej.errors.NodeDisconnectedException;
+import cy.agorise.graphenej.models.ApiCall;
+import cy.agorise.graphenej.models.DynamicGlobalProperties;
+import cy.agorise.graphenej.models.JsonRpcNotification;
+import cy.agorise.graphenej.models.JsonRpcResponse;
+import cy.agorise.graphenej.models.OperationHistory;
+import cy.agorise.graphenej.network.FullNode;
+import cy.agorise.graphenej.network.NodeLatencyVerifier;
+import cy.agorise.graphenej.network.NodeSelectionStrategy;
+import cy.agorise.graphenej.network.NodeStatisticsStore;
+import cy.agorise.graphenej.network.ScoringNodeProvider;
+import cy.agorise.graphenej.operations.CustomOperation;
+import cy.agorise.graphenej.operations.LimitOrderCreateOperation;
+import cy.agorise.graphenej.operations.TransferOperation;
+import cy.agorise.graphenej.stats.ExponentialMovingAverage;
+import cy.agorise.graphenej.stats.LatencySketch;
+import cy.agorise.graphenej.stats.RpcMetrics;
+import io.reactivex.Completable;
+import io.reactivex.CompletableSource;
+import io.reactivex.Observer;
+import io.reactivex.Single;
+import io.reactivex.SingleSource;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.functions.Action;
+import io.reactivex.functions.Consumer;
+import io.reactivex.functions.Function;
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.subjects.PublishSubject;
+import io.reactivex.subjects.SingleSubject;
+import okhttp3.OkHttpClient;
+
+/**
+ * Platform-neutral client in charge of maintaining the connections to the full nodes.
+ * <p>
+ * This class holds all the connection, handshake and dispatch logic, and depends only on plain
+ * Java. All timed tasks run on a single scheduler thread owned by the client, so it can be used
+ * directly from any JVM application. On Android it is wrapped by the {@link NetworkService}.
+ * <p>
+ * Incoming messages are de-serialized on a pool of decoder threads, so that large payloads do
+ * not hold back the socket. Notifications of the same subscription, as well as the responses
+ * broadcasted through the {@link RxBus}, are still delivered in the order they arrived.
+ * <p>
+ * Connection status updates, notifications and the responses to requests sent with
+ * {@link #sendMessage(ApiCallable, int)} are broadcasted through the {@link RxBus}.
+ * <p>
+ * When the latency verification finds a node much better than the one in use, the client
+ * migrates to it without interruption: a session with the new node is opened and handshaked,
+ * the subscriptions are set up on it, and only then is the previous session closed, once the
+ * requests still in flight on it have been answered.
+ */
+public class NetworkClient {
+    private final Logger logger = Logger.getLogger(this.getClass().getName());
+
+    public static final int NORMAL_CLOSURE_STATUS = 1000;
+    static final int GOING_AWAY_STATUS = 1001;
+
+    // Time to wait before retrying a connection attempt
+    private static final int DEFAULT_RETRY_DELAY = 500;
+
+    // Default connection delay when using the node latency verification strategy. This initial
+    // delay is required in order ot make sure we have a fair selection of node latencies from
+    // which we can choose from.
+    private static final int DEFAULT_INITIAL_DELAY = 500;
+
+    /**
+     * Default time in milliseconds to wait for the response of a request sent with
+     * {@link #sendRequest(ApiCallable, int)} before failing it with a timeout. It is shortened
+     * once the latency distribution of the node is known.
+     */
+    public static final long DEFAULT_REQUEST_TIMEOUT = 30 * 1000;
+
+    // Time in milliseconds to wait before hedging a request to a node whose latency is unknown
+    private static final long DEFAULT_HEDGE_DELAY = 500;
+
+    // Minimum time in milliseconds to wait before hedging a request
+    private static final long MIN_HEDGE_DELAY = 50;
+
+    // Multiple of the node's average latency to wait before hedging a request, if its latency
+    // distribution is not known yet
+    private static final double HEDGE_LATENCY_FACTOR = 2.0;
+
+    // Quantile of the node's latency distribution to wait before hedging a request
+    private static final double HEDGE_QUANTILE = 0.95;
+
+    // Minimum time in milliseconds to wait for a response when the timeout is derived from the
+    // node's latency distribution
+    private static final long MIN_REQUEST_TIMEOUT = 10 * 1000;
+
+    // Multiple of the 99th percentile of the node's latency to wait for a response
+    private static final double TIMEOUT_LATENCY_FACTOR = 10.0;
+
+    // Number of round trips required before hedging delays and timeouts are derived from the
+    // node's latency distribution
+    private static final int MIN_TAIL_SAMPLES = 20;
+
+    // Period in milliseconds between two saves of the node statistics
+    private static final int NODE_STATISTICS_SAVE_PERIOD = 60 * 1000;
+
+    // Minimum size of a response for it to be used to measure the throughput of a node, in bytes
+    private static final int MIN_THROUGHPUT_SAMPLE_SIZE = 16 * 1024;
+
+    // Maximum number of nodes raced against each other when connecting
+    private static final int CONNECT_RACE_SIZE = 3;
+
+    // Time in milliseconds to wait before starting the connection attempt with the next node of a race
+    private static final long CONNECT_STAGGER_DELAY = 250;
+
+    // Fraction of the cost of the node in use that another node must be below to migrate to it
+    private static final double MIGRATION_COST_RATIO = 0.5;
+
+    // Minimum time in milliseconds between two automatic migrations, so that the client does not
+    // bounce between nodes whose ranking keeps changing
+    private static final long MIN_MIGRATION_INTERVAL = 60 * 1000;
+
+    // Period in milliseconds at which a replaced session is checked for requests still in flight
+    private static final long DRAIN_CHECK_PERIOD = 100;
+
+    // Maximum number of abandoned request ids whose late responses are still recognized
+    private static final int MAX_ABANDONED_IDS = 1024;
+
+    // Number of threads used to de-serialize incoming messages
+    private static final int DECODER_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Interface to be implemented by the party interested in knowing when the client has
+     * given up on connecting to any of the nodes.
+     */
+    public interface GiveUpListener {
+
+        /**
+         * Called once the connection was lost and there is no other node left to connect to.
+         */
+        void onGiveUp();
+    }
+
+    // Session with the selected node. This is the connection used by the sendMessage methods and
+    // the only one whose status updates are broadcasted.
+    private volatile NodeSession mSession;
+
+    // Additional sessions with other nodes, used only to distribute requests
+    private ArrayList<NodeSession> mPoolSessions = new ArrayList<>();
+
+    // Session being opened with a better node, which will replace the main one once ready
+    private NodeSession mMigrationSession;
+
+    // Sessions racing to become the main one, and nodes of the race not attempted yet
+    private ArrayList<NodeSession> mCandidateSessions = new ArrayList<>();
+    private LinkedList<FullNode> mPendingCandidates = new LinkedList<>();
+
+    // Previous main sessions that are waiting for their requests in flight before being closed
+    private ArrayList<NodeSession> mDrainingSessions = new ArrayList<>();
+
+    // Value of System.nanoTime() when the last migration was started
+    private long mLastMigrationTime = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(MIN_MIGRATION_INTERVAL);
+
+    // Total number of sessions to keep, including the main one
+    private final int mConnectionPoolSize;
+
+    private OkHttpClient mClient;
+
+    // Username and password used to connect to a specific node
+    private final String mUsername;
+    private final String mPassword;
+
+    // Source of request ids, shared by all sessions
+    private AtomicLong mCurrentId = new AtomicLong();
+
+    // Requested APIs passed to this client
+    private final int mRequestedApis;
+
+    // URLs of all the nodes this client can connect to
+    private final List<String> mNodeUrls;
+
+    private final boolean mAutoConnect;
+    private final boolean mVerifyNodeLatency;
+    private final boolean mNodeMigration;
+
+    // Smoothing factor of the node latency moving average
+    private final double mAlpha;
+
+    private final GiveUpListener mGiveUpListener;
+
+    // Variable used as a source of node information
+    private final ScoringNodeProvider nodeProvider;
+
+    // Class used to obtain frequent node latency updates
+    private NodeLatencyVerifier nodeLatencyVerifier;
+
+    // PublishSubject used to announce full node latencies updates
+    private PublishSubject<FullNode> fullNodePublishSubject;
+
+    // Counter used to trigger the connection only after we've received enough node latency updates
+    private long latencyUpdateCounter;
+
+    // Property used to keep track of the currently active node
+    private FullNode mSelectedNode;
+
+    // Scheduler used to run all delayed tasks, like connection attempts and request replays
+    private final ScheduledExecutorService mExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "graphenej-network-client");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    // Pool of threads in charge of de-serializing incoming messages
+    private final ExecutorService mDecoderPool = Executors.newFixedThreadPool(DECODER_THREADS, new ThreadFactory() {
+        private final AtomicInteger mCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "graphenej-decoder-" + mCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    // Decoding stage that keeps the order of related messages on top of the decoder pool
+    private final KeyedSerialExecutor mDecoder = new KeyedSerialExecutor(mDecoderPool);
+
+    private Gson gson = new GsonBuilder()
+            .registerTypeAdapter(Transaction.class, new Transaction.TransactionDeserializer())
+            .registerTypeAdapter(TransferOperation.class, new TransferOperation.TransferDeserializer())
+            .registerTypeAdapter(LimitOrderCreateOperation.class, new LimitOrderCreateOperation.LimitOrderCreateDeserializer())
+            .registerTypeAdapter(CustomOperation.class, new CustomOperation.CustomOperationDeserializer())
+            .registerTypeAdapter(AssetAmount.class, new AssetAmount.AssetAmountDeserializer())
+            .registerTypeAdapter(UserAccount.class, new UserAccount.UserAccountSimpleDeserializer())
+            .registerTypeAdapter(DynamicGlobalProperties.class, new DynamicGlobalProperties.DynamicGlobalPropertiesDeserializer())
+            .registerTypeAdapter(Memo.class, new Memo.MemoDeserializer())
+            .registerTypeAdapter(BaseOperation.class, new BaseOperation.OperationDeserializer())
+            .registerTypeAdapter(OperationHistory.class, new OperationHistory.OperationHistoryDeserializer())
+            .registerTypeAdapter(JsonRpcNotification.class, new JsonRpcNotification.JsonRpcNotificationDeserializer())
+            .create();
+
+    // Map used to keep track of outgoing request ids and its request types. This is just
+    // one of two required mappings. The second one is implemented by the DeserializationMap
+    // class. Responses to requests sent with the sendRequest method are delivered only to
+    // their caller and are not broadcasted through the event bus.
+    private ConcurrentHashMap<Long, PendingRequest> mPendingRequests = new ConcurrentHashMap<>();
+
+    // Ids of the requests whose caller stopped waiting for a response, like the losers of a
+    // hedged request or those that timed out. Their responses are dropped if they ever arrive.
+    private final Set<Long> mAbandonedIds = Collections.synchronizedSet(Collections.newSetFromMap(
+            new LinkedHashMap<Long, Boolean>() {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+                    return size() > MAX_ABANDONED_IDS;
+                }
+            }));
+
+    // Journal of the requests that were in flight when their connection was lost, and that
+    // will be sent again once a session is ready
+    private RequestJournal mRequestJournal = new RequestJournal();
+
+    // Calls that set up the subscriptions of the main session, sent again when migrating
+    private SubscriptionRegistry mSubscriptions = new SubscriptionRegistry();
+
+    // This class is used to keep track of the mapping between request classes and response
+    // payload classes. It also provides a handy method that returns a Gson deserializer instance
+    // suited for every response type.
+    private DeserializationMap mDeserializationMap = new DeserializationMap();
+
+    // Latency, throughput and error metrics of all the calls made by this client
+    private final RpcMetrics mMetrics = new RpcMetrics();
+
+    // Responses to calls whose result never or rarely changes
+    private final ResponseCache mResponseCache;
+
+    // Chain data kept across restarts, or null if there is no persistent store
+    private final StoredResponses mStoredResponses;
+
+    // Node statistics kept across restarts, or null if they are not persisted
+    private final NodeStatisticsStore mNodeStatisticsStore;
+
+    private NetworkClient(Builder builder){
+        mUsername = builder.username;
+        mPassword = builder.password;
+        mRequestedApis = builder.requestedApis;
+        mNodeUrls = builder.nodeUrls;
+        mAutoConnect = builder.autoConnect;
+        mVerifyNodeLatency = builder.verifyNodeLatency;
+        mNodeMigration = builder.nodeMigration;
+        mAlpha = builder.alpha;
+        mConnectionPoolSize = Math.max(1, builder.connectionPoolSize);
+        mGiveUpListener = builder.giveUpListener;
+        nodeProvider = new ScoringNodeProvider(builder.nodeSelectionStrategy);
+        mResponseCache = new ResponseCache(builder.responseCacheSize);
+        mStoredResponses = builder.objectStore != null ? new StoredResponses(builder.objectStore) : null;
+        mNodeStatisticsStore = builder.nodeStatisticsStore;
+        registerGauges();
+    }
+
+    /**
+     * Registers the gauges that expose the depth of the internal queues.
+     */
+    private void registerGauges(){
+        mMetrics.registerGauge(RpcMetrics.GAUGE_PENDING_REQUESTS, new RpcMetrics.Gauge() {
+            @Override
+            public long getValue() {
+                return mPendingRequests.size();
+            }
+        });
+        mMetrics.registerGauge(RpcMetrics.GAUGE_JOURNALED_REQUESTS, new RpcMetrics.Gauge() {
+            @Override
+            public long getValue() {
+                return mRequestJournal.size();
+            }
+        });
+        mMetrics.registerGauge(RpcMetrics.GAUGE_DECODER_QUEUE, new RpcMetrics.Gauge() {
+            @Override
+            public long getValue() {
+                return mDecoder.getQueuedCount();
+            }
+        });
+        mMetrics.registerGauge(RpcMetrics.GAUGE_READY_SESSIONS, new RpcMetrics.Gauge() {
+            @Override
+            public long getValue() {
+                synchronized (NetworkClient.this){
+                    long ready = mSession != null && mSession.isReady() ? 1 : 0;
+                    for(NodeSession session : mPoolSessions){
+                        if(session.isReady()) ready++;
+                    }
+                    return ready;
+                }
+            }
+        });
+    }
+
+    /**
+     * Feeds all node information to the node provider and tries to connect to a node accordingly.
+     */
+    public void start(){
+        // The same instances are shared with the latency verifier, so that the health statistics
+        // gathered by the sessions and by the verifier end up in the same place
+        ArrayList<FullNode> fullNodes = new ArrayList<>();
+        for(String nodeUrl : mNodeUrls){
+            fullNodes.add(new FullNode(nodeUrl, mAlpha));
+        }
+
+        // With the statistics of a previous run the nodes are ranked before the first connection,
+        // new measurements will keep arriving in the background
+        if(mNodeStatisticsStore != null){
+            mNodeStatisticsStore.load(fullNodes);
+            try{
+                mExecutor.scheduleWithFixedDelay(mSaveNodeStatistics, NODE_STATISTICS_SAVE_PERIOD,
+                        NODE_STATISTICS_SAVE_PERIOD, TimeUnit.MILLISECONDS);
+            }catch(RejectedExecutionException e){
+                logger.fine("Client stopped, not saving node statistics");
+            }
+        }
+        for(FullNode fullNode : fullNodes){
+            nodeProvider.addNode(fullNode);
+        }
+
+        if (mVerifyNodeLatency) {
+            nodeLatencyVerifier = new NodeLatencyVerifier(fullNodes);
+            fullNodePublishSubject = nodeLatencyVerifier.start();
+            fullNodePublishSubject.observeOn(Schedulers.from(mExecutor)).subscribe(nodeLatencyObserver);
+        }
+
+        if (mAutoConnect)
+            connect();
+        else
+            schedule(mConnectAttempt, DEFAULT_INITIAL_DELAY);
+
+        // TODO make sure (verifyNodeLatency==false && mAutoConnect==true) is a valid/useful combination, else simplify and use only one of those arguments
+    }
+
+    /**
+     * Closes all connections and stops all background tasks. The client cannot be used
+     * anymore after this.
+     */
+    public void stop(){
+        if(mSession != null)
+            mSession.close(NORMAL_CLOSURE_STATUS);
+
+        synchronized (this){
+            for(NodeSession session : mPoolSessions){
+                session.close(NORMAL_CLOSURE_STATUS);
+            }
+            for(NodeSession session : mDrainingSessions){
+                session.close(NORMAL_CLOSURE_STATUS);
+            }
+            if(mMigrationSession != null)
+                mMigrationSession.close(NORMAL_CLOSURE_STATUS);
+            for(NodeSession session : mCandidateSessions){
+                session.close(NORMAL_CLOSURE_STATUS);
+            }
+            mPendingCandidates.clear();
+        }
+
+        if(nodeLatencyVerifier != null)
+            nodeLatencyVerifier.stop();
+
+        mExecutor.shutdownNow();
+        mDecoderPool.shutdown();
+        if(mNodeStatisticsStore != null)
+            mNodeStatisticsStore.save(nodeProvider.getSortedNodes());
+        if(mStoredResponses != null)
+            mStoredResponses.getStore().flush();
+    }
+
+    /**
+     * Actually establishes a connection from this client to one of the full nodes.
+     * <p>
+     * The node chosen by the node provider is raced against the next best ones, up to
+     * {@link #CONNECT_RACE_SIZE} nodes. The connection attempts are started
+     * {@link #CONNECT_STAGGER_DELAY} ms apart, or right away when the previous one fails. The first
+     * session to complete the login and API access handshake becomes the main one and all others
+     * are closed, so on a bad network the connection time is that of the fastest node instead of
+     * the sum of the timeouts of the failing ones.
+     */
+    public void connect(){
+        synchronized (this){
+            if(mClient == null){
+                mClient = new OkHttpClient
+                        .Builder()
+                        .connectTimeout(2, TimeUnit.SECONDS)
+                        .readTimeout(5, TimeUnit.SECONDS)
+                        .writeTimeout(5, TimeUnit.SECONDS)
+                        .build();
+            }
+            if(mSession != null || mMigrationSession != null || !mCandidateSessions.isEmpty()){
+                logger.fine("Already connected or connecting");
+                return;
+            }
+            FullNode bestNode = nodeProvider.getBestNode();
+            if(bestNode != null){
+                mPendingCandidates.clear();
+                mPendingCandidates.add(bestNode);
+                for(FullNode fullNode : nodeProvider.getSortedNodes()){
+                    if(mPendingCandidates.size() >= CONNECT_RACE_SIZE) break;
+                    if(fullNode.equals(bestNode) || isNodeInUse(fullNode) || !fullNode.getCircuitBreaker().isAvailable()) continue;
+                    mPendingCandidates.add(fullNode);
+                }
+                startNextCandidate();
+            }
+            if(mCandidateSessions.isEmpty()){
+                logger.fine("Could not find an available node, reescheduling");
+                // If no node could be found yet, schedule a new attempt in DEFAULT_INITIAL_DELAY ms
+                schedule(mConnectAttempt, DEFAULT_INITIAL_DELAY);
+            }
+        }
+    }
+
+    /**
+     * Starts the connection attempt with the next node of the race, and schedules the one after it.
+     */
+    private synchronized void startNextCandidate(){
+        FullNode fullNode;
+        // A node whose circuit breaker is half-open is only given a single chance
+        do{
+            fullNode = mPendingCandidates.poll();
+        }while(fullNode != null && !fullNode.getCircuitBreaker().allowRequest());
+        if(fullNode == null) return;
+        NodeSession session = new NodeSession(fullNode, mUsername, mPassword, mRequestedApis, mCurrentId, mSessionListener);
+        mCandidateSessions.add(session);
+        session.connect(mClient);
+        if(!mPendingCandidates.isEmpty())
+            schedule(mStartNextCandidate, CONNECT_STAGGER_DELAY);
+    }
+
+    private Runnable mStartNextCandidate = new Runnable() {
+        @Override
+        public void run() {
+            startNextCandidate();
+        }
+    };
+
+    /**
+     * Lets the first session of a connection race to become ready take over as the main one,
+     * and closes all the others.
+     *
+     * @param session   A session that just became ready
+     * @return          True if it was one of the sessions of a connection race
+     */
+    private synchronized boolean completeConnectionRace(NodeSession session){
+        if(!mCandidateSessions.remove(session)) return false;
+        mPendingCandidates.clear();
+        for(NodeSession candidate : mCandidateSessions){
+            candidate.close(NORMAL_CLOSURE_STATUS);
+        }
+        mCandidateSessions.clear();
+        mSession = session;
+        mSelectedNode = session.getNode();
+
+        // The status updates of the session were not broadcasted while it was only a candidate
+        broadcastReadyStatus(session);
+        return true;
+    }
+
+    /**
+     * Broadcasts the status updates a session goes through until it is ready. Used for sessions
+     * that become the main one only after their handshake, since the updates of other sessions
+     * are not broadcasted.
+     *
+     * @param session   A ready session that just became the main one
+     */
+    private void broadcastReadyStatus(NodeSession session){
+        RxBus.getBusInstance().send(new ConnectionStatusUpdate(ConnectionStatusUpdate.CONNECTED, ApiAccess.API_NONE));
+        RxBus.getBusInstance().send(new ConnectionStatusUpdate(ConnectionStatusUpdate.AUTHENTICATED, ApiAccess.API_NONE));
+        int[] apis = {ApiAccess.API_DATABASE, ApiAccess.API_HISTORY, ApiAccess.API_NETWORK_BROADCAST};
+        for(int api : apis){
+            if(session.hasApiId(api))
+                RxBus.getBusInstance().send(new ConnectionStatusUpdate(ConnectionStatusUpdate.API_UPDATE, api));
+        }
+    }
+
+    /**
+     * Runs a task on the scheduler thread after the given delay. Tasks submitted after the
+     * client has been stopped are silently dropped.
+     *
+     * @param task  The task to run
+     * @param delay Time to wait in milliseconds
+     */
+    private void schedule(Runnable task, long delay){
+        try{
+            mExecutor.schedule(task, delay, TimeUnit.MILLISECONDS);
+        }catch(RejectedExecutionException e){
+            logger.fine("Client stopped, dropping scheduled task");
+        }
+    }
+
+    /**
+     * Opens sessions with the best available nodes not yet in use, until the number of
+     * sessions reaches the configured connection pool size.
+     */
+    private synchronized void fillConnectionPool(){
+        if(mSession == null || !mSession.isReady()) return;
+        for(FullNode fullNode : nodeProvider.getSortedNodes()){
+            if(mPoolSessions.size() + 1 >= mConnectionPoolSize) break;
+            if(isNodeInUse(fullNode) || !fullNode.getCircuitBreaker().allowRequest()) continue;
+            NodeSession session = new NodeSession(fullNode, mUsername, mPassword, mRequestedApis, mCurrentId, mSessionListener);
+            mPoolSessions.add(session);
+            session.connect(mClient);
+        }
+    }
+
+    /**
+     * @param fullNode  A full node
+     * @return          True if there is already a session with the given node
+     */
+    private boolean isNodeInUse(FullNode fullNode){
+        if(mSession != null && mSession.getNode().equals(fullNode)) return true;
+        if(mMigrationSession != null && mMigrationSession.getNode().equals(fullNode)) return true;
+        for(NodeSession session : mCandidateSessions){
+            if(session.getNode().equals(fullNode)) return true;
+        }
+        for(NodeSession session : mPoolSessions){
+            if(session.getNode().equals(fullNode)) return true;
+        }
+        for(NodeSession session : mDrainingSessions){
+            if(session.getNode().equals(fullNode)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Chooses the session a request should be sent through. Among all ready sessions that have
+     * access to the required API, the one with the lowest product of pending requests and node
+     * tail latency is chosen.
+     *
+     * @param requiredApi   The API required by the request
+     * @param excluded      A session that should not be chosen, or null
+     * @return              The chosen session, or the main session if no other is suitable
+     */
+    private synchronized NodeSession selectSession(int requiredApi, NodeSession excluded){
+        NodeSession selected = null;
+        double selectedScore = Double.MAX_VALUE;
+        ArrayList<NodeSession> candidates = new ArrayList<>(mPoolSessions);
+        if(mSession != null) candidates.add(0, mSession);
+        for(NodeSession session : candidates){
+            if(!session.isReady() || session == excluded) continue;
+            if(requiredApi != ApiAccess.API_NONE && !session.hasApiId(requiredApi)) continue;
+            double score = (session.getInFlightCount() + 1) * session.getNode().getTailLatencyValue();
+            if(selected == null || score < selectedScore){
+                selected = session;
+                selectedScore = score;
+            }
+        }
+        return selected != null ? selected : mSession;
+    }
+
+    public long sendMessage(String message){
+        NodeSession session = mSession;
+        if(session != null){
+            if(session.send(message)){
+                return mCurrentId.get();
+            }
+        }else{
+            throw new RuntimeException("Websocket connection has not yet been established");
+        }
+        return -1;
+    }
+
+    /**
+     * Method that will send a message to the full node, and takes as an argument one of the
+     * API call wrapper classes. This is the preferred method of sending blockchain API calls.
+     * <p>
+     * Calls whose response is held by the {@link ResponseCache} or the persistent store are not
+     * sent, their local response is broadcasted right away with the returned id instead.
+     *
+     * @param apiCallable   The object that will get serialized into a request
+     * @param requiredApi   The required APIs for this specific request. Should be one of the
+     *                      constants specified in the ApiAccess class.
+     * @return              The id of the message that was just sent, or -1 if no message was sent.
+     */
+    public synchronized long sendMessage(ApiCallable apiCallable, int requiredApi){
+        String cacheKey = mResponseCache.getKey(apiCallable, requiredApi);
+        final JsonRpcResponse<?> response = getLocalResponse(apiCallable, cacheKey);
+        if(response != null){
+            // Broadcasting only once the caller knows the id of the response it is waiting for
+            schedule(new Runnable() {
+                @Override
+                public void run() {
+                    RxBus.getBusInstance().send(response);
+                }
+            }, 0);
+            return response.id;
+        }
+        PendingRequest request = new PendingRequest(apiCallable, requiredApi, null);
+        request.cacheKey = cacheKey;
+        return sendMessage(mSession, request);
+    }
+
+    /**
+     * Method that will send a message to the full node and return a {@link Single} that will
+     * emit only the response to this specific request.
+     * <p>
+     * Contrary to {@link #sendMessage(ApiCallable, int)}, the response is not broadcasted
+     * through the {@link RxBus}, so there is no need to filter all incoming responses by id.
+     * The request is failed with a {@link java.util.concurrent.TimeoutException} if no response
+     * arrives within {@link #DEFAULT_REQUEST_TIMEOUT} milliseconds, or less once the latency
+     * distribution of the node is known: ten times its 99th percentile, but no less than 10 seconds.
+     * <p>
+     * If the connection pool is enabled, the request can be sent through any of the open sessions.
+     * Calls that set up subscriptions should therefore be sent using {@link #sendMessage(ApiCallable, int)},
+     * which always uses the connection to the selected node.
+     * <p>
+     * If the connection is lost before the response arrives, requests that are safe to repeat
+     * are sent again once a new connection is ready, as long as they have not timed out.
+     * <p>
+     * Calls whose response is held by the {@link ResponseCache} or that can be built out of
+     * the objects in the persistent store are answered locally.
+     *
+     * @param apiCallable   The object that will get serialized into a request
+     * @param requiredApi   The required APIs for this specific request. Should be one of the
+     *                      constants specified in the ApiAccess class.
+     * @return              A Single that will emit the de-serialized response.
+     */
+    public Single<JsonRpcResponse<?>> sendRequest(ApiCallable apiCallable, int requiredApi){
+        NodeSession session = selectSession(requiredApi, null);
+        return sendRequest(session, apiCallable, requiredApi, getRequestTimeout(session));
+    }
+
+    /**
+     * Method that will send a message to the full node and return a {@link Single} that will
+     * emit only the response to this specific request.
+     *
+     * @param apiCallable   The object that will get serialized into a request
+     * @param requiredApi   The required APIs for this specific request. Should be one of the
+     *                      constants specified in the ApiAccess class.
+     * @param timeout       Time in milliseconds to wait for the response.
+     * @return              A Single that will emit the de-serialized response.
+     */
+    public Single<JsonRpcResponse<?>> sendRequest(ApiCallable apiCallable, int requiredApi, long timeout){
+        return sendRequest(selectSession(requiredApi, null), apiCallable, requiredApi, timeout);
+    }
+
+    /**
+     * Method that will send a read request to the full node and, if no response arrives within
+     * a threshold derived from the node's observed latency, will send the same request to a second
+     * node. The first response to arrive is emitted and the other request is discarded.
+     * <p>
+     * The request is also sent to the second node right away if the first one fails before the
+     * threshold, and the returned Single only fails once both requests have failed, with the
+     * error of the first one.
+     * <p>
+     * This only has an effect if the connection pool holds more than one session, and only for
+     * requests that are safe to repeat, like 'get_full_accounts', 'get_account_balances' or
+     * 'get_limit_orders'. Otherwise it behaves just like {@link #sendRequest(ApiCallable, int)}.
+     *
+     * @param apiCallable   The object that will get serialized into a request
+     * @param requiredApi   The required APIs for this specific request. Should be one of the
+     *                      constants specified in the ApiAccess class.
+     * @return              A Single that will emit the first de-serialized response.
+     */
+    public Single<JsonRpcResponse<?>> sendHedgedRequest(final ApiCallable apiCallable, final int requiredApi){
+        final NodeSession session = selectSession(requiredApi, null);
+        if(session == null || mPoolSessions.isEmpty() || !RequestJournal.isReplayable(apiCallable)){
+            return sendRequest(session, apiCallable, requiredApi, getRequestTimeout(session));
+        }
+        // Shared by the race and the hedge, and kept running even if the hedge wins, so that a
+        // late response from the first node is still received by its own request
+        final Single<JsonRpcResponse<?>> request = sendRequest(session, apiCallable, requiredApi, getRequestTimeout(session)).cache();
+        Completable requestFailed = request
+                .flatMapCompletable(new Function<JsonRpcResponse<?>, CompletableSource>() {
+                    @Override
+                    public CompletableSource apply(JsonRpcResponse<?> response) {
+                        return Completable.never();
+                    }
+                })
+                .onErrorComplete();
+        Single<JsonRpcResponse<?>> hedgedRequest = Completable
+                .ambArray(Completable.timer(getHedgeDelay(session.getNode()), TimeUnit.MILLISECONDS), requestFailed)
+                .andThen(Single.defer(new Callable<SingleSource<JsonRpcResponse<?>>>() {
+                    @Override
+                    public SingleSource<JsonRpcResponse<?>> call() {
+                        NodeSession otherSession = selectSession(requiredApi, session);
+                        if(otherSession == null || otherSession == session){
+                            // There is no other node to hedge with, so this just mirrors the first request
+                            return request;
+                        }
+                        return sendRequest(otherSession, apiCallable, requiredApi, getRequestTimeout(otherSession));
+                    }
+                }));
+        // The first success wins. Only if both requests fail is the error of the first one emitted.
+        return Single.mergeDelayError(request, hedgedRequest)
+                .firstOrError()
+                .onErrorResumeNext(request);
+    }
+
+    /**
+     * Computes the time to wait for a response from a node before hedging a request.
+     *
+     * @param fullNode  The node the request was sent to
+     * @return          The delay in milliseconds
+     */
+    private long getHedgeDelay(FullNode fullNode){
+        LatencySketch sketch = fullNode.getLatencySketch();
+        if(sketch.getCount() >= MIN_TAIL_SAMPLES){
+            // Only the slowest requests get hedged, so the extra load stays small
+            return Math.max(MIN_HEDGE_DELAY, (long) sketch.getQuantile(HEDGE_QUANTILE));
+        }
+        double latency = fullNode.getLatencyValue();
+        if(latency >= DEFAULT_REQUEST_TIMEOUT){
+            // We have no meaningful latency measurement for this node
+            return DEFAULT_HEDGE_DELAY;
+        }
+        return Math.max(MIN_HEDGE_DELAY, (long) (latency * HEDGE_LATENCY_FACTOR));
+    }
+
+    /**
+     * Computes the time to wait for the response to a request before failing it. Once enough
+     * round trips have been measured, this is a multiple of the 99th percentile of the node's
+     * latency, bounded by {@link #MIN_REQUEST_TIMEOUT} and {@link #DEFAULT_REQUEST_TIMEOUT}.
+     *
+     * @param session   The session the request is sent through, may be null
+     * @return          The timeout in milliseconds
+     */
+    private long getRequestTimeout(NodeSession session){
+        if(session == null) return DEFAULT_REQUEST_TIMEOUT;
+        LatencySketch sketch = session.getNode().getLatencySketch();
+        if(sketch.getCount() < MIN_TAIL_SAMPLES) return DEFAULT_REQUEST_TIMEOUT;
+        long timeout = (long) (sketch.getQuantile(0.99) * TIMEOUT_LATENCY_FACTOR);
+        return Math.min(DEFAULT_REQUEST_TIMEOUT, Math.max(MIN_REQUEST_TIMEOUT, timeout));
+    }
+
+    /**
+     * Private method that will send a request through a specific session and return a
+     * {@link Single} that will emit only the response to it.
+     *
+     * @param session       The session to send the request through
+     * @param apiCallable   The object that will get serialized into a request
+     * @param requiredApi   The required APIs for this specific request.
+     * @param timeout       Time in milliseconds to wait for the response.
+     * @return              A Single that will emit the de-serialized response.
+     */
+    private synchronized Single<JsonRpcResponse<?>> sendRequest(NodeSession session, ApiCallable apiCallable, int requiredApi, long timeout){
+        String cacheKey = mResponseCache.getKey(apiCallable, requiredApi);
+        JsonRpcResponse<?> localResponse = getLocalResponse(apiCallable, cacheKey);
+        if(localResponse != null){
+            return Single.<JsonRpcResponse<?>>just(localResponse);
+        }
+        PendingRequest request = new PendingRequest(apiCallable, requiredApi, SingleSubject.<JsonRpcResponse<?>>create());
+        request.cacheKey = cacheKey;
+        return sendPendingRequest(session, request, timeout);
+    }
+
+    /**
+     * Private method that will send a request through a specific session, without looking
+     * for a local response first, and return a {@link Single} that will emit only its response.
+     *
+     * @param session       The session to send the request through
+     * @param request       The request to send, whose subject will receive the response
+     * @param timeout       Time in milliseconds to wait for the response.
+     * @return              A Single that will emit the de-serialized response.
+     */
+    private synchronized Single<JsonRpcResponse<?>> sendPendingRequest(NodeSession session, final PendingRequest request, long timeout){
+        if(sendMessage(session, request) == -1){
+            return Single.error(new IllegalStateException("Could not send request, either the connection or the required API is not available"));
+        }
+        return request.subject
+                .timeout(timeout, TimeUnit.MILLISECONDS)
+                .doOnError(new Consumer<Throwable>() {
+                    @Override
+                    public void accept(Throwable throwable) {
+                        if(throwable instanceof TimeoutException){
+                            mMetrics.increment(RpcMetrics.COUNTER_TIMEOUTS);
+                            NodeSession session = request.session;
+                            mMetrics.recordFailure(request.method, session != null ? session.getNode().getUrl() : null);
+                            if(session != null){
+                                session.getNode().addCallResult(false);
+                                session.getNode().getCircuitBreaker().onTimeout();
+                            }
+                        }
+                    }
+                })
+                .doFinally(new Action() {
+                    @Override
+                    public void run() {
+                        mRequestJournal.remove(request);
+                        if(mPendingRequests.remove(request.id, request)){
+                            request.session.onRequestFinished();
+                            // Nobody is waiting for the response anymore
+                            mAbandonedIds.add(request.id);
+                        }
+                    }
+                });
+    }
+
+    /**
+     * Looks for the response to a call in the {@link ResponseCache} first, and then in the
+     * persistent store.
+     *
+     * @param apiCallable   The API call wrapper
+     * @param cacheKey      Key of the call in the response cache, may be null.
+     * @return              A response with a fresh id, or null if the call has to be sent.
+     */
+    private JsonRpcResponse<?> getLocalResponse(ApiCallable apiCallable, String cacheKey){
+        JsonRpcResponse<?> cached = mResponseCache.get(cacheKey);
+        if(cached != null){
+            return copyCachedResponse(cached);
+        }
+        if(mStoredResponses == null) return null;
+        String result = mStoredResponses.load(apiCallable);
+        Type responseType = mDeserializationMap.getResponseType(apiCallable.getClass());
+        if(result == null || responseType == null) return null;
+        String text = "{\"id\":" + mCurrentId.incrementAndGet() + ",\"jsonrpc\":\"" + RPC.VERSION + "\",\"result\":" + result + "}";
+        try{
+            JsonRpcResponse<?> response = mDeserializationMap.getGson(apiCallable.getClass()).fromJson(text, responseType);
+            mResponseCache.put(cacheKey, apiCallable, response);
+            return response;
+        }catch(JsonParseException e){
+            logger.warning("Could not de-serialize stored result of " + apiCallable.getClass().getName() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Creates a response to be delivered in place of a cached one, with a fresh id so that it
+     * can be told apart from any other response. The result is shared with the cached response.
+     *
+     * @param cached    The cached response
+     * @return          A new response with the same result
+     */
+    private JsonRpcResponse<?> copyCachedResponse(JsonRpcResponse<?> cached){
+        JsonRpcResponse<Object> response = new JsonRpcResponse<>();
+        response.id = mCurrentId.incrementAndGet();
+        response.result = cached.result;
+        return response;
+    }
+
+    /**
+     * Private method that will serialize and send a request through the given session,
+     * registering it as pending until its response arrives.
+     *
+     * @param session       The session to send the request through
+     * @param request       The request to send
+     * @return              The id of the message that was just sent, or -1 if no message was sent.
+     */
+    private synchronized long sendMessage(NodeSession session, PendingRequest request){
+        if(session == null) return -1;
+        int requiredApi = request.requiredApi;
+        if(requiredApi != -1 && session.hasApiId(requiredApi) || requiredApi == ApiAccess.API_NONE){
+            int apiId = 0;
+            if(requiredApi != ApiAccess.API_NONE)
+                apiId = session.getApiId(requiredApi);
+            long id = mCurrentId.incrementAndGet();
+            ApiCall call = request.apiCallable.toApiCall(apiId, id);
+            String message = call.toJsonString();
+            request.id = id;
+            request.session = session;
+            request.attempts++;
+            request.method = call.methodToCall;
+            request.sentAt = System.nanoTime();
+            // The request must be registered before sending, since the response could
+            // arrive before we get the chance to do it afterwards
+            mPendingRequests.put(id, request);
+            session.onRequestSent();
+            if(session.send(message)){
+                mMetrics.increment(RpcMetrics.COUNTER_REQUESTS_SENT);
+                mMetrics.increment(RpcMetrics.COUNTER_BYTES_SENT, RpcMetrics.utf8Length(message));
+                if(session == mSession)
+                    mSubscriptions.onRequestSent(request.apiCallable, requiredApi);
+                return id;
+            }
+            mPendingRequests.remove(id);
+            session.onRequestFinished();
+        }
+        return -1;
+    }
+
+    /**
+     * Schedules all journaled requests to be sent again, each one after its own backoff delay.
+     */
+    private void replayJournal(){
+        for(final PendingRequest request : mRequestJournal.drain()){
+            schedule(new Runnable() {
+                @Override
+                public void run() {
+                    // Requests that were already answered, or whose caller stopped waiting, are dropped
+                    if(request.subject.hasValue() || request.subject.hasThrowable() || !request.subject.hasObservers()) return;
+                    if(sendMessage(selectSession(request.requiredApi, null), request) == -1){
+                        // No session is ready to take it yet, so we wait for the next one
+                        if(!mRequestJournal.add(request))
+                            request.subject.onError(new NodeDisconnectedException("Could not send request again after losing the connection"));
+                    }
+                }
+            }, mRequestJournal.getRetryDelay(request.attempts));
+        }
+    }
+
+    /**
+     * Method used to inform any external party a clue about the current connectivity status
+     * @return  True if the client is currently connected and logged in, false otherwise.
+     */
+    public boolean isConnected(){
+        NodeSession session = mSession;
+        return session != null && session.isLoggedIn();
+    }
+
+    /**
+     * Used to leave the current node. If any other node is available, the client migrates to it
+     * without interrupting the requests in flight or the subscriptions. Otherwise the current
+     * connection is closed and the client attempts a reconnection.
+     */
+    public void reconnectNode() {
+        NodeSession session = mSession;
+        if(session != null && !migrateFrom(session))
+            session.close(GOING_AWAY_STATUS);
+    }
+
+    /**
+     * Starts migrating the main session to the best available node other than its own.
+     *
+     * @param session   The main session
+     * @return          True if a migration was started or is already in progress
+     */
+    private synchronized boolean migrateFrom(NodeSession session){
+        if(session != mSession || !session.isReady()) return false;
+        if(mMigrationSession != null) return true;
+        for(FullNode fullNode : nodeProvider.getSortedNodes()){
+            if(fullNode.equals(session.getNode()) || !fullNode.getCircuitBreaker().isAvailable()) continue;
+            if(migrate(fullNode)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether the best ranked node is much better than the one of the main session, and
+     * if so starts migrating to it.
+     */
+    private synchronized void checkMigration(){
+        if(!mNodeMigration || mSession == null || !mSession.isReady() || mMigrationSession != null) return;
+        if(System.nanoTime() - mLastMigrationTime < TimeUnit.MILLISECONDS.toNanos(MIN_MIGRATION_INTERVAL)) return;
+        List<FullNode> nodes = nodeProvider.getSortedNodes();
+        if(nodes.isEmpty()) return;
+        FullNode best = nodes.get(0);
+        FullNode current = mSession.getNode();
+        if(best.equals(current) || !best.getCircuitBreaker().isAvailable()) return;
+        if(nodeProvider.getCost(best) < MIGRATION_COST_RATIO * nodeProvider.getCost(current)){
+            logger.info("Migrating from " + current.getUrl() + " to " + best.getUrl());
+            migrate(best);
+        }
+    }
+
+    /**
+     * Starts a make-before-break migration of the main session to the given node. A pool
+     * session with that node takes over right away, otherwise a new session is opened and
+     * takes over once it is ready.
+     *
+     * @param fullNode  The node to migrate to
+     * @return          True if the migration was started
+     */
+    private synchronized boolean migrate(FullNode fullNode){
+        mLastMigrationTime = System.nanoTime();
+        for(NodeSession session : mPoolSessions){
+            if(session.getNode().equals(fullNode) && session.isReady()){
+                mPoolSessions.remove(session);
+                promote(session);
+                return true;
+            }
+        }
+        if(isNodeInUse(fullNode) || !fullNode.getCircuitBreaker().allowRequest()) return false;
+        mMigrationSession = new NodeSession(fullNode, mUsername, mPassword, mRequestedApis, mCurrentId, mSessionListener);
+        mMigrationSession.connect(mClient);
+        return true;
+    }
+
+    /**
+     * Lets the session opened for a migration take over the main one, once it is ready.
+     *
+     * @param session   A session that just became ready
+     * @return          True if it was the session opened for a migration
+     */
+    private synchronized boolean completeMigration(NodeSession session){
+        if(session != mMigrationSession) return false;
+        mMigrationSession = null;
+        promote(session);
+        return true;
+    }
+
+    /**
+     * Turns a ready session into the main one. The subscriptions are set up again on it before
+     * the previous main session is retired, so that no notification is missed in between.
+     * If the previous main session was already lost, the status updates of the new one are
+     * broadcasted, since nobody heard of them yet.
+     *
+     * @param session   The session that replaces the main one
+     */
+    private synchronized void promote(NodeSession session){
+        final NodeSession previous = mSession;
+        mSession = session;
+        mSelectedNode = session.getNode();
+        mMetrics.increment(RpcMetrics.COUNTER_MIGRATIONS);
+        if(previous == null)
+            broadcastReadyStatus(session);
+        resubscribe(session).subscribe(new Action() {
+            @Override
+            public void run() {
+                retire(previous);
+            }
+        });
+        fillConnectionPool();
+    }
+
+    /**
+     * Sends again all the calls that set up the subscriptions of the main session.
+     *
+     * @param session   The session to set up the subscriptions on
+     * @return          A Completable that completes once all calls were answered, or failed
+     */
+    private synchronized Completable resubscribe(NodeSession session){
+        ArrayList<Completable> calls = new ArrayList<>();
+        for(SubscriptionRegistry.Entry entry : mSubscriptions.getEntries()){
+            PendingRequest request = new PendingRequest(entry.apiCallable, entry.requiredApi, SingleSubject.<JsonRpcResponse<?>>create());
+            calls.add(sendPendingRequest(session, request, DEFAULT_REQUEST_TIMEOUT).ignoreElement());
+        }
+        return Completable.merge(calls).onErrorComplete();
+    }
+
+    /**
+     * Stops the notifications of a replaced main session, and closes it once all the requests
+     * still in flight on it have been answered or have timed out.
+     *
+     * @param session   The replaced session, may be null
+     */
+    private synchronized void retire(final NodeSession session){
+        if(session == null || session == mSession || !session.isReady()) return;
+        mDrainingSessions.add(session);
+        if(!mSubscriptions.isEmpty()){
+            // The new main session already receives the same notifications
+            PendingRequest request = new PendingRequest(new CancelAllSubscriptions(), CancelAllSubscriptions.REQUIRED_API, SingleSubject.<JsonRpcResponse<?>>create());
+            sendMessage(session, request);
+        }
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DEFAULT_REQUEST_TIMEOUT);
+        schedule(new Runnable() {
+            @Override
+            public void run() {
+                if(session.getInFlightCount() > 0 && System.nanoTime() - deadline < 0){
+                    schedule(this, DRAIN_CHECK_PERIOD);
+                }else{
+                    logger.fine("Closing replaced session with " + session.getNode().getUrl());
+                    session.close(NORMAL_CLOSURE_STATUS);
+                }
+            }
+        }, DRAIN_CHECK_PERIOD);
+    }
+
+    /**
+     * Runnable that will perform a connection attempt with the best node after DEFAULT_INITIAL_DELAY
+     * milliseconds. This is used only if the node latency verification is activated.
+     *
+     * The reason to delay the initial connection is that we want to ideally connect to the best node,
+     * meaning the one that offers the lowest latency value. But we have to give some time for the
+     * first node latency measurement round to finish in order to have at least a partial result set
+     * that could be used. There is no such wait if the node statistics of a previous run were restored.
+     */
+    private Runnable mConnectAttempt = new Runnable() {
+        @Override
+        public void run() {
+            FullNode fullNode = nodeProvider.getBestNode();
+            if(fullNode != null){
+                logger.info(String.format("Connected with %d latency results", latencyUpdateCounter));
+                connect();
+            }else{
+                schedule(this, DEFAULT_INITIAL_DELAY);
+            }
+        }
+    };
+
+    /**
+     * Task that periodically saves the node statistics, so that they survive the process being
+     * killed without the client being stopped.
+     */
+    private Runnable mSaveNodeStatistics = new Runnable() {
+        @Override
+        public void run() {
+            mNodeStatisticsStore.save(nodeProvider.getSortedNodes());
+        }
+    };
+
+    /**
+     * Observer used to be notified about node latency measurement updates.
+     */
+    private Observer<FullNode> nodeLatencyObserver = new Observer<FullNode>() {
+        @Override
+        public void onSubscribe(Disposable d) { }
+
+        @Override
+        public void onNext(FullNode fullNode) {
+            latencyUpdateCounter++;
+            // Updating the node with the new latency measurement
+            nodeProvider.updateNode(fullNode);
+
+            // Following the best node, if it got much better than the one in use
+            checkMigration();
+        }
+
+        @Override
+        public void onError(Throwable e) {
+            logger.severe("nodeLatencyObserver.onError.Msg: "+e.getMessage());
+        }
+
+        @Override
+        public void onComplete() { }
+    };
+
+    private NodeSession.Listener mSessionListener = new NodeSession.Listener() {
+
+        @Override
+        public void onOpen(NodeSession session) {
+            // Marking the node as connected
+            session.getNode().setConnected(true);
+
+            // Updating the node's 'connected' status on the NodeLatencyVerifier instance
+            if(nodeLatencyVerifier != null)
+                nodeLatencyVerifier.updateActiveNodeInformation(session.getNode());
+
+            // Notifying all listeners about the new connection status
+            if(session == mSession)
+                RxBus.getBusInstance().send(new ConnectionStatusUpdate(ConnectionStatusUpdate.CONNECTED, ApiAccess.API_NONE));
+        }
+
+        @Override
+        public void onStatusUpdate(NodeSession session, ConnectionStatusUpdate update) {
+            // Only the status of the main session is of interest to external parties
+            if(session == mSession)
+                RxBus.getBusInstance().send(update);
+        }
+
+        @Override
+        public void onReady(NodeSession session) {
+            mMetrics.increment(RpcMetrics.COUNTER_CONNECTIONS);
+            session.getNode().addCallResult(true);
+            session.getNode().getCircuitBreaker().onSuccess();
+            if(!completeMigration(session) && (completeConnectionRace(session) || session == mSession))
+                fillConnectionPool();
+
+            // Sending again all requests that were lost with a previous connection
+            replayJournal();
+        }
+
+        @Override
+        public void onMessage(final NodeSession session, final String text) {
+            final long receivedAt = System.nanoTime();
+            mMetrics.increment(RpcMetrics.COUNTER_BYTES_RECEIVED, RpcMetrics.utf8Length(text));
+
+            // Reading only the fields required to route the message, so that its payload
+            // is de-serialized just once, and outside of the socket reader thread
+            final MessageHeader header = MessageHeader.read(text);
+
+            try{
+                if(header.isNotification()){
+                    // Notifications of the same subscription are delivered in the order they arrived
+                    mDecoder.execute(header.subscriptionId, new Runnable() {
+                        @Override
+                        public void run() {
+                            long start = System.nanoTime();
+                            JsonRpcNotification notification = gson.fromJson(text, JsonRpcNotification.class);
+                            mMetrics.recordParseTime(System.nanoTime() - start);
+                            mMetrics.increment(RpcMetrics.COUNTER_NOTIFICATIONS_RECEIVED);
+                            handleJsonRpcNotification(notification);
+                        }
+                    });
+                }else{
+                    // The request is claimed right away, so that it is not journaled if the
+                    // connection is lost while its response is being de-serialized
+                    final PendingRequest request = mPendingRequests.remove(header.id);
+                    if(request != null){
+                        request.session.onRequestFinished();
+                    }else if(mAbandonedIds.remove(header.id)){
+                        logger.fine("Dropping late response to abandoned request " + header.id);
+                        return;
+                    }
+
+                    // Responses broadcasted through the bus keep their order, all others
+                    // are independent from each other
+                    Object key = request != null && request.subject != null ? request : session;
+                    mDecoder.execute(key, new Runnable() {
+                        @Override
+                        public void run() {
+                            handleJsonRpcResponse(request, text, receivedAt);
+                        }
+                    });
+                }
+            }catch(RejectedExecutionException e){
+                logger.fine("Client stopped, dropping incoming message");
+            }
+        }
+
+        /**
+         * Private method that will de-serialize all fields of every kind of JSON-RPC response
+         * and broadcast it to the event bus.
+         *
+         * @param request       The request this message responds to, or null if it is unknown
+         * @param text          Raw text, as received
+         * @param receivedAt    Value of System.nanoTime() when the message was received
+         */
+        private void handleJsonRpcResponse(PendingRequest request, String text, long receivedAt){
+            long start = System.nanoTime();
+            JsonRpcResponse<?> parsedResponse = null;
+            if(request != null){
+                Class<? extends ApiCallable> requestClass = request.getRequestClass();
+                Type responseType = mDeserializationMap.getResponseType(requestClass);
+                if(responseType != null){
+                    parsedResponse = mDeserializationMap.getGson(requestClass).fromJson(text, responseType);
+                }else{
+                    logger.fine("No response type registered for " + requestClass.getName());
+                }
+            }
+
+            // In case the response type is unknown, we fall back to the raw response
+            if(parsedResponse == null){
+                parsedResponse = gson.fromJson(text, JsonRpcResponse.class);
+            }
+            mMetrics.recordParseTime(System.nanoTime() - start);
+            mMetrics.increment(RpcMetrics.COUNTER_RESPONSES_RECEIVED);
+            if(request != null){
+                mMetrics.recordCall(request.method, request.session.getNode().getUrl(),
+                        receivedAt - request.sentAt, parsedResponse.error == null);
+                updateNodeHealth(request, parsedResponse, text.length(), receivedAt);
+                mResponseCache.put(request.cacheKey, request.apiCallable, parsedResponse);
+                if(mStoredResponses != null && parsedResponse.error == null)
+                    mStoredResponses.save(request.apiCallable, text);
+            }
+            if(parsedResponse.error != null && parsedResponse.error.message != null){
+                // We could not make sense of this incoming message, just log a warning
+                logger.warning("Error.Msg: "+parsedResponse.error.message);
+            }
+            if(request != null && request.subject != null){
+                // Delivering the parsed response only to the party that sent the request
+                request.subject.onSuccess(parsedResponse);
+            }else{
+                // Broadcasting the parsed response to all interested listeners
+                RxBus.getBusInstance().send(parsedResponse);
+            }
+        }
+
+        /**
+         * Updates the health statistics of the node that answered a request, which are used to rank it.
+         *
+         * @param request       The request
+         * @param response      Its de-serialized response
+         * @param length        Length of the raw response, which is close to its size in bytes
+         * @param receivedAt    Value of System.nanoTime() when the response was received
+         */
+        private void updateNodeHealth(PendingRequest request, JsonRpcResponse<?> response, int length, long receivedAt){
+            FullNode fullNode = request.session.getNode();
+            fullNode.addCallResult(response.error == null);
+            // An error response only says the call was rejected, so it leaves the breaker alone
+            if(response.error == null)
+                fullNode.getCircuitBreaker().onSuccess();
+            if(response.result instanceof DynamicGlobalProperties)
+                fullNode.setHeadBlockNumber(((DynamicGlobalProperties) response.result).head_block_number);
+            long elapsed = receivedAt - request.sentAt;
+            fullNode.addRoundTripTime(elapsed / (double) TimeUnit.MILLISECONDS.toNanos(1));
+            // The round trip of small responses is dominated by latency, not by throughput
+            if(length >= MIN_THROUGHPUT_SAMPLE_SIZE && elapsed > 0)
+                fullNode.addThroughputValue(length * (double) TimeUnit.SECONDS.toNanos(1) / elapsed);
+        }
+
+        /**
+         * Private method that will just broadcast a de-serialized notification to all interested parties
+         * @param notification  De-serialized notification
+         */
+        private void handleJsonRpcNotification(JsonRpcNotification notification){
+            // Broadcasting the parsed notification to all interested listeners
+            RxBus.getBusInstance().send(notification);
+        }
+
+        @Override
+        public void onDisconnected(NodeSession session, boolean tryReconnection, boolean penalizeNode) {
+            handleSessionDisconnection(session, tryReconnection, penalizeNode);
+        }
+    };
+
+    /**
+     * Method that encapsulates the behavior of handling a disconnection from one of the nodes, and
+     * potentially tries to reconnect to another one.
+     *
+     * @param session               The session that was disconnected.
+     * @param tryReconnection       States if a reconnection to other node should be tried.
+     * @param penalizeNode          Whether or not to report the failure to the node's circuit breaker.
+     */
+    private synchronized void handleSessionDisconnection(NodeSession session, boolean tryReconnection, boolean penalizeNode) {
+        logger.fine("handleSessionDisconnection. try reconnection: " + tryReconnection + ", penalizeNode: " + penalizeNode);
+        mMetrics.increment(RpcMetrics.COUNTER_DISCONNECTIONS);
+
+        // Journaling all requests that were waiting for a response from this node, so that they
+        // can be sent again later. Those that cannot be sent again are failed.
+        for(PendingRequest request : mPendingRequests.values()){
+            if(request.session == session && mPendingRequests.remove(request.id, request)){
+                request.session.onRequestFinished();
+                if(request.subject == null || !mRequestJournal.add(request)){
+                    mMetrics.recordFailure(request.method, session.getNode().getUrl());
+                    session.getNode().addCallResult(false);
+                    if(request.subject != null)
+                        request.subject.onError(new NodeDisconnectedException("Connection lost before receiving a response"));
+                }
+            }
+        }
+
+        FullNode fullNode = session.getNode();
+
+        // Marking the node as not connected
+        fullNode.setConnected(false);
+
+        // Updating the node's 'connected' status on the NodeLatencyVerifier instance
+        if(nodeLatencyVerifier != null)
+            nodeLatencyVerifier.updateActiveNodeInformation(fullNode);
+
+        if (penalizeNode){
+            // Letting the circuit breaker keep us away from this node if it keeps failing
+            fullNode.getCircuitBreaker().onFailure();
+            fullNode.addCallResult(false);
+            nodeProvider.updateNode(fullNode);
+        }
+
+        if(session != mSession){
+            // One of the connection pool sessions was lost, we just try to replace it. Sessions
+            // of a migration, either opened or retired, are not replaced.
+            boolean pooled = mPoolSessions.remove(session);
+            mDrainingSessions.remove(session);
+            if(session == mMigrationSession){
+                mMigrationSession = null;
+                if(mSession == null){
+                    // The main session was lost while this one was about to replace it
+                    mSubscriptions.clear();
+                    if(tryReconnection)
+                        reconnectOrGiveUp();
+                    return;
+                }
+            }
+
+            if(mCandidateSessions.remove(session)){
+                // One of the attempts of a connection race failed, the next one starts right away
+                if(!mPendingCandidates.isEmpty()){
+                    startNextCandidate();
+                }else if(mCandidateSessions.isEmpty() && mSession == null){
+                    RxBus.getBusInstance().send(new ConnectionStatusUpdate(ConnectionStatusUpdate.DISCONNECTED, ApiAccess.API_NONE));
+                    if(tryReconnection)
+                        reconnectOrGiveUp();
+                }
+                return;
+            }
+
+            // Other sessions might be able to take the journaled requests right away
+            replayJournal();
+
+            if(tryReconnection && pooled) {
+                mMetrics.increment(RpcMetrics.COUNTER_RECONNECTIONS);
+                schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        fillConnectionPool();
+                    }
+                }, DEFAULT_RETRY_DELAY);
+            }
+            return;
+        }
+
+        RxBus.getBusInstance().send(new ConnectionStatusUpdate(ConnectionStatusUpdate.DISCONNECTED, ApiAccess.API_NONE));
+
+        // We have currently no selected node
+        mSelectedNode = null;
+        mSession = null;
+
+        if(mMigrationSession != null){
+            // The session that was about to replace the lost one takes over once it is ready,
+            // setting up the subscriptions again
+            return;
+        }
+
+        // The subscriptions were lost with the session, and have to be set up again by their owners
+        mSubscriptions.clear();
+
+        if(tryReconnection) {
+            RxBus.getBusInstance().send(new ConnectionStatusUpdate(ConnectionStatusUpdate.DISCONNECTED, ApiAccess.API_NONE));
+            reconnectOrGiveUp();
+        }
+    }
+
+    /**
+     * Schedules a new connection attempt, unless there are no nodes left to connect to.
+     */
+    private void reconnectOrGiveUp(){
+        // Nodes with an open circuit breaker will eventually be tried again, so we only
+        // give up when there are no nodes at all
+        if (nodeProvider.getSortedNodes().isEmpty()) {
+            logger.severe("Giving up on connections");
+            if(mGiveUpListener != null)
+                mGiveUpListener.onGiveUp();
+        } else {
+            mMetrics.increment(RpcMetrics.COUNTER_RECONNECTIONS);
+            schedule(new Runnable() {
+                @Override
+                public void run() {
+                    connect();
+                }
+            }, DEFAULT_RETRY_DELAY);
+        }
+    }
+
+    /**
+     * Method used to check whether or not the client is connected to a node that
+     * offers a specific API.
+     *
+     * @param whichApi  The API we want to use.
+     * @return          True if the node has got that API enabled, false otherwise
+     */
+    public boolean hasApiId(int whichApi){
+        NodeSession session = mSession;
+        return session != null && session.hasApiId(whichApi);
+    }
+
+    /**
+     * Updates the full node details
+     * @param fullNode  Updated {@link FullNode} instance
+     */
+    public void updateNode(FullNode fullNode){
+        nodeProvider.updateNode(fullNode);
+    }
+
+    /**
+     * Registers the response type of an API call wrapper, so that its responses are
+     * de-serialized into it. This can be used to add support for calls not known to the library.
+     *
+     * @param requestClass  The class of the API call wrapper
+     * @param responseType  The full type of the response, like JsonRpcResponse&lt;List&lt;Asset&gt;&gt;
+     * @param gson          Gson instance with all the type adapters required by the response
+     */
+    public void registerResponseType(Class<? extends ApiCallable> requestClass, Type responseType, Gson gson){
+        mDeserializationMap.register(requestClass, responseType, gson);
+    }
+
+    /**
+     * Returns a list of {@link FullNode} instances
+     * @return  List of full nodes
+     */
+    public List<FullNode> getNodes(){
+        return nodeProvider.getSortedNodes();
+    }
+
+    /**
+     * Returns the currently selected node
+     */
+    public FullNode getSelectedNode() { return mSelectedNode; }
+
+    /**
+     * Returns an observable that will notify its observers about node latency updates.
+     * @return  Observer of {@link FullNode} instances.
+     */
+    public PublishSubject<FullNode> getNodeLatencyObservable(){
+        return fullNodePublishSubject;
+    }
+
+    public NodeLatencyVerifier getNodeLatencyVerifier(){ return nodeLatencyVerifier; }
+
+    /**
+     * Returns the registry holding the latency, throughput and error metrics of this client.
+     * Use {@link RpcMetrics#getSnapshot()} to read them once, or {@link RpcMetrics#observe(long, TimeUnit)}
+     * to receive them periodically.
+     */
+    public RpcMetrics getMetrics(){ return mMetrics; }
+
+    /**
+     * Returns the cache holding the responses to calls whose result never or rarely changes,
+     * which can be used to read its hit rate or to make other calls cacheable.
+     */
+    public ResponseCache getResponseCache(){ return mResponseCache; }
+
+    /**
+     * Looks up the id of an account in the persistent store, which is filled with the responses
+     * to the 'get_account_by_name' call.
+     *
+     * @param name  Account name
+     * @return      The account id, or null if it is not known or there is no persistent store.
+     */
+    public String getStoredAccountId(String name){
+        return mStoredResponses != null ? mStoredResponses.getAccountId(name) : null;
+    }
+
+    /**
+     * Class used to create a {@link NetworkClient} with specific attributes.
+     */
+    public static class Builder {
+        private String username = "";
+        private String password = "";
+        private int requestedApis;
+        private List<String> nodeUrls = new ArrayList<>();
+        private boolean autoConnect = true;
+        private boolean verifyNodeLatency;
+        private double alpha = ExponentialMovingAverage.DEFAULT_ALPHA;
+        private int connectionPoolSize = 1;
+        private int responseCacheSize = ResponseCache.DEFAULT_MAX_ENTRIES;
+        private PersistentObjectStore objectStore;
+        private GiveUpListener giveUpListener;
+        private NodeSelectionStrategy nodeSelectionStrategy = new NodeSelectionStrategy.StrictBest();
+        private NodeStatisticsStore nodeStatisticsStore;
+        private boolean nodeMigration = true;
+
+        /**
+         * Sets the user name, if required to connect to a node.
+         * @param name  User name
+         * @return      The Builder instance
+         */
+        public Builder setUserName(String name){
+            this.username = name;
+            return this;
+        }
+
+        /**
+         * Sets the password, if required to connect to a node.
+         * @param password  Password
+         * @return          The Builder instance
+         */
+        public Builder setPassword(String password){
+            this.password = password;
+            return this;
+        }
+
+        /**
+         * Sets an integer with the requested APIs encoded as binary flags.
+         * @param apis  Integer representing the different APIs we require from the node.
+         * @return      The Builder instance
+         */
+        public Builder setRequestedApis(int apis){
+            this.requestedApis = apis;
+            return this;
+        }
+
+        /**
+         * Sets the list of node URLs the client can connect to.
+         * @param nodeUrls  List of full node URLs.
+         * @return          The Builder instance
+         */
+        public Builder setNodeUrls(List<String> nodeUrls){
+            this.nodeUrls = nodeUrls;
+            return this;
+        }
+
+        /**
+         * Sets the autoconnect flag. This is true by default.
+         * @param autoConnect   True if we want the client to connect automatically, false otherwise.
+         * @return              The Builder instance
+         */
+        public Builder setAutoConnect(boolean autoConnect){
+            this.autoConnect = autoConnect;
+            return this;
+        }
+
+        /**
+         * Sets the node-verification flag. This is false by default.
+         * @param verifyLatency True if we want the client to perform a latency analysis before connecting.
+         * @return              The Builder instance.
+         */
+        public Builder setNodeLatencyVerification(boolean verifyLatency){
+            this.verifyNodeLatency = verifyLatency;
+            return this;
+        }
+
+        /**
+         * Sets the factor used as the alpha constant in the exponential moving average
+         * calculated from the node latency samples.
+         * @param alpha Smoothing factor, between 0 and 1.
+         * @return      The Builder instance.
+         */
+        public Builder setLatencyAverageAlpha(double alpha){
+            this.alpha = alpha;
+            return this;
+        }
+
+        /**
+         * Sets the number of simultaneous connections to keep, each one to a different node.
+         * This is 1 by default.
+         * @param poolSize  Number of connections.
+         * @return          The Builder instance.
+         */
+        public Builder setConnectionPoolSize(int poolSize){
+            this.connectionPoolSize = poolSize;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of responses kept in the {@link ResponseCache}. Defaults to
+         * {@link ResponseCache#DEFAULT_MAX_ENTRIES}.
+         * @param size  Number of responses, or 0 to disable the cache.
+         * @return      The Builder instance.
+         */
+        public Builder setResponseCacheSize(int size){
+            this.responseCacheSize = size;
+            return this;
+        }
+
+        /**
+         * Sets the store used to keep asset definitions, blocks and account ids across restarts.
+         * Calls that can be answered from it are not sent to the node. The store is not closed
+         * by the client.
+         * @param store The store, or null to disable it.
+         * @return      The Builder instance.
+         */
+        public Builder setObjectStore(PersistentObjectStore store){
+            this.objectStore = store;
+            return this;
+        }
+
+        /**
+         * Sets the listener to be notified when the client gives up on connecting to any node.
+         * @param listener  The listener
+         * @return          The Builder instance.
+         */
+        public Builder setGiveUpListener(GiveUpListener listener){
+            this.giveUpListener = listener;
+            return this;
+        }
+
+        /**
+         * Sets the strategy used to choose the node to connect to, among all nodes ranked by their
+         * latency, error rate, head block lag and throughput. Defaults to always choosing the best one.
+         * @param strategy  The node selection strategy
+         * @return          The Builder instance.
+         */
+        public Builder setNodeSelectionStrategy(NodeSelectionStrategy strategy){
+            this.nodeSelectionStrategy = strategy;
+            return this;
+        }
+
+        /**
+         * Sets the store used to keep the node statistics across restarts. When statistics of a
+         * previous run are found, the nodes are ranked according to them before the first connection,
+         * so that with autoConnect the client connects right away to the node that was the best one.
+         * @param store The store, or null to disable it.
+         * @return      The Builder instance.
+         */
+        public Builder setNodeStatisticsStore(NodeStatisticsStore store){
+            this.nodeStatisticsStore = store;
+            return this;
+        }
+
+        /**
+         * Sets the node migration flag. This is true by default. When enabled, the client moves
+         * its main session to any node that the latency verification finds to be much better than
+         * the one in use, without dropping requests in flight or subscriptions.
+         * @param migrate   True if the client should follow the best node, false otherwise.
+         * @return          The Builder instance.
+         */
+        public Builder setNodeMigration(boolean migrate){
+            this.nodeMigration = migrate;
+            return this;
+        }
+
+        public NetworkClient build(){
+            if(nodeUrls == null || nodeUrls.isEmpty()){
+                throw new IllegalArgumentException("At least one node URL must be provided");
+            }
+            if(!autoConnect && !verifyNodeLatency){
+                throw new IllegalArgumentException("verifyNodeLatency cannot be false when autoConnect is false too.");
+            }
+            return new NetworkClient(this);
+        }
+    }
+}
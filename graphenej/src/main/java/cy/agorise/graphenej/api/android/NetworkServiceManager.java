@@ -54,6 +54,7 @@ public class NetworkServiceManager implements Application.ActivityLifecycleCallb
     private List<String> mCustomNodeUrls = new ArrayList<>();
     private boolean mAutoConnect;
     private boolean mVerifyLatency;
+    private int mConnectionPoolSize = 1;
     // Flag used to make sure we only call 'bindService' once.
 //    private boolean mStartingService;
 
@@ -117,6 +118,7 @@ public class NetworkServiceManager implements Application.ActivityLifecycleCallb
         b.putString(NetworkService.KEY_NODE_URLS, customNodes);
         b.putBoolean(NetworkService.KEY_AUTO_CONNECT, mAutoConnect);
         b.putBoolean(NetworkService.KEY_ENABLE_LATENCY_VERIFIER, mVerifyLatency);
+        b.putInt(NetworkService.KEY_CONNECTION_POOL_SIZE, mConnectionPoolSize);
 
         mService.bootstrapService(b);
     }
@@ -207,6 +209,14 @@ public class NetworkServiceManager implements Application.ActivityLifecycleCallb
         this.mVerifyLatency = mVerifyLatency;
     }
 
+    public int getConnectionPoolSize() {
+        return mConnectionPoolSize;
+    }
+
+    public void setConnectionPoolSize(int mConnectionPoolSize) {
+        this.mConnectionPoolSize = mConnectionPoolSize;
+    }
+
     /**
      * Class used to create a {@link NetworkServiceManager} with specific attributes.
      */
@@ -218,6 +228,7 @@ public class NetworkServiceManager implements Application.ActivityLifecycleCallb
         private boolean autoconnect = true;
         private boolean verifyNodeLatency;
         private double alpha = ExponentialMovingAverage.DEFAULT_ALPHA;
+        private int connectionPoolSize = 1;
 
         /**
          * Sets the user name, if required to connect to a node.
@@ -304,6 +315,16 @@ public class NetworkServiceManager implements Application.ActivityLifecycleCallb
             return this;
         }
 
+        /**
+         * Sets the number of simultaneous connections to different nodes. This is 1 by default.
+         * @param poolSize  Number of connections among which requests will be distributed.
+         * @return          The Builder instance.
+         */
+        public Builder setConnectionPoolSize(int poolSize){
+            this.connectionPoolSize = poolSize;
+            return this;
+        }
+
         /**
          * Method used to build a {@link NetworkServiceManager} instance with all of the characteristics
          * passed as parameters.
@@ -319,6 +340,7 @@ public class NetworkServiceManager implements Application.ActivityLifecycleCallb
             manager.setRequestedApis(requestedApis);
             manager.setAutoConnect(autoconnect);
             manager.setVerifyLatency(verifyNodeLatency);
+            manager.setConnectionPoolSize(connectionPoolSize);
             return manager;
         }
     }
@@ -0,0 +1,346 @@
+package cy.agorise.graphenej.api.android;
+
+import com.google.gson.Gson;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import cy.agorise.graphenej.RPC;
+import cy.agorise.graphenej.api.ApiAccess;
+import cy.agorise.graphenej.api.ConnectionStatusUpdate;
+import cy.agorise.graphenej.models.ApiCall;
+import cy.agorise.graphenej.models.JsonRpcResponse;
+import cy.agorise.graphenej.network.FullNode;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+
+/**
+ * Class that encapsulates a single websocket connection to a full node, together with the
+ * login and API access handshake that must be completed before the connection can be used.
+ * <p>
+ * The login and all API access requests are sent at once as soon as the connection is opened,
+ * and their responses are matched to them by id, so the handshake takes a single round trip.
+ * <p>
+ * All messages that are not part of the handshake are passed on to the {@link Listener}.
+ */
+public class NodeSession {
+    private final Logger logger = Logger.getLogger(this.getClass().getName());
+
+    /**
+     * Interface to be implemented by the party interested in the events of a session.
+     */
+    interface Listener {
+
+        /**
+         * Called once the websocket connection has been opened.
+         */
+        void onOpen(NodeSession session);
+
+        /**
+         * Called whenever the session obtains the login or one of the requested API accesses.
+         */
+        void onStatusUpdate(NodeSession session, ConnectionStatusUpdate update);
+
+        /**
+         * Called once the login and all requested API accesses have been obtained.
+         */
+        void onReady(NodeSession session);
+
+        /**
+         * Called for every incoming message that is not part of the handshake.
+         */
+        void onMessage(NodeSession session, String text);
+
+        /**
+         * Called once the connection has been closed or has failed.
+         *
+         * @param tryReconnection   States if a reconnection to other node should be tried.
+         * @param penalizeNode      Whether or not to penalize the node of this session.
+         */
+        void onDisconnected(NodeSession session, boolean tryReconnection, boolean penalizeNode);
+    }
+
+    private final FullNode mNode;
+    private final String mUsername;
+    private final String mPassword;
+    private final int mRequestedApis;
+    private final AtomicLong mIdGenerator;
+    private final Listener mListener;
+
+    private WebSocket mWebSocket;
+
+    private volatile boolean isLoggedIn = false;
+    private volatile boolean isReady = false;
+
+    // Map of the ids of the handshake requests still waiting for a response to the API whose
+    // access they request. The login request is mapped to ApiAccess.API_NONE.
+    private HashMap<Long, Integer> mHandshakeRequests = new HashMap<>();
+
+    // Variable used to keep track of the currently obtained API accesses
+    private ConcurrentHashMap<Integer, Integer> mApiIds = new ConcurrentHashMap<>();
+
+    // Number of requests sent through this session that are still waiting for a response
+    private AtomicInteger mInFlight = new AtomicInteger();
+
+    private Gson gson = new Gson();
+
+    /**
+     * Constructor
+     *
+     * @param node              The full node this session should connect to.
+     * @param username          User name used to log in.
+     * @param password          Password used to log in.
+     * @param requestedApis     The APIs to request access to, as binary flags of ApiAccess constants.
+     * @param idGenerator       Source of request ids, shared by all sessions.
+     * @param listener          The party interested in the events of this session.
+     */
+    NodeSession(FullNode node, String username, String password, int requestedApis, AtomicLong idGenerator, Listener listener){
+        mNode = node;
+        mUsername = username;
+        mPassword = password;
+        mRequestedApis = requestedApis;
+        mIdGenerator = idGenerator;
+        mListener = listener;
+    }
+
+    /**
+     * Opens the websocket connection to the full node.
+     *
+     * @param client    OkHttpClient instance used to create the websocket.
+     */
+    void connect(OkHttpClient client){
+        logger.fine("Trying to connect to: "+ mNode.getUrl());
+        Request request = new Request.Builder().url(mNode.getUrl()).build();
+        mWebSocket = client.newWebSocket(request, mWebSocketListener);
+    }
+
+    /**
+     * Sends a raw message through this session.
+     *
+     * @param message   The message to send
+     * @return          True if the message was enqueued, false otherwise
+     */
+    boolean send(String message){
+        if(mWebSocket != null && mWebSocket.send(message)){
+            logger.finest("-> " + message);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Closes the websocket connection.
+     *
+     * @param code  Status code as defined by RFC 6455 section 7.4.
+     */
+    void close(int code){
+        if(mWebSocket != null)
+            mWebSocket.close(code, null);
+    }
+
+    public FullNode getNode() {
+        return mNode;
+    }
+
+    public boolean isLoggedIn() {
+        return isLoggedIn;
+    }
+
+    /**
+     * @return  True if the login and all requested API accesses have been obtained.
+     */
+    public boolean isReady() {
+        return isReady;
+    }
+
+    /**
+     * Method used to check whether or not this session has access to a specific API.
+     *
+     * @param whichApi  The API we want to use.
+     * @return          True if the node has got that API enabled, false otherwise
+     */
+    public boolean hasApiId(int whichApi){
+        return mApiIds.get(whichApi) != null;
+    }
+
+    /**
+     * @param whichApi  The API we want to use.
+     * @return          The id assigned by the node to that API, or null if it was not obtained
+     */
+    public Integer getApiId(int whichApi){
+        return mApiIds.get(whichApi);
+    }
+
+    /**
+     * @return  The number of requests sent through this session still waiting for a response.
+     */
+    public int getInFlightCount(){
+        return mInFlight.get();
+    }
+
+    void onRequestSent(){
+        mInFlight.incrementAndGet();
+    }
+
+    void onRequestFinished(){
+        mInFlight.decrementAndGet();
+    }
+
+    private WebSocketListener mWebSocketListener = new WebSocketListener() {
+
+        @Override
+        public void onOpen(WebSocket webSocket, Response response) {
+            super.onOpen(webSocket, response);
+            mListener.onOpen(NodeSession.this);
+
+            synchronized (NodeSession.this){
+                // If we're not yet logged in, we should do it now
+                if(!isLoggedIn){
+                    sendHandshakeRequests();
+                }
+            }
+        }
+
+        @Override
+        public void onMessage(WebSocket webSocket, String text) {
+            super.onMessage(webSocket, text);
+            logger.finest("<- "+text);
+            if(!isReady && handleHandshakeResponse(text)){
+                return;
+            }
+            mListener.onMessage(NodeSession.this, text);
+        }
+
+        @Override
+        public void onClosing(WebSocket webSocket, int code, String reason) {
+            super.onClosing(webSocket, code, reason);
+            // Answering a close started by the node, otherwise the connection is only
+            // found to be lost once it times out
+            webSocket.close(code, null);
+        }
+
+        @Override
+        public void onClosed(WebSocket webSocket, int code, String reason) {
+            super.onClosed(webSocket, code, reason);
+            disconnect(code == NetworkClient.GOING_AWAY_STATUS, false);
+        }
+
+        @Override
+        public void onFailure(WebSocket webSocket, Throwable t, Response response) {
+            super.onFailure(webSocket, t, response);
+            logger.severe("onFailure. Exception: "+t.getClass().getName()+", Msg: "+t.getMessage());
+            // Logging error stack trace
+            for(StackTraceElement element : t.getStackTrace()){
+                logger.finest(String.format("%s#%s:%s", element.getClassName(), element.getMethodName(), element.getLineNumber()));
+            }
+
+            // If there is a response, we print it
+            if(response != null){
+                logger.severe("Response: "+response.message());
+            }
+
+            disconnect(true, true);
+        }
+    };
+
+    /**
+     * Sends the login request followed by the requests for all the required API accesses,
+     * without waiting for any of the responses.
+     *
+     * The session will try to obtain API access ids for the following APIs:
+     *
+     * - Database
+     * - History
+     * - Network broadcast
+     */
+    private void sendHandshakeRequests(){
+        ArrayList<Serializable> loginParams = new ArrayList<>();
+        loginParams.add(mUsername);
+        loginParams.add(mPassword);
+        long loginId = mIdGenerator.incrementAndGet();
+        mHandshakeRequests.put(loginId, ApiAccess.API_NONE);
+        ApiCall loginCall = new ApiCall(1, RPC.CALL_LOGIN, loginParams, RPC.VERSION, loginId);
+        send(loginCall.toJsonString());
+
+        requestApiAccess(ApiAccess.API_DATABASE, RPC.CALL_DATABASE);
+        requestApiAccess(ApiAccess.API_HISTORY, RPC.CALL_HISTORY);
+        requestApiAccess(ApiAccess.API_NETWORK_BROADCAST, RPC.CALL_NETWORK_BROADCAST);
+    }
+
+    /**
+     * Sends the request for a specific API access id, in case it was requested.
+     *
+     * @param whichApi  One of the constants specified in the ApiAccess class.
+     * @param method    Name of the login API method that returns the id of that API.
+     */
+    private void requestApiAccess(int whichApi, String method){
+        if((mRequestedApis & whichApi) == whichApi && mApiIds.get(whichApi) == null){
+            long id = mIdGenerator.incrementAndGet();
+            mHandshakeRequests.put(id, whichApi);
+            ApiCall apiCall = new ApiCall(1, method, null, RPC.VERSION, id);
+            send(apiCall.toJsonString());
+        }
+    }
+
+    /**
+     * Handles the responses to the initial handshake with the full node (authentication and
+     * API access checks).
+     *
+     * @param text  Raw text, as received
+     * @return      True if the message was part of the handshake, false otherwise
+     */
+    private synchronized boolean handleHandshakeResponse(String text){
+        // Only the id is read until we know this is one of our handshake responses
+        Integer whichApi = mHandshakeRequests.remove(MessageHeader.read(text).id);
+        if(whichApi == null){
+            return false;
+        }
+        JsonRpcResponse<?> response = gson.fromJson(text, JsonRpcResponse.class);
+        if(response.result == null){
+            // The node denied us this access, we just carry on without it
+            String message = response.error != null ? response.error.message : "";
+            logger.warning("Handshake request for api " + whichApi + " failed. Msg: " + message);
+        }else if(whichApi == ApiAccess.API_NONE){
+            isLoggedIn = true;
+
+            // Broadcasting result
+            mListener.onStatusUpdate(this, new ConnectionStatusUpdate(ConnectionStatusUpdate.AUTHENTICATED, ApiAccess.API_NONE));
+        }else{
+            // Storing the api id
+            mApiIds.put(whichApi, ((Number) response.result).intValue());
+
+            // Broadcasting result
+            mListener.onStatusUpdate(this, new ConnectionStatusUpdate(ConnectionStatusUpdate.API_UPDATE, whichApi));
+        }
+
+        if(isLoggedIn && mHandshakeRequests.isEmpty()){
+            // All calls have been handled at this point
+            isReady = true;
+            mListener.onReady(this);
+        }
+        return true;
+    }
+
+    /**
+     * Marks this session as disconnected and notifies the listener.
+     *
+     * @param tryReconnection       States if a reconnection to other node should be tried.
+     * @param penalizeNode          Whether or not to report the failure to the node's circuit breaker.
+     */
+    private synchronized void disconnect(boolean tryReconnection, boolean penalizeNode){
+        logger.fine("disconnect. url: " + mNode.getUrl() + ", try reconnection: " + tryReconnection + ", penalizeNode: " + penalizeNode);
+        isLoggedIn = false;
+        isReady = false;
+        mApiIds.clear();
+        mHandshakeRequests.clear();
+        mListener.onDisconnected(this, tryReconnection, penalizeNode);
+    }
+}
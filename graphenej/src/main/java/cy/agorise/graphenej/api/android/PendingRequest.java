@@ -0,0 +1,56 @@
+package cy.agorise.graphenej.api.android;
+
+import cy.agorise.graphenej.api.calls.ApiCallable;
+import cy.agorise.graphenej.models.JsonRpcResponse;
+import io.reactivex.subjects.SingleSubject;
+
+/**
+ * Class used to keep track of a request that was sent to a full node and is still waiting
+ * for its response.
+ * <p>
+ * The same instance is kept across all the attempts to send a request, so its id and session
+ * are updated every time it is sent again.
+ */
+class PendingRequest {
+
+    // API call wrapper used to create the request
+    final ApiCallable apiCallable;
+
+    // The API required by the request
+    final int requiredApi;
+
+    // Subject that should receive the response, or null if the response is to be broadcasted
+    // through the event bus
+    final SingleSubject<JsonRpcResponse<?>> subject;
+
+    // Id of the last outgoing request
+    volatile long id;
+
+    // Session through which the request was last sent
+    volatile NodeSession session;
+
+    // Number of times this request has been sent
+    volatile int attempts;
+
+    // Name of the RPC method, known once the request has been sent
+    volatile String method;
+
+    // Value of System.nanoTime() when the request was last sent
+    volatile long sentAt;
+
+    // Key under which the response is to be cached, or null if it is not cacheable
+    String cacheKey;
+
+    PendingRequest(ApiCallable apiCallable, int requiredApi, SingleSubject<JsonRpcResponse<?>> subject){
+        this.apiCallable = apiCallable;
+        this.requiredApi = requiredApi;
+        this.subject = subject;
+    }
+
+    /**
+     * @return  The class of the API call wrapper used to create the request
+     */
+    Class<? extends ApiCallable> getRequestClass(){
+        return apiCallable.getClass();
+    }
+}
@@ -0,0 +1,305 @@
+package cy.agorise.graphenej.api.android;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * On-disk key/value store backed by a memory-mapped file, used to keep chain data that does not
+ * change across application restarts.
+ * <p>
+ * Records are appended to the file and an in-memory index maps every key to its latest record,
+ * so a read is a single copy out of the mapped region, with no system call involved. The index
+ * is rebuilt by scanning the file when the store is opened. The file grows by doubling its size,
+ * and once it reaches its maximum size the oldest records are discarded, keeping only the newest
+ * ones up to half of that size.
+ * <p>
+ * Every record stores the time it was written, so that readers can ignore values older than a
+ * given age. All methods are thread-safe.
+ */
+public class PersistentObjectStore implements Closeable {
+
+    /**
+     * Default maximum size of the backing file, in bytes.
+     */
+    public static final int DEFAULT_MAX_SIZE = 8 * 1024 * 1024;
+
+    /**
+     * Value to be passed as a maximum age to accept values of any age.
+     */
+    public static final long ANY_AGE = Long.MAX_VALUE;
+
+    // Initial size of the backing file, in bytes
+    static final int INITIAL_SIZE = 64 * 1024;
+
+    private static final int MAGIC = 0x47524a53;
+    private static final int VERSION = 1;
+    private static final int FILE_HEADER_SIZE = 8;
+
+    // Key length, value length and timestamp
+    private static final int RECORD_HEADER_SIZE = 16;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final Logger logger = Logger.getLogger(this.getClass().getName());
+
+    private final File mFile;
+    private final int mMaxSize;
+    private RandomAccessFile mRandomAccessFile;
+    private MappedByteBuffer mBuffer;
+
+    // Position of the latest record of every key
+    private final HashMap<String, Integer> mIndex = new HashMap<>();
+
+    // Position where the next record will be written
+    private int mWritePosition;
+
+    public PersistentObjectStore(File file) throws IOException {
+        this(file, DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Opens a store, creating its backing file if it does not exist. A file that was not
+     * created by this class is discarded.
+     *
+     * @param file      The backing file
+     * @param maxSize   Maximum size of the backing file, in bytes
+     * @throws IOException  If the file could not be opened or mapped
+     */
+    public PersistentObjectStore(File file, int maxSize) throws IOException {
+        mFile = file;
+        mMaxSize = Math.max(maxSize, INITIAL_SIZE);
+        open();
+    }
+
+    private void open() throws IOException {
+        mRandomAccessFile = new RandomAccessFile(mFile, "rw");
+        long length = mRandomAccessFile.length();
+        if(length < INITIAL_SIZE || length > mMaxSize){
+            length = INITIAL_SIZE;
+            mRandomAccessFile.setLength(0);
+            mRandomAccessFile.setLength(length);
+        }
+        mBuffer = mRandomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, length);
+        if(mBuffer.getInt(0) != MAGIC || mBuffer.getInt(4) != VERSION){
+            clearBuffer();
+        }
+        loadIndex();
+    }
+
+    /**
+     * Scans all records to rebuild the index. A record is only complete once its key length
+     * has been written, so scanning stops at the first record that was left unfinished.
+     */
+    private void loadIndex(){
+        mIndex.clear();
+        int position = FILE_HEADER_SIZE;
+        int capacity = mBuffer.capacity();
+        while(position + RECORD_HEADER_SIZE <= capacity){
+            int keyLength = mBuffer.getInt(position);
+            int valueLength = mBuffer.getInt(position + 4);
+            if(keyLength <= 0 || valueLength < 0 || (long) position + RECORD_HEADER_SIZE + keyLength + valueLength > capacity)
+                break;
+            mIndex.put(readString(position + RECORD_HEADER_SIZE, keyLength), position);
+            position += RECORD_HEADER_SIZE + keyLength + valueLength;
+        }
+        mWritePosition = position;
+        // Whatever an interrupted write left behind must not be taken for a record later
+        markEnd(position);
+    }
+
+    /**
+     * Reads a value.
+     *
+     * @param key       The key
+     * @param maxAge    Maximum age of the value in milliseconds, or {@link #ANY_AGE}.
+     * @return          The value, or null if there is none or it is older than the given age.
+     */
+    public synchronized String get(String key, long maxAge){
+        Integer position = mIndex.get(key);
+        if(position == null || mBuffer == null) return null;
+        long timestamp = mBuffer.getLong(position + 8);
+        if(maxAge != ANY_AGE && System.currentTimeMillis() - timestamp > maxAge) return null;
+        int keyLength = mBuffer.getInt(position);
+        int valueLength = mBuffer.getInt(position + 4);
+        return readString(position + RECORD_HEADER_SIZE + keyLength, valueLength);
+    }
+
+    /**
+     * Writes a value, replacing any previous one with the same key.
+     *
+     * @param key   The key
+     * @param value The value
+     */
+    public synchronized void put(String key, String value){
+        if(mBuffer == null) return;
+        byte[] keyBytes = key.getBytes(UTF8);
+        byte[] valueBytes = value.getBytes(UTF8);
+        int size = RECORD_HEADER_SIZE + keyBytes.length + valueBytes.length;
+        if(size > mMaxSize / 2){
+            logger.warning("Value of " + key + " is too large to be stored: " + size + " bytes");
+            return;
+        }
+        try{
+            ensureCapacity(size);
+        }catch(IOException e){
+            logger.warning("Could not grow the object store: " + e.getMessage());
+            return;
+        }
+        int position = mWritePosition;
+        markEnd(position + size);
+        ByteBuffer buffer = mBuffer.duplicate();
+        buffer.position(position + 4);
+        buffer.putInt(valueBytes.length);
+        buffer.putLong(System.currentTimeMillis());
+        buffer.put(keyBytes);
+        buffer.put(valueBytes);
+        // Writing the key length last, this is what makes the record visible after a restart
+        mBuffer.putInt(position, keyBytes.length);
+        mIndex.put(key, position);
+        mWritePosition = position + size;
+    }
+
+    /**
+     * @param key   The key
+     * @return      True if the store holds a value for this key, of any age
+     */
+    public synchronized boolean contains(String key){
+        return mIndex.containsKey(key);
+    }
+
+    /**
+     * @return  Number of keys in the store
+     */
+    public synchronized int size(){
+        return mIndex.size();
+    }
+
+    /**
+     * Removes all values.
+     */
+    public synchronized void clear(){
+        if(mBuffer == null) return;
+        clearBuffer();
+        mIndex.clear();
+    }
+
+    /**
+     * Forces all changes to be written to the storage device.
+     */
+    public synchronized void flush(){
+        if(mBuffer != null) mBuffer.force();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if(mBuffer == null) return;
+        mBuffer.force();
+        mBuffer = null;
+        mIndex.clear();
+        mRandomAccessFile.close();
+    }
+
+    private void clearBuffer(){
+        mBuffer.putInt(0, MAGIC);
+        mBuffer.putInt(4, VERSION);
+        mWritePosition = FILE_HEADER_SIZE;
+        markEnd(mWritePosition);
+    }
+
+    /**
+     * Clears the key length at the given position, so that scanning the file stops there even
+     * if the space after it still holds discarded records.
+     */
+    private void markEnd(int position){
+        if(position + 4 <= mBuffer.capacity()) mBuffer.putInt(position, 0);
+    }
+
+    /**
+     * Makes room for a new record, either growing the file or discarding old records.
+     *
+     * @param size  Size of the new record, in bytes
+     */
+    private void ensureCapacity(int size) throws IOException {
+        // Keeping room for an empty record header after the new record, which marks the end of the data
+        long required = (long) mWritePosition + size + RECORD_HEADER_SIZE;
+        if(required <= mBuffer.capacity()) return;
+        if(required > mMaxSize){
+            compact(mMaxSize / 2 - size);
+            required = (long) mWritePosition + size + RECORD_HEADER_SIZE;
+            if(required <= mBuffer.capacity()) return;
+        }
+        long capacity = mBuffer.capacity();
+        while(capacity < required) capacity *= 2;
+        remap((int) Math.min(capacity, mMaxSize));
+    }
+
+    private void remap(int capacity) throws IOException {
+        mBuffer.force();
+        mRandomAccessFile.setLength(capacity);
+        mBuffer = mRandomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    }
+
+    /**
+     * Rewrites the file keeping only the latest record of the most recently written keys.
+     *
+     * @param maxBytes  Maximum number of bytes taken by the records that are kept
+     */
+    private void compact(int maxBytes){
+        ArrayList<Map.Entry<String, Integer>> entries = new ArrayList<>(mIndex.entrySet());
+        // Newest records first
+        Collections.sort(entries, new Comparator<Map.Entry<String, Integer>>() {
+            @Override
+            public int compare(Map.Entry<String, Integer> a, Map.Entry<String, Integer> b) {
+                return b.getValue().compareTo(a.getValue());
+            }
+        });
+        ArrayList<byte[]> kept = new ArrayList<>();
+        ArrayList<String> keptKeys = new ArrayList<>();
+        int total = 0;
+        for(Map.Entry<String, Integer> entry : entries){
+            int position = entry.getValue();
+            int size = RECORD_HEADER_SIZE + mBuffer.getInt(position) + mBuffer.getInt(position + 4);
+            if(total + size > maxBytes) break;
+            byte[] record = new byte[size];
+            ByteBuffer source = mBuffer.duplicate();
+            source.position(position);
+            source.get(record);
+            kept.add(record);
+            keptKeys.add(entry.getKey());
+            total += size;
+        }
+        logger.fine("Compacting object store, keeping " + kept.size() + " of " + entries.size() + " records");
+        clearBuffer();
+        mIndex.clear();
+        // Writing them back oldest first, so that their relative order is preserved
+        for(int i = kept.size() - 1; i >= 0; i--){
+            byte[] record = kept.get(i);
+            ByteBuffer target = mBuffer.duplicate();
+            target.position(mWritePosition);
+            target.put(record);
+            mIndex.put(keptKeys.get(i), mWritePosition);
+            mWritePosition += record.length;
+        }
+        markEnd(mWritePosition);
+    }
+
+    private String readString(int position, int length){
+        byte[] bytes = new byte[length];
+        ByteBuffer buffer = mBuffer.duplicate();
+        buffer.position(position);
+        buffer.get(bytes);
+        return new String(bytes, UTF8);
+    }
+}
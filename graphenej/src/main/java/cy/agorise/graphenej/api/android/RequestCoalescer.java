@@ -0,0 +1,213 @@
+package cy.agorise.graphenej.api.android;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import cy.agorise.graphenej.api.calls.ApiCallable;
+import cy.agorise.graphenej.api.calls.BatchableCall;
+import cy.agorise.graphenej.models.JsonRpcResponse;
+import io.reactivex.Scheduler;
+import io.reactivex.Single;
+import io.reactivex.SingleObserver;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.subjects.SingleSubject;
+
+/**
+ * Class that sits in front of the {@link NetworkClient} and merges compatible requests issued
+ * within a short time window into a single one.
+ * <p>
+ * Only calls implementing the {@link BatchableCall} interface are merged. All calls of the same
+ * class and required API that arrive within the window are sent as a single request with the
+ * union of their object ids, and the resulting list is then split back so that every caller
+ * gets a response containing only the objects it asked for, in the order it asked for them.
+ * All other calls are passed straight to {@link NetworkClient#sendRequest(ApiCallable, int)}.
+ */
+public class RequestCoalescer {
+
+    /**
+     * Default time window in milliseconds during which compatible requests are merged.
+     */
+    public static final long DEFAULT_WINDOW = 10;
+
+    /**
+     * Default maximum number of distinct object ids in a merged request. A batch reaching
+     * this size is sent immediately, without waiting for its window to expire.
+     */
+    public static final int DEFAULT_MAX_BATCH_SIZE = 100;
+
+    private final NetworkClient mNetworkClient;
+    private final long mWindow;
+    private final int mMaxBatchSize;
+    private final Scheduler mScheduler;
+
+    // Batches still accepting new requests, keyed by call class and required API
+    private final HashMap<String, Batch> mOpenBatches = new HashMap<>();
+
+    public RequestCoalescer(NetworkService networkService){
+        this(networkService.getNetworkClient(), DEFAULT_WINDOW, DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    public RequestCoalescer(NetworkClient networkClient){
+        this(networkClient, DEFAULT_WINDOW, DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param networkClient     The NetworkClient instance used to send the merged requests.
+     * @param window            Time window in milliseconds during which requests are merged.
+     * @param maxBatchSize      Maximum number of distinct object ids in a merged request.
+     */
+    public RequestCoalescer(NetworkClient networkClient, long window, int maxBatchSize){
+        mNetworkClient = networkClient;
+        mWindow = window;
+        mMaxBatchSize = maxBatchSize;
+        mScheduler = Schedulers.computation();
+    }
+
+    /**
+     * Sends a request, merging it with other compatible requests issued within the time window.
+     *
+     * @param apiCallable   The object that will get serialized into a request
+     * @param requiredApi   The required APIs for this specific request. Should be one of the
+     *                      constants specified in the ApiAccess class.
+     * @return              A Single that will emit the response to this request only.
+     */
+    public Single<JsonRpcResponse<?>> sendRequest(ApiCallable apiCallable, int requiredApi){
+        if(!(apiCallable instanceof BatchableCall)){
+            return mNetworkClient.sendRequest(apiCallable, requiredApi);
+        }
+        BatchableCall call = (BatchableCall) apiCallable;
+        SingleSubject<JsonRpcResponse<?>> subject = SingleSubject.create();
+        final String key = call.getClass().getName() + ":" + requiredApi;
+        Batch fullBatch = null;
+        synchronized (this){
+            Batch batch = mOpenBatches.get(key);
+            if(batch == null){
+                final Batch newBatch = new Batch(call, requiredApi);
+                mOpenBatches.put(key, newBatch);
+                mScheduler.scheduleDirect(new Runnable() {
+                    @Override
+                    public void run() {
+                        flush(key, newBatch);
+                    }
+                }, mWindow, TimeUnit.MILLISECONDS);
+                batch = newBatch;
+            }
+            batch.add(call.getObjectIds(), subject);
+            if(batch.size() >= mMaxBatchSize){
+                fullBatch = batch;
+            }
+        }
+        if(fullBatch != null){
+            flush(key, fullBatch);
+        }
+        return subject;
+    }
+
+    /**
+     * Closes a batch and sends it, unless it was already sent.
+     *
+     * @param key   Key used to store the batch in the open batches map
+     * @param batch The batch to send
+     */
+    private void flush(String key, Batch batch){
+        synchronized (this){
+            if(mOpenBatches.get(key) != batch){
+                // This batch has already been sent
+                return;
+            }
+            mOpenBatches.remove(key);
+        }
+        batch.send();
+    }
+
+    /**
+     * Extracts from the response to a merged request the entries corresponding to a list of ids.
+     *
+     * @param response  The response to the merged request.
+     * @param ids       The ids requested by one of the callers.
+     * @param indexes   Map of every id in the merged request to its position in the result list.
+     * @return          A response whose result contains only the entries for the given ids.
+     */
+    static JsonRpcResponse<?> splitResponse(JsonRpcResponse<?> response, List<String> ids, Map<String, Integer> indexes){
+        if(!(response.result instanceof List)){
+            // Errors and unexpected payloads are passed on as they are
+            return response;
+        }
+        List<?> mergedResult = (List<?>) response.result;
+        JsonRpcResponse<List<Object>> splitResponse = new JsonRpcResponse<>();
+        splitResponse.id = response.id;
+        splitResponse.error = response.error;
+        splitResponse.result = new ArrayList<>(ids.size());
+        for(String id : ids){
+            Integer index = indexes.get(id);
+            if(index != null && index < mergedResult.size()){
+                splitResponse.result.add(mergedResult.get(index));
+            }else{
+                splitResponse.result.add(null);
+            }
+        }
+        return splitResponse;
+    }
+
+    /**
+     * Class used to hold all requests that are going to be merged together.
+     */
+    private class Batch {
+        private BatchableCall mTemplate;
+        private int mRequiredApi;
+
+        // Map of every distinct id in this batch to its position in the merged request
+        private LinkedHashMap<String, Integer> mIndexes = new LinkedHashMap<>();
+        private ArrayList<List<String>> mCallerIds = new ArrayList<>();
+        private ArrayList<SingleSubject<JsonRpcResponse<?>>> mCallerSubjects = new ArrayList<>();
+
+        Batch(BatchableCall template, int requiredApi){
+            mTemplate = template;
+            mRequiredApi = requiredApi;
+        }
+
+        void add(List<String> ids, SingleSubject<JsonRpcResponse<?>> subject){
+            for(String id : ids){
+                if(!mIndexes.containsKey(id)){
+                    mIndexes.put(id, mIndexes.size());
+                }
+            }
+            mCallerIds.add(ids);
+            mCallerSubjects.add(subject);
+        }
+
+        int size(){
+            return mIndexes.size();
+        }
+
+        void send(){
+            List<String> ids = new ArrayList<>(mIndexes.keySet());
+            mNetworkClient.sendRequest(mTemplate.withObjectIds(ids), mRequiredApi)
+                    .subscribe(new SingleObserver<JsonRpcResponse<?>>() {
+                        @Override
+                        public void onSubscribe(Disposable d) { }
+
+                        @Override
+                        public void onSuccess(JsonRpcResponse<?> response) {
+                            for(int i = 0; i < mCallerSubjects.size(); i++){
+                                mCallerSubjects.get(i).onSuccess(splitResponse(response, mCallerIds.get(i), mIndexes));
+                            }
+                        }
+
+                        @Override
+                        public void onError(Throwable e) {
+                            for(SingleSubject<JsonRpcResponse<?>> subject : mCallerSubjects){
+                                subject.onError(e);
+                            }
+                        }
+                    });
+        }
+    }
+}
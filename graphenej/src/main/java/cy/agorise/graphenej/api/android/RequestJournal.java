@@ -0,0 +1,117 @@
+package cy.agorise.graphenej.api.android;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+import cy.agorise.graphenej.api.calls.ApiCallable;
+import cy.agorise.graphenej.api.calls.BroadcastTransaction;
+import cy.agorise.graphenej.api.calls.CancelAllSubscriptions;
+import cy.agorise.graphenej.api.calls.SetSubscribeCallback;
+
+/**
+ * Bounded journal of requests that were in flight when their connection was lost, and that
+ * should be sent again once a connection is available.
+ * <p>
+ * Only requests that are safe to repeat are accepted, and every request can only be sent a
+ * limited number of times. The delay before each new attempt grows exponentially, with a
+ * random jitter so that all journaled requests do not hit the new node at the same instant.
+ */
+class RequestJournal {
+
+    /**
+     * Default maximum number of requests the journal can hold.
+     */
+    static final int DEFAULT_CAPACITY = 256;
+
+    /**
+     * Default maximum number of times a request can be sent.
+     */
+    static final int DEFAULT_MAX_ATTEMPTS = 3;
+
+    // Delay before the first retry, in milliseconds
+    static final long BASE_RETRY_DELAY = 250;
+
+    // Upper bound of the retry delay, in milliseconds
+    static final long MAX_RETRY_DELAY = 8000;
+
+    private final int mCapacity;
+    private final int mMaxAttempts;
+    private final LinkedList<PendingRequest> mEntries = new LinkedList<>();
+    private final Random mRandom = new Random();
+
+    RequestJournal(){
+        this(DEFAULT_CAPACITY, DEFAULT_MAX_ATTEMPTS);
+    }
+
+    RequestJournal(int capacity, int maxAttempts){
+        mCapacity = capacity;
+        mMaxAttempts = maxAttempts;
+    }
+
+    /**
+     * Adds a request to the journal.
+     *
+     * @param request   The request whose connection was lost
+     * @return          True if the request was journaled, false if it should be failed instead
+     */
+    synchronized boolean add(PendingRequest request){
+        if(request.subject == null || !isReplayable(request.apiCallable))
+            return false;
+        if(request.attempts >= mMaxAttempts || mEntries.size() >= mCapacity)
+            return false;
+        return mEntries.add(request);
+    }
+
+    /**
+     * Removes a request from the journal, in case it is there.
+     *
+     * @param request   The request to remove
+     * @return          True if the request was in the journal
+     */
+    synchronized boolean remove(PendingRequest request){
+        return mEntries.remove(request);
+    }
+
+    /**
+     * Removes and returns all journaled requests, in the order they were added.
+     *
+     * @return  List of journaled requests
+     */
+    synchronized List<PendingRequest> drain(){
+        List<PendingRequest> entries = new ArrayList<>(mEntries);
+        mEntries.clear();
+        return entries;
+    }
+
+    synchronized int size(){
+        return mEntries.size();
+    }
+
+    /**
+     * Computes the delay to wait before sending a request again, using exponential backoff
+     * with a jitter of up to 50% in both directions.
+     *
+     * @param attempts  Number of times the request has already been sent
+     * @return          The delay in milliseconds
+     */
+    long getRetryDelay(int attempts){
+        long delay = BASE_RETRY_DELAY << Math.min(Math.max(attempts - 1, 0), 16);
+        delay = Math.min(delay, MAX_RETRY_DELAY);
+        return (long) (delay * (0.5 + mRandom.nextDouble()));
+    }
+
+    /**
+     * Checks whether a request can be safely sent more than once. All requests are considered
+     * safe, except those that broadcast transactions or change the state of the subscriptions.
+     *
+     * @param apiCallable   The API call wrapper used to create the request
+     * @return              True if the request can be sent again
+     */
+    static boolean isReplayable(ApiCallable apiCallable){
+        return !(apiCallable instanceof BroadcastTransaction
+                || apiCallable instanceof SetSubscribeCallback
+                || apiCallable instanceof CancelAllSubscriptions);
+    }
+}
@@ -0,0 +1,208 @@
+package cy.agorise.graphenej.api.android;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import cy.agorise.graphenej.api.calls.ApiCallable;
+import cy.agorise.graphenej.api.calls.GetAssets;
+import cy.agorise.graphenej.api.calls.GetBlock;
+import cy.agorise.graphenej.api.calls.GetBlockHeader;
+import cy.agorise.graphenej.api.calls.GetTransaction;
+import cy.agorise.graphenej.api.calls.LookupAssetSymbols;
+import cy.agorise.graphenej.models.JsonRpcResponse;
+
+/**
+ * Size-bounded cache of the responses to calls whose result never or rarely changes, like
+ * blocks, past transactions and asset definitions.
+ * <p>
+ * Entries are keyed by method and parameters, expire after a time-to-live that depends on the
+ * call class, and the least recently used one is evicted once the cache is full. Only successful
+ * responses with a non-null result are stored, so that a block that does not exist yet is
+ * requested again the next time.
+ * <p>
+ * Responses taken from the cache are shared by all callers, so their results must be treated
+ * as read-only.
+ */
+public class ResponseCache {
+
+    /**
+     * Default maximum number of responses held by the cache.
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 512;
+
+    /**
+     * Default time-to-live of blocks and transactions. They are immutable once irreversible,
+     * so this only bounds the life of an entry from a block that ends up in a discarded fork.
+     */
+    public static final long DEFAULT_BLOCK_TTL = TimeUnit.HOURS.toMillis(1);
+
+    /**
+     * Default time-to-live of asset definitions, whose options can be updated by their issuer.
+     */
+    public static final long DEFAULT_ASSET_TTL = TimeUnit.MINUTES.toMillis(5);
+
+    private final int mMaxEntries;
+
+    // Time-to-live in milliseconds of every cacheable call class
+    private final HashMap<Class<? extends ApiCallable>, Long> mTimesToLive = new HashMap<>();
+
+    private final LinkedHashMap<String, Entry> mEntries;
+
+    private final AtomicLong mHits = new AtomicLong();
+    private final AtomicLong mMisses = new AtomicLong();
+    private final AtomicLong mEvictions = new AtomicLong();
+
+    public ResponseCache(){
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param maxEntries    Maximum number of responses held by the cache.
+     */
+    public ResponseCache(final int maxEntries){
+        mMaxEntries = maxEntries;
+        mEntries = new LinkedHashMap<String, Entry>(16, 0.75f, true){
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if(size() > mMaxEntries){
+                    mEvictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+        setTimeToLive(GetBlock.class, DEFAULT_BLOCK_TTL);
+        setTimeToLive(GetBlockHeader.class, DEFAULT_BLOCK_TTL);
+        setTimeToLive(GetTransaction.class, DEFAULT_BLOCK_TTL);
+        setTimeToLive(GetAssets.class, DEFAULT_ASSET_TTL);
+        setTimeToLive(LookupAssetSymbols.class, DEFAULT_ASSET_TTL);
+    }
+
+    /**
+     * Makes the responses to a call class cacheable, or changes the time-to-live of its entries.
+     *
+     * @param callClass     The API call wrapper class.
+     * @param ttl           Time-to-live of its entries in milliseconds, or 0 to stop caching it.
+     */
+    public synchronized void setTimeToLive(Class<? extends ApiCallable> callClass, long ttl){
+        if(ttl > 0)
+            mTimesToLive.put(callClass, ttl);
+        else
+            mTimesToLive.remove(callClass);
+    }
+
+    /**
+     * Computes the key under which the response to a call is stored.
+     *
+     * @param apiCallable   The API call wrapper
+     * @param requiredApi   The API required by the call
+     * @return              The key, or null if the call is not cacheable.
+     */
+    public String getKey(ApiCallable apiCallable, int requiredApi){
+        if(mMaxEntries <= 0 || getTimeToLive(apiCallable.getClass()) <= 0) return null;
+        // The API and sequence ids depend on the session, so they are left out of the key
+        return requiredApi + ":" + apiCallable.toApiCall(0, 0).toJsonString();
+    }
+
+    /**
+     * Looks up a cached response.
+     *
+     * @param key   Key obtained with {@link #getKey(ApiCallable, int)}, may be null.
+     * @return      The response, or null if there is no live entry for this key.
+     */
+    public JsonRpcResponse<?> get(String key){
+        if(key == null) return null;
+        synchronized (this){
+            Entry entry = mEntries.get(key);
+            if(entry != null && entry.expiresAt - System.nanoTime() > 0){
+                mHits.incrementAndGet();
+                return entry.response;
+            }
+            if(entry != null) mEntries.remove(key);
+        }
+        mMisses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Stores a response, as long as it is successful and its call is cacheable.
+     *
+     * @param key           Key obtained with {@link #getKey(ApiCallable, int)}, may be null.
+     * @param apiCallable   The API call wrapper that got this response.
+     * @param response      The response
+     */
+    public void put(String key, ApiCallable apiCallable, JsonRpcResponse<?> response){
+        if(key == null || response.error != null || response.result == null) return;
+        synchronized (this){
+            long ttl = getTimeToLive(apiCallable.getClass());
+            if(ttl <= 0) return;
+            mEntries.put(key, new Entry(response, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ttl)));
+        }
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public synchronized void clear(){
+        mEntries.clear();
+    }
+
+    /**
+     * @return  Number of entries currently held, including the expired ones not yet removed.
+     */
+    public synchronized int size(){
+        return mEntries.size();
+    }
+
+    public long getHitCount(){
+        return mHits.get();
+    }
+
+    public long getMissCount(){
+        return mMisses.get();
+    }
+
+    /**
+     * @return  Number of live entries removed to make room for new ones.
+     */
+    public long getEvictionCount(){
+        return mEvictions.get();
+    }
+
+    /**
+     * @return  Ratio of lookups of cacheable calls answered from the cache, between 0 and 1.
+     */
+    public double getHitRate(){
+        long hits = mHits.get();
+        long total = hits + mMisses.get();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    private synchronized long getTimeToLive(Class<?> callClass){
+        Long ttl = mTimesToLive.get(callClass);
+        return ttl != null ? ttl : 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("(size=%d, hits=%d, misses=%d, evictions=%d, hitRate=%.2f)",
+                size(), getHitCount(), getMissCount(), getEvictionCount(), getHitRate());
+    }
+
+    private static class Entry {
+        final JsonRpcResponse<?> response;
+
+        // Value of System.nanoTime() after which this entry is stale
+        final long expiresAt;
+
+        Entry(JsonRpcResponse<?> response, long expiresAt){
+            this.response = response;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
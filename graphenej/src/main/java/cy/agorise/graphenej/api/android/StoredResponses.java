@@ -0,0 +1,128 @@
+package cy.agorise.graphenej.api.android;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import cy.agorise.graphenej.api.calls.ApiCallable;
+import cy.agorise.graphenej.api.calls.GetAccountByName;
+import cy.agorise.graphenej.api.calls.GetAssets;
+import cy.agorise.graphenej.api.calls.GetBlock;
+import cy.agorise.graphenej.api.calls.GetDynamicGlobalProperties;
+import cy.agorise.graphenej.api.calls.LookupAssetSymbols;
+import cy.agorise.graphenej.models.DynamicGlobalProperties;
+
+/**
+ * Class that decides which responses are kept in a {@link PersistentObjectStore}, and how the
+ * stored objects are used to answer calls without contacting a node.
+ * <p>
+ * Asset definitions are stored under their object id and blocks under their number, both as
+ * the raw JSON sent by the node, so they are de-serialized exactly like a network response.
+ * Only irreversible blocks are stored, since the others can still be replaced by a fork. The last
+ * irreversible block number is taken from the responses to 'get_dynamic_global_properties', so
+ * no block is stored before one of those was received. Account names are mapped to their ids,
+ * which never change.
+ */
+class StoredResponses {
+
+    /**
+     * Maximum age of a stored asset definition, since their options can be updated by their issuer.
+     */
+    static final long ASSET_MAX_AGE = TimeUnit.DAYS.toMillis(1);
+
+    private static final String BLOCK_PREFIX = "block/";
+    private static final String ACCOUNT_PREFIX = "account/";
+
+    private static final String KEY_RESULT = "result";
+    private static final String KEY_ID = "id";
+    private static final String KEY_NAME = "name";
+
+    private final PersistentObjectStore mStore;
+
+    private volatile long mLastIrreversibleBlock;
+
+    StoredResponses(PersistentObjectStore store){
+        mStore = store;
+    }
+
+    /**
+     * Builds the result of a call out of stored objects.
+     *
+     * @param apiCallable   The API call wrapper
+     * @return              The raw JSON result, or null if it can not be built from stored objects.
+     */
+    String load(ApiCallable apiCallable){
+        if(apiCallable instanceof GetAssets){
+            List<String> ids = ((GetAssets) apiCallable).getObjectIds();
+            StringBuilder builder = new StringBuilder("[");
+            for(int i = 0; i < ids.size(); i++){
+                String json = mStore.get(ids.get(i), ASSET_MAX_AGE);
+                if(json == null) return null;
+                if(i > 0) builder.append(',');
+                builder.append(json);
+            }
+            return builder.append(']').toString();
+        }else if(apiCallable instanceof GetBlock){
+            // Only irreversible blocks are stored, and those never change
+            return mStore.get(BLOCK_PREFIX + ((GetBlock) apiCallable).getBlockNumber(), PersistentObjectStore.ANY_AGE);
+        }
+        return null;
+    }
+
+    /**
+     * Stores the objects contained in a successful response, if any of them is worth keeping.
+     *
+     * @param apiCallable   The API call wrapper that got this response
+     * @param text          The raw response
+     */
+    void save(ApiCallable apiCallable, String text){
+        if(!(apiCallable instanceof GetAssets || apiCallable instanceof LookupAssetSymbols
+                || apiCallable instanceof GetBlock || apiCallable instanceof GetAccountByName
+                || apiCallable instanceof GetDynamicGlobalProperties)){
+            return;
+        }
+        JsonElement result;
+        try{
+            result = new JsonParser().parse(text).getAsJsonObject().get(KEY_RESULT);
+        }catch(JsonParseException | IllegalStateException e){
+            return;
+        }
+        if(result == null || result.isJsonNull()) return;
+
+        if(apiCallable instanceof GetDynamicGlobalProperties){
+            JsonElement irreversible = result.getAsJsonObject().get(DynamicGlobalProperties.KEY_LAST_IRREVERSIBLE_BLOCK_NUM);
+            if(irreversible != null && !irreversible.isJsonNull())
+                mLastIrreversibleBlock = Math.max(mLastIrreversibleBlock, irreversible.getAsLong());
+        }else if(apiCallable instanceof GetBlock){
+            long blockNumber = ((GetBlock) apiCallable).getBlockNumber();
+            if(blockNumber <= mLastIrreversibleBlock)
+                mStore.put(BLOCK_PREFIX + blockNumber, result.toString());
+        }else if(apiCallable instanceof GetAccountByName){
+            JsonObject account = result.getAsJsonObject();
+            if(account.has(KEY_NAME) && account.has(KEY_ID))
+                mStore.put(ACCOUNT_PREFIX + account.get(KEY_NAME).getAsString(), account.get(KEY_ID).getAsString());
+        }else if(result.isJsonArray()){
+            for(JsonElement element : result.getAsJsonArray()){
+                // Unknown assets come as null entries
+                if(element.isJsonObject() && element.getAsJsonObject().has(KEY_ID))
+                    mStore.put(element.getAsJsonObject().get(KEY_ID).getAsString(), element.toString());
+            }
+        }
+    }
+
+    /**
+     * @param name  Account name
+     * @return      The id of the account, or null if it was never looked up
+     */
+    String getAccountId(String name){
+        return mStore.get(ACCOUNT_PREFIX + name, PersistentObjectStore.ANY_AGE);
+    }
+
+    PersistentObjectStore getStore(){
+        return mStore;
+    }
+}
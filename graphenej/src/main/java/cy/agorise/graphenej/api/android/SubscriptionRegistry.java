@@ -0,0 +1,108 @@
+package cy.agorise.graphenej.api.android;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import cy.agorise.graphenej.api.calls.ApiCallable;
+import cy.agorise.graphenej.api.calls.CancelAllSubscriptions;
+import cy.agorise.graphenej.api.calls.GetFullAccounts;
+import cy.agorise.graphenej.api.calls.SetSubscribeCallback;
+
+/**
+ * Registry of the calls that set up the subscriptions of a session, so that they can be sent
+ * again to set up the same subscriptions on a new session.
+ * <p>
+ * Setting a new subscription callback or cancelling all subscriptions replaces whatever was
+ * registered before, and identical calls are registered just once. Sending all registered
+ * calls again in the same order therefore leaves the registry unchanged.
+ */
+class SubscriptionRegistry {
+
+    /**
+     * Default maximum number of calls the registry can hold.
+     */
+    static final int DEFAULT_CAPACITY = 64;
+
+    private final int mCapacity;
+
+    // Registered calls in the order they were sent, by the JSON of their request
+    private final LinkedHashMap<String, Entry> mEntries = new LinkedHashMap<>();
+
+    SubscriptionRegistry(){
+        this(DEFAULT_CAPACITY);
+    }
+
+    SubscriptionRegistry(int capacity){
+        mCapacity = capacity;
+    }
+
+    /**
+     * Registers a call that was sent, in case it changes the subscriptions.
+     *
+     * @param apiCallable   The API call wrapper used to create the request
+     * @param requiredApi   The API required by the request
+     */
+    synchronized void onRequestSent(ApiCallable apiCallable, int requiredApi){
+        if(apiCallable instanceof CancelAllSubscriptions || apiCallable instanceof SetSubscribeCallback){
+            // Both reset the subscriptions of the session
+            mEntries.clear();
+        }
+        if(!isSubscription(apiCallable)) return;
+        // The API and sequence ids depend on the session, so they are left out of the key
+        String key = requiredApi + ":" + apiCallable.toApiCall(0, 0).toJsonString();
+        mEntries.remove(key);
+        if(mEntries.size() >= mCapacity){
+            // Dropping the oldest call after the subscription callback, which must stay first
+            String oldest = null;
+            for(String entryKey : mEntries.keySet()){
+                if(!(mEntries.get(entryKey).apiCallable instanceof SetSubscribeCallback)){
+                    oldest = entryKey;
+                    break;
+                }
+            }
+            if(oldest == null) return;
+            mEntries.remove(oldest);
+        }
+        mEntries.put(key, new Entry(apiCallable, requiredApi));
+    }
+
+    /**
+     * @return  All registered calls, in the order they were sent
+     */
+    synchronized List<Entry> getEntries(){
+        return new ArrayList<>(mEntries.values());
+    }
+
+    synchronized void clear(){
+        mEntries.clear();
+    }
+
+    synchronized boolean isEmpty(){
+        return mEntries.isEmpty();
+    }
+
+    /**
+     * Checks whether a call sets up subscriptions that should be set up again on a new session.
+     *
+     * @param apiCallable   The API call wrapper used to create the request
+     * @return              True if the call should be registered
+     */
+    static boolean isSubscription(ApiCallable apiCallable){
+        return apiCallable instanceof SetSubscribeCallback
+                || (apiCallable instanceof GetFullAccounts && ((GetFullAccounts) apiCallable).isSubscribe());
+    }
+
+    /**
+     * A registered call.
+     */
+    static class Entry {
+        final ApiCallable apiCallable;
+        final int requiredApi;
+
+        Entry(ApiCallable apiCallable, int requiredApi){
+            this.apiCallable = apiCallable;
+            this.requiredApi = requiredApi;
+        }
+    }
+}
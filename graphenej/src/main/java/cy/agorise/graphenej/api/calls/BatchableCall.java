@@ -0,0 +1,26 @@
+package cy.agorise.graphenej.api.calls;
+
+import java.util.List;
+
+/**
+ * Interface to be implemented by the API call wrappers whose only parameter is a list of object
+ * ids and whose result is a list with exactly one entry per requested id, in the same order.
+ * <p>
+ * Several calls of the same class can be merged into a single request with the union of their
+ * ids, as done by the {@link cy.agorise.graphenej.api.android.RequestCoalescer} class.
+ */
+public interface BatchableCall extends ApiCallable {
+
+    /**
+     * @return  The list of object ids requested by this call
+     */
+    List<String> getObjectIds();
+
+    /**
+     * Creates a new call of the same type as this one, but for a different list of ids.
+     *
+     * @param objectIds The list of object ids to request
+     * @return          A new call instance
+     */
+    BatchableCall withObjectIds(List<String> objectIds);
+}
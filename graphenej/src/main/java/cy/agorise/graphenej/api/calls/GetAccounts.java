@@ -12,7 +12,7 @@ import cy.agorise.graphenej.models.ApiCall;
 /**
  * Wrapper around the "get_accounts" API call.
  */
-public class GetAccounts implements ApiCallable {
+public class GetAccounts implements BatchableCall {
     public static final int REQUIRED_API = ApiAccess.API_NONE;
 
     private List<UserAccount> mUserAccounts;
@@ -36,4 +36,22 @@ public class GetAccounts implements ApiCallable {
         params.add(accountIds);
         return new ApiCall(apiId, RPC.CALL_GET_ACCOUNTS, params, RPC.VERSION, sequenceId);
     }
+
+    @Override
+    public List<String> getObjectIds() {
+        ArrayList<String> accountIds = new ArrayList<>();
+        for(UserAccount userAccount : mUserAccounts){
+            accountIds.add(userAccount.getObjectId());
+        }
+        return accountIds;
+    }
+
+    @Override
+    public BatchableCall withObjectIds(List<String> objectIds) {
+        ArrayList<UserAccount> accountList = new ArrayList<>();
+        for(String id : objectIds){
+            accountList.add(new UserAccount(id));
+        }
+        return new GetAccounts(accountList);
+    }
 }
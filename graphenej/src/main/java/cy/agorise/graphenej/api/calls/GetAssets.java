@@ -9,7 +9,7 @@ import cy.agorise.graphenej.RPC;
 import cy.agorise.graphenej.api.ApiAccess;
 import cy.agorise.graphenej.models.ApiCall;
 
-public class GetAssets implements ApiCallable {
+public class GetAssets implements BatchableCall {
     public static final int REQUIRED_API = ApiAccess.API_NONE;
 
     private List<Asset> assetList = new ArrayList<>();
@@ -51,4 +51,22 @@ public class GetAssets implements ApiCallable {
         params.add(assetIds);
         return new ApiCall(apiId, RPC.CALL_GET_ASSETS, params, RPC.VERSION, sequenceId);
     }
+
+    @Override
+    public List<String> getObjectIds() {
+        ArrayList<String> assetIds = new ArrayList<>();
+        for(Asset asset : assetList){
+            assetIds.add(asset.getObjectId());
+        }
+        return assetIds;
+    }
+
+    @Override
+    public BatchableCall withObjectIds(List<String> objectIds) {
+        ArrayList<Asset> assets = new ArrayList<>();
+        for(String id : objectIds){
+            assets.add(new Asset(id));
+        }
+        return new GetAssets(assets);
+    }
 }
@@ -27,4 +27,8 @@ public class GetBlock implements ApiCallable {
         params.add(blockNum);
         return new ApiCall(apiId, RPC.CALL_GET_BLOCK, params, RPC.VERSION, sequenceId);
     }
+
+    public long getBlockNumber(){
+        return blockNumber;
+    }
 }
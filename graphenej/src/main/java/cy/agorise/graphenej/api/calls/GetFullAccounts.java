@@ -34,6 +34,13 @@ public class GetFullAccounts implements ApiCallable {
         this.mSubscribe = subscribe;
     }
 
+    /**
+     * @return  True if the node is asked to send notifications about changes to these accounts
+     */
+    public boolean isSubscribe() {
+        return mSubscribe;
+    }
+
     @Override
     public ApiCall toApiCall(int apiId, long sequenceId) {
         ArrayList<Serializable> params = new ArrayList<>();
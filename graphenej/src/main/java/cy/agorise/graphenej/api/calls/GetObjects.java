@@ -11,7 +11,7 @@ import cy.agorise.graphenej.models.ApiCall;
 /**
  * Wrapper around the "get_objects" API call.
  */
-public class GetObjects implements ApiCallable {
+public class GetObjects implements BatchableCall {
     public static final int REQUIRED_API = ApiAccess.API_DATABASE;
     private List<String> ids;
 
@@ -26,4 +26,14 @@ public class GetObjects implements ApiCallable {
         params.add(subParams);
         return new ApiCall(apiId, RPC.CALL_GET_OBJECTS, params, RPC.VERSION, sequenceId);
     }
+
+    @Override
+    public List<String> getObjectIds() {
+        return ids;
+    }
+
+    @Override
+    public BatchableCall withObjectIds(List<String> objectIds) {
+        return new GetObjects(objectIds);
+    }
 }
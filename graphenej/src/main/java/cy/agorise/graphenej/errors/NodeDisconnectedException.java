@@ -0,0 +1,13 @@
+package cy.agorise.graphenej.errors;
+
+/**
+ * Delivered to the callers of {@link cy.agorise.graphenej.api.android.NetworkClient#sendRequest}
+ * whenever the connection to the full node is lost before their response arrives.
+ */
+public class NodeDisconnectedException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    public NodeDisconnectedException(String message){
+        super(message);
+    }
+}
@@ -0,0 +1,14 @@
+package cy.agorise.graphenej.interfaces;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Interface implemented by all entities able to write their JSON representation directly
+ * into a stream, without building an intermediate tree of JsonElement instances.
+ */
+public interface JsonStreamable {
+
+    void writeJson(JsonWriter writer) throws IOException;
+}
@@ -1,24 +1,29 @@
 package cy.agorise.graphenej.models;
 
-import com.google.gson.GsonBuilder;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonSerializationContext;
 import com.google.gson.JsonSerializer;
+import com.google.gson.stream.JsonWriter;
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.logging.Logger;
 
+import cy.agorise.graphenej.JsonStreamSerializer;
 import cy.agorise.graphenej.interfaces.JsonSerializable;
+import cy.agorise.graphenej.interfaces.JsonStreamable;
 
 /**
  * Class used to build a Graphene websocket API call.
  * @see <a href="http://docs.bitshares.org/api/websocket.html">Websocket Calls & Notifications</a>
  */
-public class ApiCall implements JsonSerializable {
+public class ApiCall implements JsonSerializable, JsonStreamable {
+    private static final Logger logger = Logger.getLogger(ApiCall.class.getName());
 
     public static final String KEY_SEQUENCE_ID = "id";
     public static final String KEY_METHOD = "method";
@@ -52,9 +57,29 @@ public class ApiCall implements JsonSerializable {
 
     @Override
     public String toJsonString() {
-        GsonBuilder gsonBuilder = new GsonBuilder();
-        gsonBuilder.registerTypeAdapter(ApiCall.class, new ApiCallSerializer());
-        return gsonBuilder.create().toJson(this);
+        return JsonStreamSerializer.toJsonString(this);
+    }
+
+    @Override
+    public void writeJson(JsonWriter writer) throws IOException {
+        writer.beginObject();
+        writer.name(KEY_SEQUENCE_ID).value(this.sequenceId);
+        writer.name(KEY_METHOD).value(this.method);
+        writer.name(KEY_PARAMS).beginArray();
+        writer.value(this.apiId);
+        writer.value(this.methodToCall);
+        writer.beginArray();
+        if(this.params != null){
+            for(Serializable param : this.params){
+                if(!JsonStreamSerializer.writeValue(writer, param)){
+                    logger.warning("Skipping parameter of type: " + param.getClass());
+                }
+            }
+        }
+        writer.endArray();
+        writer.endArray();
+        writer.name(KEY_JSON_RPC).value(this.jsonrpc);
+        writer.endObject();
     }
 
     @Override
@@ -97,7 +122,7 @@ public class ApiCall implements JsonSerializable {
                 }else if(this.params.get(i) instanceof Boolean){
                     methodParams.add((boolean) this.params.get(i));
                 }else{
-                    System.out.println("Skipping parameter of type: "+this.params.get(i).getClass());
+                    logger.warning("Skipping parameter of type: " + this.params.get(i).getClass());
                 }
             }
         }
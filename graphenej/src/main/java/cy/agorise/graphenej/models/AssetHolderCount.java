@@ -2,6 +2,7 @@ package cy.agorise.graphenej.models;
 
 import com.google.gson.*;
 import cy.agorise.graphenej.Asset;
+import cy.agorise.graphenej.AssetRegistry;
 
 import java.lang.reflect.Type;
 
@@ -21,7 +22,7 @@ public class AssetHolderCount {
         public AssetHolderCount deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) throws JsonParseException {
             JsonObject jsonObject = json.getAsJsonObject();
             AssetHolderCount holdersCount = new AssetHolderCount();
-            holdersCount.asset = new Asset(jsonObject.get(KEY_ASSET_ID).getAsString());
+            holdersCount.asset = AssetRegistry.getInstance().intern(jsonObject.get(KEY_ASSET_ID).getAsString());
             holdersCount.count = jsonObject.get(KEY_COUNT).getAsLong();
             return holdersCount;
         }
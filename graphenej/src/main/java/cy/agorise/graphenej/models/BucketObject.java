@@ -2,6 +2,7 @@ package cy.agorise.graphenej.models;
 
 import com.google.gson.*;
 import cy.agorise.graphenej.Asset;
+import cy.agorise.graphenej.AssetRegistry;
 
 import java.lang.reflect.Type;
 import java.math.BigDecimal;
@@ -68,8 +69,8 @@ public class BucketObject {
             bucket.key = new Key();
             String baseId = jsonBucket.get(KEY_KEY).getAsJsonObject().get(KEY_BASE).getAsString();
             String quoteId = jsonBucket.get(KEY_KEY).getAsJsonObject().get(KEY_QUOTE).getAsString();
-            bucket.key.base = new Asset(baseId);
-            bucket.key.quote = new Asset(quoteId);
+            bucket.key.base = AssetRegistry.getInstance().intern(baseId);
+            bucket.key.quote = AssetRegistry.getInstance().intern(quoteId);
             bucket.key.seconds = jsonBucket.get(KEY_KEY).getAsJsonObject().get(KEY_SECONDS).getAsLong();
 
             SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss");
@@ -13,6 +13,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import cy.agorise.graphenej.GrapheneObject;
+import cy.agorise.graphenej.ObjectId;
 import cy.agorise.graphenej.ObjectType;
 import cy.agorise.graphenej.OperationType;
 import cy.agorise.graphenej.Transaction;
@@ -64,24 +65,26 @@ public class JsonRpcNotification {
             JsonArray subArray = paramsArray.get(1).getAsJsonArray().get(0).getAsJsonArray();
             for(JsonElement object : subArray){
                 if(object.isJsonObject()){
-                    GrapheneObject grapheneObject = new GrapheneObject(object.getAsJsonObject().get(GrapheneObject.KEY_ID).getAsString());
+                    String objectId = object.getAsJsonObject().get(GrapheneObject.KEY_ID).getAsString();
+                    // Resolving the type from the packed id, without creating any intermediate object
+                    ObjectType objectType = ObjectType.fromPackedId(ObjectId.parse(objectId));
 
                     JsonObject jsonObject = object.getAsJsonObject();
-                    if(grapheneObject.getObjectType() == ObjectType.ACCOUNT_BALANCE_OBJECT){
-                        AccountBalanceUpdate balanceObject = new AccountBalanceUpdate(grapheneObject.getObjectId());
+                    if(objectType == ObjectType.ACCOUNT_BALANCE_OBJECT){
+                        AccountBalanceUpdate balanceObject = new AccountBalanceUpdate(objectId);
                         balanceObject.owner = jsonObject.get(AccountBalanceUpdate.KEY_OWNER).getAsString();
                         balanceObject.asset_type = jsonObject.get(AccountBalanceUpdate.KEY_ASSET_TYPE).getAsString();
                         balanceObject.balance = jsonObject.get(AccountBalanceUpdate.KEY_BALANCE).getAsLong();
                         secondArgument.add(balanceObject);
-                    }else if(grapheneObject.getObjectType() == ObjectType.DYNAMIC_GLOBAL_PROPERTY_OBJECT){
+                    }else if(objectType == ObjectType.DYNAMIC_GLOBAL_PROPERTY_OBJECT){
                         DynamicGlobalProperties dynamicGlobalProperties = context.deserialize(object, DynamicGlobalProperties.class);
                         secondArgument.add(dynamicGlobalProperties);
-                    }else if(grapheneObject.getObjectType() == ObjectType.TRANSACTION_OBJECT){
-                        BroadcastedTransaction broadcastedTransaction = new BroadcastedTransaction(grapheneObject.getObjectId());
+                    }else if(objectType == ObjectType.TRANSACTION_OBJECT){
+                        BroadcastedTransaction broadcastedTransaction = new BroadcastedTransaction(objectId);
                         broadcastedTransaction.setTransaction((Transaction) context.deserialize(jsonObject.get(BroadcastedTransaction.KEY_TRX), Transaction.class));
                         broadcastedTransaction.setTransactionId(jsonObject.get(BroadcastedTransaction.KEY_TRX_ID).getAsString());
                         secondArgument.add(broadcastedTransaction);
-                    }else if(grapheneObject.getObjectType() == ObjectType.OPERATION_HISTORY_OBJECT){
+                    }else if(objectType == ObjectType.OPERATION_HISTORY_OBJECT){
                         if(jsonObject.get(OperationHistory.KEY_OP).getAsJsonArray().get(0).getAsLong() == OperationType.TRANSFER_OPERATION.ordinal()){
                             OperationHistory operationHistory = context.deserialize(jsonObject, OperationHistory.class);
                             secondArgument.add(operationHistory);
@@ -0,0 +1,226 @@
+package cy.agorise.graphenej.network;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Circuit breaker that keeps a failing node from being used until it has had time to recover.
+ * <p>
+ * While the breaker is <b>closed</b> the node can be used freely, and every failure adds to a
+ * failure score that decays over time, halving every {@link #DEFAULT_FAILURE_HALF_LIFE} ms. Once
+ * the score reaches a threshold the breaker <b>opens</b>, and the node is not used for a while.
+ * After that interval the breaker becomes <b>half-open</b> and lets a single attempt through:
+ * if it succeeds the breaker closes again, otherwise it opens for twice as long as the previous
+ * time, up to a maximum.
+ * <p>
+ * This replaces the very high latency values that used to be fed to the latency average of
+ * failing nodes, which kept them penalized long after they recovered, and avoids retrying a
+ * flapping node at a fixed pace. All methods are thread-safe.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    /**
+     * Default failure score at which the breaker opens.
+     */
+    public static final double DEFAULT_FAILURE_THRESHOLD = 3;
+
+    /**
+     * Weight of a timed out call in the failure score, where a transport failure weighs 1. A call
+     * might time out only because it is a heavy one, so it takes a few more of them to open the breaker.
+     */
+    public static final double TIMEOUT_WEIGHT = 0.5;
+
+    /**
+     * Default time it takes for the failure score to halve, in milliseconds.
+     */
+    public static final long DEFAULT_FAILURE_HALF_LIFE = TimeUnit.SECONDS.toMillis(30);
+
+    /**
+     * Default time the breaker stays open after it first opens, in milliseconds.
+     */
+    public static final long DEFAULT_MIN_OPEN_INTERVAL = TimeUnit.SECONDS.toMillis(2);
+
+    /**
+     * Default maximum time the breaker stays open, in milliseconds.
+     */
+    public static final long DEFAULT_MAX_OPEN_INTERVAL = TimeUnit.MINUTES.toMillis(5);
+
+    // Time after which an unreported half-open attempt is considered failed, in milliseconds
+    private static final long PROBE_TIMEOUT = TimeUnit.SECONDS.toMillis(30);
+
+    private final double mFailureThreshold;
+    private final long mFailureHalfLife;
+    private final long mMinOpenInterval;
+    private final long mMaxOpenInterval;
+
+    private State mState = State.CLOSED;
+    private double mFailureScore;
+
+    // Time of the last update of the failure score
+    private long mLastFailureTime;
+
+    // Interval the breaker is or will be open for the next time, in milliseconds
+    private long mOpenInterval;
+
+    // Time at which an open breaker becomes half-open
+    private long mOpenUntil;
+
+    // Whether the single attempt allowed while half-open has been handed out, and when
+    private boolean mProbeInFlight;
+    private long mProbeStartTime;
+
+    public CircuitBreaker(){
+        this(DEFAULT_FAILURE_THRESHOLD, DEFAULT_FAILURE_HALF_LIFE, DEFAULT_MIN_OPEN_INTERVAL, DEFAULT_MAX_OPEN_INTERVAL);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param failureThreshold  Failure score at which the breaker opens
+     * @param failureHalfLife   Time it takes for the failure score to halve, in milliseconds
+     * @param minOpenInterval   Time the breaker stays open after it first opens, in milliseconds
+     * @param maxOpenInterval   Maximum time the breaker stays open, in milliseconds
+     */
+    public CircuitBreaker(double failureThreshold, long failureHalfLife, long minOpenInterval, long maxOpenInterval){
+        mFailureThreshold = failureThreshold;
+        mFailureHalfLife = failureHalfLife;
+        mMinOpenInterval = minOpenInterval;
+        mMaxOpenInterval = Math.max(minOpenInterval, maxOpenInterval);
+        mOpenInterval = mMinOpenInterval;
+    }
+
+    /**
+     * Asks for permission to use the node. An open breaker whose interval has elapsed becomes
+     * half-open and grants a single attempt, whose outcome must then be reported with
+     * {@link #onSuccess()}, {@link #onFailure()} or {@link #onTimeout()}.
+     *
+     * @return  True if the node can be used
+     */
+    public synchronized boolean allowRequest(){
+        updateState();
+        if(mState == State.CLOSED) return true;
+        if(mState == State.HALF_OPEN && !mProbeInFlight){
+            mProbeInFlight = true;
+            mProbeStartTime = now();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Tells whether the node could be used right now, without claiming the half-open attempt.
+     * This is what node providers use to rank the nodes.
+     *
+     * @return  True if {@link #allowRequest()} would currently grant permission
+     */
+    public synchronized boolean isAvailable(){
+        updateState();
+        return mState == State.CLOSED || (mState == State.HALF_OPEN && !mProbeInFlight);
+    }
+
+    /**
+     * Reports a successful use of the node, which closes a half-open breaker.
+     */
+    public synchronized void onSuccess(){
+        if(mState == State.HALF_OPEN || mState == State.OPEN){
+            mState = State.CLOSED;
+            mFailureScore = 0;
+            mOpenInterval = mMinOpenInterval;
+            mProbeInFlight = false;
+        }
+    }
+
+    /**
+     * Reports a failed use of the node, like a lost or refused connection. A closed breaker opens
+     * once its failure score reaches the threshold, and a half-open one opens right away for twice
+     * as long as the last time.
+     */
+    public synchronized void onFailure(){
+        addFailure(1);
+    }
+
+    /**
+     * Reports a call that was not answered in time. It counts as a failure of
+     * {@link #TIMEOUT_WEIGHT}.
+     */
+    public synchronized void onTimeout(){
+        addFailure(TIMEOUT_WEIGHT);
+    }
+
+    private void addFailure(double weight){
+        updateState();
+        long now = now();
+        if(mState == State.HALF_OPEN){
+            mOpenInterval = Math.min(mOpenInterval * 2, mMaxOpenInterval);
+            open(now);
+        }else if(mState == State.CLOSED){
+            mFailureScore = getDecayedScore(now) + weight;
+            mLastFailureTime = now;
+            if(mFailureScore >= mFailureThreshold) open(now);
+        }
+    }
+
+    /**
+     * @return  The current state of the breaker
+     */
+    public synchronized State getState(){
+        updateState();
+        return mState;
+    }
+
+    /**
+     * @return  The current failure score, decayed to this moment
+     */
+    public synchronized double getFailureScore(){
+        return getDecayedScore(now());
+    }
+
+    /**
+     * @return  Time left until an open breaker becomes half-open in milliseconds, or 0 if it is not open.
+     */
+    public synchronized long getRemainingOpenTime(){
+        updateState();
+        return mState == State.OPEN ? Math.max(0, mOpenUntil - now()) : 0;
+    }
+
+    private void open(long now){
+        mState = State.OPEN;
+        mOpenUntil = now + mOpenInterval;
+        mProbeInFlight = false;
+    }
+
+    private void updateState(){
+        long now = now();
+        if(mState == State.HALF_OPEN && mProbeInFlight && now - mProbeStartTime >= PROBE_TIMEOUT){
+            // The outcome of the attempt was never reported
+            mOpenInterval = Math.min(mOpenInterval * 2, mMaxOpenInterval);
+            open(now);
+        }
+        if(mState == State.OPEN && now >= mOpenUntil){
+            mState = State.HALF_OPEN;
+            mProbeInFlight = false;
+        }
+    }
+
+    private double getDecayedScore(long now){
+        if(mFailureScore == 0) return 0;
+        return mFailureScore * Math.pow(0.5, (double) (now - mLastFailureTime) / mFailureHalfLife);
+    }
+
+    /**
+     * @return  Current time in milliseconds, from a monotonic clock
+     */
+    long now(){
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("(state=%s, failureScore=%.2f, openInterval=%d)", getState(), getFailureScore(), mOpenInterval);
+    }
+}
@@ -1,14 +1,40 @@
 package cy.agorise.graphenej.network;
 
 import cy.agorise.graphenej.stats.ExponentialMovingAverage;
+import cy.agorise.graphenej.stats.LatencySketch;
 
 /**
  * Class that represents a full node and is used to keep track of its round-trip time measured in milliseconds.
+ * <p>
+ * Besides the latency average, it keeps a {@link LatencySketch} of the recent latency distribution,
+ * fed by both the latency probes and the actual RPC round trips, and tracks the node's health: the last head block number it reported,
+ * the ratio of calls that failed and the rate at which it delivered the payload of its responses.
+ * These are combined into a single cost by {@link NodeScorer}. Nodes that keep failing are kept
+ * out of use for a while by their {@link CircuitBreaker}.
  */
 public class FullNode implements Comparable {
 
+    /**
+     * Quantile of the latency distribution that is used as the tail latency of a node.
+     */
+    public static final double TAIL_QUANTILE = 0.95;
+
+    // Number of measurements required before the latency distribution is trusted
+    private static final int MIN_SKETCH_SAMPLES = 5;
+
+    // Smoothing factor of the error rate, which is updated much more often than the latency
+    private static final double ERROR_RATE_ALPHA = 0.1;
+
     private String mUrl;
     private ExponentialMovingAverage mLatency;
+    private LatencySketch mLatencySketch = new LatencySketch();
+    private final CircuitBreaker mCircuitBreaker = new CircuitBreaker();
+    private ExponentialMovingAverage mErrorRate = new ExponentialMovingAverage(ERROR_RATE_ALPHA);
+    private ExponentialMovingAverage mThroughput = new ExponentialMovingAverage(ExponentialMovingAverage.DEFAULT_ALPHA);
+    private long mHeadBlockNumber;
+    private int mFailureCount;
+    private long mLastSuccessTime;
+    private volatile long mLastMeasurementTime;
     private boolean isConnected;
     private boolean isRemoved;
 
@@ -92,6 +118,142 @@ public class FullNode implements Comparable {
      */
     public void addLatencyValue(double latency) {
         this.mLatency.updateValue(latency);
+        mLatencySketch.record(latency);
+        mLastMeasurementTime = System.currentTimeMillis();
+    }
+
+    /**
+     * Adds the round trip time of an actual RPC call to the latency distribution, without
+     * affecting the latency average, which is left to the latency probes.
+     * @param millis    Round trip time in milliseconds
+     */
+    public void addRoundTripTime(double millis) {
+        mLatencySketch.record(millis);
+        mLastMeasurementTime = System.currentTimeMillis();
+    }
+
+    /**
+     * @return  The sketch of the recent latency distribution of this node.
+     */
+    public LatencySketch getLatencySketch() {
+        return mLatencySketch;
+    }
+
+    /**
+     * Returns the latency that should be used to rank this node and to derive hedging delays and
+     * timeouts from. Once there are enough measurements this is the {@link #TAIL_QUANTILE} of the
+     * latency distribution, but never less than the latency average.
+     *
+     * @return  The tail latency in milliseconds. If no measurement has been taken yet, 2<sup>63</sup>-1
+     * will be returned.
+     */
+    public double getTailLatencyValue() {
+        if(mLatencySketch.getCount() < MIN_SKETCH_SAMPLES)
+            return getLatencyValue();
+        double tail = mLatencySketch.getQuantile(TAIL_QUANTILE);
+        return mLatency.getAverage() == 0 ? tail : Math.max(tail, mLatency.getAverage());
+    }
+
+    /**
+     * @return  The last head block number reported by this node, or 0 if it is not known yet.
+     */
+    public synchronized long getHeadBlockNumber() {
+        return mHeadBlockNumber;
+    }
+
+    /**
+     * Updates the head block number reported by this node, as found in its dynamic global properties.
+     * @param headBlockNumber   The head block number
+     */
+    public synchronized void setHeadBlockNumber(long headBlockNumber) {
+        mHeadBlockNumber = headBlockNumber;
+    }
+
+    /**
+     * Method that updates the error rate average with the outcome of a call. Successful calls also
+     * update the last success time and reset the count of consecutive failures.
+     * @param success   Whether the call got a successful response
+     */
+    public synchronized void addCallResult(boolean success) {
+        mErrorRate.updateValue(success ? 0 : 1);
+        mLastMeasurementTime = System.currentTimeMillis();
+        if(success){
+            mFailureCount = 0;
+            mLastSuccessTime = System.currentTimeMillis();
+        }else{
+            mFailureCount++;
+        }
+    }
+
+    /**
+     * @return  Number of calls, probes included, that failed since the last successful one.
+     */
+    public synchronized int getFailureCount() {
+        return mFailureCount;
+    }
+
+    /**
+     * @return  Time of the last successful call in milliseconds since the epoch, or 0 if there was none.
+     */
+    public synchronized long getLastSuccessTime() {
+        return mLastSuccessTime;
+    }
+
+    /**
+     * @return  Time of the last measurement of this node, either taken in this run or restored
+     * with its statistics, or 0 if it was never measured.
+     */
+    public long getLastMeasurementTime() {
+        return mLastMeasurementTime;
+    }
+
+    /**
+     * Restores the statistics of a previous run, so that this node can be ranked before any new
+     * measurement is taken. It should only be called before any measurement is added.
+     *
+     * @param latency           Latency average, or 0 if it was not known
+     * @param errorRate         Error rate average
+     * @param failureCount      Number of consecutive failures
+     * @param lastSuccessTime   Time of the last successful call
+     * @param measuredAt        Time of the last measurement these statistics are based on
+     */
+    public synchronized void restoreStatistics(double latency, double errorRate, int failureCount, long lastSuccessTime, long measuredAt) {
+        if(latency > 0) mLatency.updateValue(latency);
+        mErrorRate.updateValue(errorRate);
+        mFailureCount = failureCount;
+        mLastSuccessTime = lastSuccessTime;
+        mLastMeasurementTime = measuredAt;
+    }
+
+    /**
+     * @return  The smoothed ratio of failed calls, between 0 and 1.
+     */
+    public synchronized double getErrorRate() {
+        return mErrorRate.getAverage();
+    }
+
+    /**
+     * Method that updates the throughput average with a new sample.
+     * @param bytesPerSecond    Rate at which the payload of a response was delivered
+     */
+    public synchronized void addThroughputValue(double bytesPerSecond) {
+        mThroughput.updateValue(bytesPerSecond);
+    }
+
+    /**
+     * @return  The smoothed throughput in bytes per second, or 0 if it is not known yet.
+     */
+    public synchronized double getThroughput() {
+        return mThroughput.getAverage();
+    }
+
+    /**
+     * @return  The circuit breaker that tells whether this node can be used. Its state changes
+     * over time, so it is not part of the natural ordering of the nodes, and node providers have
+     * to check it when selecting a node.
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return mCircuitBreaker;
     }
 
     @Override
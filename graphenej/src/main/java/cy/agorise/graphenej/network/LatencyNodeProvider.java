@@ -2,6 +2,7 @@ package cy.agorise.graphenej.network;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.PriorityBlockingQueue;
 
@@ -13,9 +14,17 @@ public class LatencyNodeProvider implements NodeProvider {
         mFullNodeHeap = new PriorityBlockingQueue<>();
     }
 
+    /**
+     * Returns the node with the lowest latency among those whose circuit breaker is not open.
+     *
+     * @return  The best node, or null if there are no nodes or all of them are out of use
+     */
     @Override
     public FullNode getBestNode() {
-        return mFullNodeHeap.peek();
+        List<FullNode> nodes = getSortedNodes();
+        if(!nodes.isEmpty() && nodes.get(0).getCircuitBreaker().isAvailable())
+            return nodes.get(0);
+        return null;
     }
 
     @Override
@@ -60,6 +69,19 @@ public class LatencyNodeProvider implements NodeProvider {
             }
         }
         Collections.sort(nodeList);
+
+        // Nodes whose circuit breaker is open come last. The availability is checked once per
+        // node, since it can change at any time and must not take part in the heap ordering.
+        ArrayList<FullNode> unavailable = new ArrayList<>();
+        Iterator<FullNode> iterator = nodeList.iterator();
+        while(iterator.hasNext()){
+            FullNode fullNode = iterator.next();
+            if(!fullNode.getCircuitBreaker().isAvailable()){
+                iterator.remove();
+                unavailable.add(fullNode);
+            }
+        }
+        nodeList.addAll(unavailable);
         return nodeList;
     }
 }
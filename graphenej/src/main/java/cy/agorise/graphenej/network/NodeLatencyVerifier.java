@@ -1,15 +1,23 @@
 package cy.agorise.graphenej.network;
 
-import android.os.Handler;
-import android.os.Looper;
-import android.util.Log;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
 
-import cy.agorise.graphenej.api.android.NetworkService;
+import cy.agorise.graphenej.api.android.NetworkClient;
+import cy.agorise.graphenej.api.calls.GetDynamicGlobalProperties;
+import cy.agorise.graphenej.models.DynamicGlobalProperties;
 import io.reactivex.subjects.PublishSubject;
-import okhttp3.HttpUrl;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
@@ -17,33 +25,62 @@ import okhttp3.WebSocket;
 import okhttp3.WebSocketListener;
 
 /**
- * Class that encapsulates the node latency verification task
+ * Class that encapsulates the node latency verification task.
+ * <p>
+ * Every node is probed over its own long-lived websocket connection, by timing a cheap
+ * 'get_dynamic_global_properties' call. This measures the RPC round trip time the application
+ * will actually experience, instead of the cost of the TCP, TLS and websocket handshakes, which
+ * are only paid again if the probe connection is lost.
+ * <p>
+ * The probe interval of every node adapts to its behavior: it doubles, up to a maximum, every
+ * time a measurement is close to the node's current average, and goes back to the minimum as
+ * soon as the latency changes noticeably. Unreachable nodes are retried with the same
+ * exponential back-off, so that neither stable nor dead nodes cost much battery or bandwidth.
+ * Failed probes are reported to the node's {@link CircuitBreaker}, and while it is open the node
+ * is not probed at all, until the breaker lets a single probe through to check its recovery.
+ * <p>
+ * The head block number found in every probe response is recorded as well, so that nodes
+ * that fall behind the others can be told apart.
  */
 public class NodeLatencyVerifier {
-    private final String TAG = this.getClass().getName();
+    private final Logger logger = Logger.getLogger(this.getClass().getName());
 
     private static final int DEFAULT_LATENCY_VERIFICATION_PERIOD = 5 * 1000;
 
+    private static final int DEFAULT_MAX_VERIFICATION_PERIOD = 60 * 1000;
+
+    // Time given to a node to open the probe connection and answer a probe, in milliseconds
+    private static final int DEFAULT_PROBE_TIMEOUT = 10 * 1000;
+
+    // Maximum relative deviation from the average for a measurement to be considered stable
+    private static final double STABILITY_TOLERANCE = 0.25;
+
+    private static final String KEY_ID = "id";
+    private static final String KEY_RESULT = "result";
+    private static final String KEY_ERROR = "error";
+
     // Variable used to store the list of nodes that should be verified
     private List<FullNode> mNodeList;
 
-    // Variable used to store the desired verification period
+    // Variables used to store the minimum and maximum verification periods
     private long verificationPeriod;
+    private long maxVerificationPeriod;
 
     // Subject used to publish the result to interested parties
     private PublishSubject<FullNode> subject = PublishSubject.create();
 
-    private HashMap<HttpUrl, FullNode> nodeURLMap = new HashMap<>();
-
-    // Map used to store the first timestamp required for a RTT (Round Trip Time) measurement.
-    // If:
-    //      RTT = t2 - t1
-    // This map will hold the value of t1 for each one of the nodes to be measured.
-    private HashMap<FullNode, Long> timestamps = new HashMap<>();
-
-    private HashMap<String, Request> requestMap = new HashMap<>();
+    // Probe of every node being verified
+    private HashMap<FullNode, Probe> mProbes = new HashMap<>();
 
-    private Handler mHandler = new Handler(Looper.getMainLooper());
+    // Scheduler used to run the probes
+    private ScheduledExecutorService mExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "graphenej-latency-verifier");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
 
     private OkHttpClient client;
 
@@ -52,8 +89,20 @@ public class NodeLatencyVerifier {
     }
 
     public NodeLatencyVerifier(List<FullNode> nodes, long period){
+        this(nodes, period, Math.max(period, DEFAULT_MAX_VERIFICATION_PERIOD));
+    }
+
+    /**
+     * Constructor
+     *
+     * @param nodes     Nodes to be verified
+     * @param period    Minimum interval between two probes of the same node, in milliseconds
+     * @param maxPeriod Interval the probes of a stable or unreachable node back off to, in milliseconds
+     */
+    public NodeLatencyVerifier(List<FullNode> nodes, long period, long maxPeriod){
         mNodeList = nodes;
         verificationPeriod = period;
+        maxVerificationPeriod = Math.max(period, maxPeriod);
     }
 
     /**
@@ -64,119 +113,44 @@ public class NodeLatencyVerifier {
      * </p>
      * @return  A {@link PublishSubject} class instance.
      */
-    public PublishSubject start(){
-        mHandler.post(mVerificationTask);
+    public synchronized PublishSubject<FullNode> start(){
+        // We want to reuse the same OkHttpClient instance for all probe connections
+        if(client == null) client = new OkHttpClient();
+        for(FullNode fullNode : mNodeList){
+            if(!mProbes.containsKey(fullNode)){
+                Probe probe = new Probe(fullNode);
+                mProbes.put(fullNode, probe);
+                probe.schedule(0);
+            }
+        }
         return subject;
     }
 
     /**
-     * Method used to cancel the verification task.
+     * Method used to cancel the verification task, closing all probe connections.
      */
-    public void stop(){
-        mHandler.removeCallbacks(mVerificationTask);
-    }
-
-    /**
-     * Node latency verification task.
-     */
-    private final Runnable mVerificationTask = new Runnable() {
-        @Override
-        public void run() {
-            for(FullNode fullNode : mNodeList){
-                long before = System.currentTimeMillis();
-                timestamps.put(fullNode, before);
-
-                // We want to reuse the same OkHttpClient instance if possible
-                if(client == null) client = new OkHttpClient();
-
-                // Same thing with the Request instance, we want to reuse them. But since
-                // we might have one request per node, we keep them in a map.
-                Request request;
-                if(requestMap.containsKey(fullNode.getUrl())){
-                    request = requestMap.get(fullNode.getUrl());
-                }else{
-                    // If the map had no entry for the request we want, we create one
-                    // and add it to the map.
-                    request = new Request.Builder().url(fullNode.getUrl()).build();
-                    requestMap.put(fullNode.getUrl(), request);
-                }
-
-                String normalURL = fullNode.getUrl().replace("wss://", "https://");
-                HttpUrl key = HttpUrl.parse(normalURL);
-                if(!nodeURLMap.containsKey(key)){
-                    nodeURLMap.put(key, fullNode);
-                }
-                client.newWebSocket(request, mWebSocketListener);
-            }
-            mHandler.postDelayed(this, verificationPeriod);
+    public synchronized void stop(){
+        for(Probe probe : mProbes.values()){
+            probe.cancel();
         }
-    };
+        mProbes.clear();
+    }
 
     /**
-     * Listener that will be called upon a server response.
+     * @param fullNode  One of the nodes being verified
+     * @return          The current interval between two probes of this node in milliseconds,
+     *                  or -1 if the node is not being verified.
      */
-    private WebSocketListener mWebSocketListener = new WebSocketListener() {
-        @Override
-        public void onOpen(WebSocket webSocket, Response response) {
-            super.onOpen(webSocket, response);
-            handleResponse(webSocket, response);
-        }
-
-        @Override
-        public void onFailure(WebSocket webSocket, Throwable t, Response response) {
-            super.onFailure(webSocket, t, response);
-            handleResponse(webSocket, response);
-        }
-
-        /**
-         * Method used to handle the node's first response. The idea here is to obtain
-         * the RTT (Round Trip Time) measurement and publish it using the PublishSubject.
-         *
-         * @param webSocket WebSocket instance
-         * @param response  Response instance
-         */
-        private void handleResponse(WebSocket webSocket, Response response){
-            synchronized (this){
-                // Obtaining the HttpUrl instance that was previously used as a key
-                HttpUrl url = webSocket.request().url();
-                if(nodeURLMap.containsKey(url)){
-                    FullNode fullNode = nodeURLMap.get(url);
-                    long delay;
-
-                    if(response == null) {
-                        // There is no internet connection, or the node is unreachable. We are just
-                        // putting an artificial delay.
-                        delay = Long.MAX_VALUE;
-                    } else {
-                        long after = System.currentTimeMillis();
-                        long before = timestamps.get(fullNode);
-                        delay = after - before;
-                    }
-                    if(fullNode != null){
-                        fullNode.addLatencyValue(delay);
-                        subject.onNext(fullNode);
-                    }else{
-                        Log.w(TAG,"Could not extract FullNode instance from the map");
-                    }
-                }else{
-                    // We cannot properly handle a response to a request whose
-                    // URL was not registered at the nodeURLMap. This is because without this,
-                    // we cannot know to which node this response corresponds. This should not happen.
-                    Log.e(TAG,"nodeURLMap does not contain url: "+url);
-                    for(HttpUrl key : nodeURLMap.keySet()){
-                        Log.e(TAG,"> "+key);
-                    }
-                }
-                webSocket.close(NetworkService.NORMAL_CLOSURE_STATUS, null);
-            }
-        }
-    };
+    public synchronized long getProbeInterval(FullNode fullNode){
+        Probe probe = mProbes.get(fullNode);
+        return probe != null ? probe.interval : -1;
+    }
 
     /**
      * Updates the 'isConnected' attribute of a specific node.
      * @param fullNode  The node we want to update.
      */
-    public void updateActiveNodeInformation(FullNode fullNode){
+    public synchronized void updateActiveNodeInformation(FullNode fullNode){
         for(FullNode node : mNodeList){
             if(node.equals(fullNode)){
                 node.setConnected(fullNode.isConnected());
@@ -188,14 +162,13 @@ public class NodeLatencyVerifier {
      * Removes the given node from the nodes list
      * @param fullNode The node to remove
      */
-    public void removeNode(FullNode fullNode){
+    public synchronized void removeNode(FullNode fullNode){
         for(FullNode node : mNodeList){
             if(node.equals(fullNode)){
                 mNodeList.remove(node);
 
-                String normalURL = node.getUrl().replace("wss://", "https://");
-                HttpUrl key = HttpUrl.parse(normalURL);
-                nodeURLMap.remove(key);
+                Probe probe = mProbes.remove(node);
+                if(probe != null) probe.cancel();
 
                 node.setRemoved(true);
                 subject.onNext(node);
@@ -207,4 +180,163 @@ public class NodeLatencyVerifier {
     public List<FullNode> getNodeList(){
         return mNodeList;
     }
+
+    /**
+     * Probe of a single node, which owns its connection and schedules its own measurements.
+     * All its state is guarded by the lock of the enclosing verifier.
+     */
+    private class Probe extends WebSocketListener implements Runnable {
+        private final FullNode fullNode;
+        private final Request request;
+
+        private WebSocket socket;
+        private boolean open;
+        private boolean cancelled;
+
+        // Whether the probe is waiting for the connection to open or for a response
+        private boolean awaiting;
+
+        // Id of the last probe call and time it was sent, as given by System.nanoTime()
+        private long sequenceId;
+        private long sentAt;
+
+        private long interval = verificationPeriod;
+        private ScheduledFuture<?> future;
+
+        Probe(FullNode fullNode){
+            this.fullNode = fullNode;
+            this.request = new Request.Builder().url(fullNode.getUrl()).build();
+        }
+
+        @Override
+        public void run() {
+            synchronized (NodeLatencyVerifier.this){
+                if(cancelled) return;
+                if(awaiting){
+                    onProbeFailed("No response after " + DEFAULT_PROBE_TIMEOUT + " ms");
+                    return;
+                }
+                CircuitBreaker breaker = fullNode.getCircuitBreaker();
+                if(!breaker.allowRequest()){
+                    schedule(Math.max(breaker.getRemainingOpenTime(), verificationPeriod));
+                    return;
+                }
+                awaiting = true;
+                if(socket == null){
+                    open = false;
+                    socket = client.newWebSocket(request, this);
+                }else if(open){
+                    sendProbe();
+                }
+                schedule(DEFAULT_PROBE_TIMEOUT);
+            }
+        }
+
+        private void sendProbe(){
+            sequenceId++;
+            sentAt = System.nanoTime();
+            socket.send(new GetDynamicGlobalProperties().toApiCall(0, sequenceId).toJsonString());
+        }
+
+        @Override
+        public void onOpen(WebSocket webSocket, Response response) {
+            synchronized (NodeLatencyVerifier.this){
+                if(webSocket != socket || cancelled) return;
+                open = true;
+                if(awaiting) sendProbe();
+            }
+        }
+
+        @Override
+        public void onMessage(WebSocket webSocket, String text) {
+            synchronized (NodeLatencyVerifier.this){
+                if(webSocket != socket || cancelled || !awaiting) return;
+                long after = System.nanoTime();
+                JsonObject response;
+                try{
+                    response = new JsonParser().parse(text).getAsJsonObject();
+                }catch(RuntimeException e){
+                    logger.warning("Unexpected message from " + fullNode.getUrl() + ": " + text);
+                    return;
+                }
+                JsonElement id = response.get(KEY_ID);
+                if(id == null || id.isJsonNull() || id.getAsLong() != sequenceId) return;
+                JsonElement error = response.get(KEY_ERROR);
+                if(error != null && !error.isJsonNull()){
+                    onProbeFailed("Error response: " + error);
+                    return;
+                }
+                JsonElement result = response.get(KEY_RESULT);
+                if(result != null && result.isJsonObject()){
+                    JsonElement headBlockNumber = result.getAsJsonObject().get(DynamicGlobalProperties.KEY_HEAD_BLOCK_NUMBER);
+                    if(headBlockNumber != null && !headBlockNumber.isJsonNull())
+                        fullNode.setHeadBlockNumber(headBlockNumber.getAsLong());
+                }
+                onProbeCompleted(TimeUnit.NANOSECONDS.toMicros(after - sentAt) / 1000.0);
+            }
+        }
+
+        @Override
+        public void onClosed(WebSocket webSocket, int code, String reason) {
+            synchronized (NodeLatencyVerifier.this){
+                if(webSocket != socket || cancelled) return;
+                onProbeFailed("Connection closed: " + code);
+            }
+        }
+
+        @Override
+        public void onFailure(WebSocket webSocket, Throwable t, Response response) {
+            synchronized (NodeLatencyVerifier.this){
+                if(webSocket != socket || cancelled) return;
+                onProbeFailed(t.getMessage());
+            }
+        }
+
+        private void onProbeCompleted(double latency){
+            awaiting = false;
+            fullNode.addCallResult(true);
+            fullNode.getCircuitBreaker().onSuccess();
+            double average = fullNode.getLatencyValue();
+            boolean stable = average != Long.MAX_VALUE
+                    && Math.abs(latency - average) <= STABILITY_TOLERANCE * average;
+            interval = stable ? Math.min(interval * 2, maxVerificationPeriod) : verificationPeriod;
+            fullNode.addLatencyValue(latency);
+            subject.onNext(fullNode);
+            schedule(interval);
+        }
+
+        private void onProbeFailed(String reason){
+            logger.fine("Probe of " + fullNode.getUrl() + " failed: " + reason);
+            awaiting = false;
+            fullNode.addCallResult(false);
+            if(socket != null){
+                socket.cancel();
+                socket = null;
+            }
+            // There is no internet connection, or the node is unreachable
+            fullNode.getCircuitBreaker().onFailure();
+            subject.onNext(fullNode);
+            // Retrying later, backing off if the node keeps failing
+            interval = Math.min(interval * 2, maxVerificationPeriod);
+            schedule(interval);
+        }
+
+        private void schedule(long delay){
+            if(future != null) future.cancel(false);
+            try{
+                future = mExecutor.schedule(this, delay, TimeUnit.MILLISECONDS);
+            }catch(RejectedExecutionException e){
+                logger.warning("Could not schedule the probe of " + fullNode.getUrl());
+            }
+        }
+
+        private void cancel(){
+            cancelled = true;
+            if(future != null) future.cancel(false);
+            if(socket != null){
+                socket.close(NetworkClient.NORMAL_CLOSURE_STATUS, null);
+                socket = null;
+            }
+        }
+    }
 }
@@ -0,0 +1,75 @@
+package cy.agorise.graphenej.network;
+
+/**
+ * Class that combines the different health indicators of a {@link FullNode} into a single cost,
+ * expressed in milliseconds of latency, where a lower cost means a better node.
+ * <p>
+ * The cost starts from the node's tail latency, as given by {@link FullNode#getTailLatencyValue()},
+ * so that a node with erratic response times ranks below a steady one with the same average. This
+ * latency is then inflated by the node's error rate, increased by a fixed amount for every block
+ * the node is behind the most advanced node, and finally discounted if the node is known to deliver
+ * large responses quickly. This way a fast node that is stuck or failing loses against a slightly
+ * slower but healthy one.
+ */
+public class NodeScorer {
+
+    /**
+     * Default factor applied to the error rate. With it, a node failing one out of every four
+     * calls costs twice its latency.
+     */
+    public static final double DEFAULT_ERROR_WEIGHT = 4.0;
+
+    /**
+     * Default cost of every block a node is behind, in milliseconds. Blocks are produced every
+     * few seconds, and a node that is behind serves stale data.
+     */
+    public static final double DEFAULT_BLOCK_LAG_COST = 1000;
+
+    /**
+     * Default maximum discount given to nodes with a high throughput, as a fraction of their cost.
+     */
+    public static final double DEFAULT_THROUGHPUT_WEIGHT = 0.25;
+
+    // Throughput in bytes per second from which a node gets the whole discount
+    private static final double REFERENCE_THROUGHPUT = 1024 * 1024;
+
+    private final double mErrorWeight;
+    private final double mBlockLagCost;
+    private final double mThroughputWeight;
+
+    public NodeScorer(){
+        this(DEFAULT_ERROR_WEIGHT, DEFAULT_BLOCK_LAG_COST, DEFAULT_THROUGHPUT_WEIGHT);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param errorWeight       Factor applied to the error rate before inflating the latency with it
+     * @param blockLagCost      Cost of every block a node is behind, in milliseconds
+     * @param throughputWeight  Maximum discount given to nodes with a high throughput, between 0 and 1
+     */
+    public NodeScorer(double errorWeight, double blockLagCost, double throughputWeight){
+        mErrorWeight = errorWeight;
+        mBlockLagCost = blockLagCost;
+        mThroughputWeight = Math.min(Math.max(throughputWeight, 0), 1);
+    }
+
+    /**
+     * Computes the cost of a node.
+     *
+     * @param fullNode          The node
+     * @param headBlockNumber   The highest head block number reported by any of the known nodes
+     * @return                  The cost of the node, or {@link Double#POSITIVE_INFINITY} if its
+     *                          latency was never measured or it is unreachable.
+     */
+    public double getCost(FullNode fullNode, long headBlockNumber){
+        double latency = fullNode.getTailLatencyValue();
+        if(latency >= Long.MAX_VALUE) return Double.POSITIVE_INFINITY;
+        double cost = latency * (1 + mErrorWeight * fullNode.getErrorRate());
+        long nodeHeadBlock = fullNode.getHeadBlockNumber();
+        if(nodeHeadBlock > 0 && headBlockNumber > nodeHeadBlock)
+            cost += mBlockLagCost * (headBlockNumber - nodeHeadBlock);
+        double throughput = Math.min(fullNode.getThroughput() / REFERENCE_THROUGHPUT, 1);
+        return cost * (1 - mThroughputWeight * throughput);
+    }
+}
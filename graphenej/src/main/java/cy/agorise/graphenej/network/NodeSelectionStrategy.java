@@ -0,0 +1,106 @@
+package cy.agorise.graphenej.network;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Interface used to describe how a {@link ScoringNodeProvider} picks the node to connect to,
+ * out of the list of candidates ranked by their cost.
+ * <p>
+ * Always picking the best node is what gives the lowest latency to a single client, but it also
+ * pins every client sharing the same node list to the same node, which might degrade precisely
+ * because of that. The randomized strategies spread the load while still favoring good nodes.
+ */
+public interface NodeSelectionStrategy {
+
+    /**
+     * Selects a node.
+     *
+     * @param nodes Candidate nodes, sorted by increasing cost. It is never empty.
+     * @param costs Cost of every candidate, in the same order. Unreachable nodes or nodes that
+     *              were never measured have a cost of {@link Double#POSITIVE_INFINITY}.
+     * @return      The selected node
+     */
+    FullNode select(List<FullNode> nodes, double[] costs);
+
+    /**
+     * Strategy that always selects the node with the lowest cost.
+     */
+    class StrictBest implements NodeSelectionStrategy {
+
+        @Override
+        public FullNode select(List<FullNode> nodes, double[] costs) {
+            return nodes.get(0);
+        }
+    }
+
+    /**
+     * Strategy that selects a node at random, with a probability inversely proportional to its cost.
+     * Nodes with an infinite cost are only selected if there is no other option.
+     */
+    class WeightedRandom implements NodeSelectionStrategy {
+        private final Random mRandom;
+
+        public WeightedRandom(){
+            this(new Random());
+        }
+
+        public WeightedRandom(Random random){
+            mRandom = random;
+        }
+
+        @Override
+        public FullNode select(List<FullNode> nodes, double[] costs) {
+            double[] weights = new double[costs.length];
+            double total = 0;
+            for(int i = 0; i < costs.length; i++){
+                // Costs below 1 ms are treated as 1 ms, so that a single node cannot take all the weight
+                weights[i] = Double.isInfinite(costs[i]) ? 0 : 1 / Math.max(costs[i], 1);
+                total += weights[i];
+            }
+            if(total == 0) return nodes.get(0);
+            double target;
+            synchronized (mRandom){
+                target = mRandom.nextDouble() * total;
+            }
+            for(int i = 0; i < weights.length; i++){
+                target -= weights[i];
+                if(target < 0 && weights[i] > 0) return nodes.get(i);
+            }
+            return nodes.get(0);
+        }
+    }
+
+    /**
+     * Strategy that picks two different nodes at random and selects the one with the lowest cost.
+     * This avoids the worst nodes almost as well as always selecting the best one, while still
+     * spreading the load among the good ones. Nodes with an infinite cost are only selected if
+     * there is no other option.
+     */
+    class PowerOfTwoChoices implements NodeSelectionStrategy {
+        private final Random mRandom;
+
+        public PowerOfTwoChoices(){
+            this(new Random());
+        }
+
+        public PowerOfTwoChoices(Random random){
+            mRandom = random;
+        }
+
+        @Override
+        public FullNode select(List<FullNode> nodes, double[] costs) {
+            // The nodes are sorted, so the ones with a finite cost come first
+            int candidates = 0;
+            while(candidates < costs.length && !Double.isInfinite(costs[candidates])) candidates++;
+            if(candidates < 2) return nodes.get(0);
+            int first, second;
+            synchronized (mRandom){
+                first = mRandom.nextInt(candidates);
+                second = mRandom.nextInt(candidates - 1);
+            }
+            if(second >= first) second++;
+            return nodes.get(Math.min(first, second));
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package cy.agorise.graphenej.network;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Class used to keep the statistics of the full nodes across restarts, so that the best node can
+ * be chosen right away instead of waiting for a new round of latency measurements.
+ * <p>
+ * The latency and error rate averages, the number of consecutive failures and the time of the
+ * last successful call of every node are saved to a small JSON file, which is replaced atomically.
+ * Statistics whose last measurement is older than {@link #DEFAULT_MAX_AGE} are ignored when loading,
+ * since they no longer say much about the node. Saving again the statistics of a restored node that
+ * was not measured since keeps the time of its original measurement, so they still expire.
+ */
+public class NodeStatisticsStore {
+    private final Logger logger = Logger.getLogger(this.getClass().getName());
+
+    /**
+     * Default maximum age of the statistics that are restored, in milliseconds.
+     */
+    public static final long DEFAULT_MAX_AGE = TimeUnit.DAYS.toMillis(7);
+
+    // Latencies above this value are not real measurements but penalties, which older versions
+    // applied to failing nodes, and are not restored
+    private static final double MAX_RESTORED_LATENCY = TimeUnit.MINUTES.toMillis(1);
+
+    private final File mFile;
+    private final long mMaxAge;
+    private final Gson gson = new Gson();
+
+    public NodeStatisticsStore(File file){
+        this(file, DEFAULT_MAX_AGE);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param file      The file where the statistics are kept
+     * @param maxAge    Maximum age of the statistics that are restored, in milliseconds
+     */
+    public NodeStatisticsStore(File file, long maxAge){
+        mFile = file;
+        mMaxAge = maxAge;
+    }
+
+    /**
+     * Restores the saved statistics of the given nodes. Nodes without saved statistics, or whose
+     * statistics are too old, are left untouched.
+     *
+     * @param nodes The nodes, which should not have any measurement yet
+     * @return      Number of nodes whose statistics were restored
+     */
+    public synchronized int load(Collection<FullNode> nodes){
+        if(!mFile.exists()) return 0;
+        List<Entry> entries;
+        Reader reader = null;
+        try{
+            reader = new InputStreamReader(new FileInputStream(mFile), "UTF-8");
+            Type type = new TypeToken<List<Entry>>(){}.getType();
+            entries = gson.fromJson(reader, type);
+        }catch(IOException | JsonParseException e){
+            logger.warning("Could not read the node statistics: " + e.getMessage());
+            return 0;
+        }finally{
+            closeQuietly(reader);
+        }
+        if(entries == null) return 0;
+
+        HashMap<String, Entry> entryMap = new HashMap<>();
+        for(Entry entry : entries){
+            if(entry != null && entry.url != null) entryMap.put(entry.url, entry);
+        }
+        long now = System.currentTimeMillis();
+        int restored = 0;
+        for(FullNode fullNode : nodes){
+            Entry entry = entryMap.get(fullNode.getUrl());
+            if(entry == null || now - entry.savedAt > mMaxAge) continue;
+            double latency = entry.latency <= MAX_RESTORED_LATENCY ? entry.latency : 0;
+            fullNode.restoreStatistics(latency, entry.errorRate, entry.failureCount, entry.lastSuccessTime, entry.savedAt);
+            restored++;
+        }
+        logger.fine("Restored the statistics of " + restored + " nodes");
+        return restored;
+    }
+
+    /**
+     * Saves the statistics of the given nodes, replacing all previously saved ones.
+     *
+     * @param nodes The nodes
+     */
+    public synchronized void save(Collection<FullNode> nodes){
+        ArrayList<Entry> entries = new ArrayList<>();
+        for(FullNode fullNode : nodes){
+            long measuredAt = fullNode.getLastMeasurementTime();
+            // Nodes that were never measured have no statistics worth saving
+            if(measuredAt == 0) continue;
+            Entry entry = new Entry();
+            entry.url = fullNode.getUrl();
+            double latency = fullNode.getLatencyValue();
+            entry.latency = latency < Long.MAX_VALUE ? latency : 0;
+            entry.errorRate = fullNode.getErrorRate();
+            entry.failureCount = fullNode.getFailureCount();
+            entry.lastSuccessTime = fullNode.getLastSuccessTime();
+            entry.savedAt = measuredAt;
+            entries.add(entry);
+        }
+        // Writing to a temporary file first, so that a crash never leaves a truncated file behind
+        File temporary = new File(mFile.getPath() + ".tmp");
+        Writer writer = null;
+        try{
+            writer = new OutputStreamWriter(new FileOutputStream(temporary), "UTF-8");
+            gson.toJson(entries, writer);
+            writer.close();
+            writer = null;
+        }catch(IOException | JsonIOException e){
+            logger.warning("Could not write the node statistics: " + e.getMessage());
+            return;
+        }finally{
+            closeQuietly(writer);
+        }
+        if(!temporary.renameTo(mFile)){
+            logger.warning("Could not replace " + mFile.getPath());
+            temporary.delete();
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable){
+        if(closeable == null) return;
+        try{
+            closeable.close();
+        }catch(IOException e){
+            // Nothing to do
+        }
+    }
+
+    private static class Entry {
+        String url;
+        double latency;
+        double errorRate;
+        int failureCount;
+        long lastSuccessTime;
+        // Time of the last measurement, named after the time of saving, which older versions used
+        long savedAt;
+    }
+}
@@ -0,0 +1,146 @@
+package cy.agorise.graphenej.network;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Node provider that ranks the nodes by the cost computed by a {@link NodeScorer}, which takes into
+ * account their latency, error rate, head block lag and throughput, and that delegates the choice
+ * of the node to connect to to a {@link NodeSelectionStrategy}.
+ * <p>
+ * Nodes whose {@link CircuitBreaker} does not currently allow their use are never selected, and
+ * come after all the others in the sorted list of nodes.
+ * <p>
+ * With the default {@link NodeSelectionStrategy.StrictBest} strategy and nodes that report no errors
+ * and are all at the same block, it behaves just like the {@link LatencyNodeProvider}.
+ */
+public class ScoringNodeProvider implements NodeProvider {
+
+    private final ArrayList<FullNode> mNodes = new ArrayList<>();
+
+    private final NodeScorer mScorer;
+
+    private final NodeSelectionStrategy mStrategy;
+
+    public ScoringNodeProvider(){
+        this(new NodeSelectionStrategy.StrictBest());
+    }
+
+    public ScoringNodeProvider(NodeSelectionStrategy strategy){
+        this(strategy, new NodeScorer());
+    }
+
+    /**
+     * Constructor
+     *
+     * @param strategy  Strategy used to select the node returned by {@link #getBestNode()}
+     * @param scorer    Scorer used to rank the nodes
+     */
+    public ScoringNodeProvider(NodeSelectionStrategy strategy, NodeScorer scorer){
+        mStrategy = strategy;
+        mScorer = scorer;
+    }
+
+    /**
+     * Returns the node chosen by the selection strategy, which is not necessarily the one with
+     * the lowest cost.
+     *
+     * @return  A FullNode instance, or null if there are no nodes or all their circuit breakers are open
+     */
+    @Override
+    public synchronized FullNode getBestNode() {
+        ArrayList<FullNode> nodes = new ArrayList<>(mNodes.size());
+        double[] costs = new double[mNodes.size()];
+        for(ScoredNode scoredNode : rank()){
+            if(!scoredNode.available) break;
+            costs[nodes.size()] = scoredNode.cost;
+            nodes.add(scoredNode.node);
+        }
+        if(nodes.isEmpty()) return null;
+        return mStrategy.select(nodes, Arrays.copyOf(costs, nodes.size()));
+    }
+
+    @Override
+    public synchronized void addNode(FullNode fullNode) {
+        mNodes.add(fullNode);
+    }
+
+    @Override
+    public synchronized boolean updateNode(FullNode fullNode) {
+        // The given instance replaces the one already held, which might be a different but equal one
+        mNodes.remove(fullNode);
+        return mNodes.add(fullNode);
+    }
+
+    @Override
+    public synchronized void removeNode(FullNode fullNode) {
+        mNodes.remove(fullNode);
+    }
+
+    /**
+     * Returns the list of nodes sorted by increasing cost, the ones with an open circuit breaker last.
+     * @return The sorted list of nodes.
+     */
+    @Override
+    public synchronized List<FullNode> getSortedNodes() {
+        ArrayList<FullNode> nodeList = new ArrayList<>(mNodes.size());
+        for(ScoredNode scoredNode : rank()){
+            nodeList.add(scoredNode.node);
+        }
+        return nodeList;
+    }
+
+    /**
+     * @param fullNode  One of the nodes held by this provider
+     * @return          Its current cost, as computed by the scorer
+     */
+    public synchronized double getCost(FullNode fullNode){
+        return mScorer.getCost(fullNode, getHeadBlockNumber());
+    }
+
+    /**
+     * @return  The highest head block number reported by any of the nodes
+     */
+    private long getHeadBlockNumber(){
+        long headBlockNumber = 0;
+        for(FullNode fullNode : mNodes){
+            headBlockNumber = Math.max(headBlockNumber, fullNode.getHeadBlockNumber());
+        }
+        return headBlockNumber;
+    }
+
+    /**
+     * Computes the cost and availability of every node just once and sorts them by them.
+     */
+    private ArrayList<ScoredNode> rank(){
+        long headBlockNumber = getHeadBlockNumber();
+        ArrayList<ScoredNode> ranking = new ArrayList<>(mNodes.size());
+        for(FullNode fullNode : mNodes){
+            ranking.add(new ScoredNode(fullNode, mScorer.getCost(fullNode, headBlockNumber),
+                    fullNode.getCircuitBreaker().isAvailable()));
+        }
+        Collections.sort(ranking, new Comparator<ScoredNode>() {
+            @Override
+            public int compare(ScoredNode a, ScoredNode b) {
+                if(a.available != b.available) return a.available ? -1 : 1;
+                return Double.compare(a.cost, b.cost);
+            }
+        });
+        return ranking;
+    }
+
+    private static class ScoredNode {
+        final FullNode node;
+        final double cost;
+        final boolean available;
+
+        ScoredNode(FullNode node, double cost, boolean available){
+            this.node = node;
+            this.cost = cost;
+            this.available = available;
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package cy.agorise.graphenej.operations;
 
 import com.google.common.primitives.Bytes;
-import com.google.gson.GsonBuilder;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonDeserializationContext;
 import com.google.gson.JsonDeserializer;
@@ -10,19 +9,23 @@ import com.google.gson.JsonObject;
 import com.google.gson.JsonParseException;
 import com.google.gson.JsonSerializationContext;
 import com.google.gson.JsonSerializer;
+import com.google.gson.stream.JsonWriter;
 
+import java.io.IOException;
 import java.lang.reflect.Type;
 
 import cy.agorise.graphenej.AssetAmount;
 import cy.agorise.graphenej.BaseOperation;
+import cy.agorise.graphenej.JsonStreamSerializer;
 import cy.agorise.graphenej.OperationType;
 import cy.agorise.graphenej.UserAccount;
 import cy.agorise.graphenej.Memo;
+import cy.agorise.graphenej.interfaces.JsonStreamable;
 
 /**
  * Class used to encapsulate the TransferOperation operation related functionalities.
  */
-public class TransferOperation extends BaseOperation {
+public class TransferOperation extends BaseOperation implements JsonStreamable {
     public static final String KEY_AMOUNT = "amount";
     public static final String KEY_FROM = "from";
     public static final String KEY_TO = "to";
@@ -105,10 +108,29 @@ public class TransferOperation extends BaseOperation {
 
     @Override
     public String toJsonString() {
-        //TODO: Evaluate using simple Gson class to return a simple string representation and drop the TransferSerializer class
-        GsonBuilder gsonBuilder = new GsonBuilder();
-        gsonBuilder.registerTypeAdapter(TransferOperation.class, new TransferSerializer());
-        return gsonBuilder.create().toJson(this);
+        return JsonStreamSerializer.toJsonString(this);
+    }
+
+    @Override
+    public void writeJson(JsonWriter writer) throws IOException {
+        writer.beginArray();
+        writer.value(this.getId());
+        writer.beginObject();
+        if(fee != null){
+            writer.name(KEY_FEE);
+            fee.writeJson(writer);
+        }
+        writer.name(KEY_FROM).value(from.getObjectId());
+        writer.name(KEY_TO).value(to.getObjectId());
+        writer.name(KEY_AMOUNT);
+        amount.writeJson(writer);
+        if(memo.getByteMessage() != null){
+            writer.name(KEY_MEMO);
+            JsonStreamSerializer.writeElement(writer, memo.toJsonObject());
+        }
+        writer.name(KEY_EXTENSIONS).beginArray().endArray();
+        writer.endObject();
+        writer.endArray();
     }
 
     @Override
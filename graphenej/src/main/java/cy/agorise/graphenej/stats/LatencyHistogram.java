@@ -0,0 +1,145 @@
+package cy.agorise.graphenej.stats;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe histogram of durations with a fixed set of logarithmic buckets.
+ * <p>
+ * Bucket bounds grow by a factor of 2^(1/4) from 100 microseconds up to about 100 seconds, so
+ * the percentiles derived from it are off by less than 20% of the actual value. Recording a value
+ * never allocates nor locks, which makes it suitable for the networking hot paths.
+ */
+public class LatencyHistogram {
+
+    // Upper bound in microseconds of the first bucket
+    private static final double FIRST_BOUND = 100;
+
+    // Ratio between the upper bounds of consecutive buckets
+    private static final double GROWTH_FACTOR = Math.pow(2, 0.25);
+
+    // Number of buckets, the last one holds all values over the bound of the previous one
+    private static final int BUCKET_COUNT = 82;
+
+    private static final double[] BOUNDS = new double[BUCKET_COUNT];
+    static {
+        double bound = FIRST_BOUND;
+        for(int i = 0; i < BUCKET_COUNT - 1; i++){
+            BOUNDS[i] = bound;
+            bound *= GROWTH_FACTOR;
+        }
+        BOUNDS[BUCKET_COUNT - 1] = Double.MAX_VALUE;
+    }
+
+    private final AtomicLongArray mBuckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong mSum = new AtomicLong();
+    private final AtomicLong mMax = new AtomicLong();
+
+    /**
+     * Records a single duration.
+     *
+     * @param nanos Duration in nanoseconds
+     */
+    public void record(long nanos){
+        long micros = Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos));
+        mBuckets.incrementAndGet(bucketOf(micros));
+        mSum.addAndGet(micros);
+        long max = mMax.get();
+        while(micros > max && !mMax.compareAndSet(max, micros)){
+            max = mMax.get();
+        }
+    }
+
+    /**
+     * @return  A consistent enough copy of the current state of this histogram.
+     */
+    public Snapshot getSnapshot(){
+        long[] buckets = new long[BUCKET_COUNT];
+        long count = 0;
+        for(int i = 0; i < BUCKET_COUNT; i++){
+            buckets[i] = mBuckets.get(i);
+            count += buckets[i];
+        }
+        return new Snapshot(buckets, count, mSum.get(), mMax.get());
+    }
+
+    private static int bucketOf(long micros){
+        if(micros <= FIRST_BOUND) return 0;
+        int index = (int) Math.ceil(Math.log(micros / FIRST_BOUND) / Math.log(GROWTH_FACTOR));
+        index = Math.min(index, BUCKET_COUNT - 1);
+        // Rounding errors could place a value right on a bound in a neighbouring bucket
+        if(index > 0 && micros <= BOUNDS[index - 1]) index--;
+        else if(micros > BOUNDS[index]) index++;
+        return index;
+    }
+
+    /**
+     * Immutable state of a histogram at a given point in time.
+     */
+    public static class Snapshot {
+        private final long[] buckets;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        Snapshot(long[] buckets, long count, long sum, long max){
+            this.buckets = buckets;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        /**
+         * @return  Number of recorded values
+         */
+        public long getCount(){
+            return count;
+        }
+
+        /**
+         * @return  Mean of the recorded values in milliseconds, or 0 if there are none
+         */
+        public double getMean(){
+            return count == 0 ? 0 : sum / 1000.0 / count;
+        }
+
+        /**
+         * @return  Largest recorded value in milliseconds
+         */
+        public double getMax(){
+            return max / 1000.0;
+        }
+
+        /**
+         * Estimates a percentile of the recorded values, interpolating linearly inside the
+         * bucket where it falls.
+         *
+         * @param percentile    The percentile, between 0 and 100
+         * @return              The estimated value in milliseconds, or 0 if there are no values
+         */
+        public double getPercentile(double percentile){
+            if(count == 0) return 0;
+            double rank = Math.min(100, Math.max(0, percentile)) / 100.0 * count;
+            long seen = 0;
+            for(int i = 0; i < buckets.length; i++){
+                if(buckets[i] == 0) continue;
+                if(seen + buckets[i] >= rank){
+                    double lower = i == 0 ? 0 : BOUNDS[i - 1];
+                    double upper = Math.min(BOUNDS[i], max);
+                    if(upper < lower) upper = lower;
+                    double fraction = (rank - seen) / buckets[i];
+                    return (lower + (upper - lower) * fraction) / 1000.0;
+                }
+                seen += buckets[i];
+            }
+            return getMax();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("(count=%d, mean=%.2f, p50=%.2f, p95=%.2f, p99=%.2f, max=%.2f)",
+                    count, getMean(), getPercentile(50), getPercentile(95), getPercentile(99), getMax());
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package cy.agorise.graphenej.stats;
+
+/**
+ * Compact streaming sketch of the latency distribution of a single node, used to estimate its
+ * quantiles, like the median or the 99th percentile, out of the most recent measurements.
+ * <p>
+ * Measurements are counted in logarithmic buckets whose bounds grow by a factor of 2^(1/4) from
+ * 1 millisecond up to a few minutes, so the estimated quantiles are off by less than 10% of the
+ * actual value. Once the accumulated weight reaches a maximum all bucket weights are halved,
+ * which makes older measurements fade away while keeping the memory footprint constant.
+ * <p>
+ * Contrary to an exponential moving average, this tells a node that steadily answers in 150 ms
+ * apart from one that swings between 50 ms and 2 s. All methods are thread-safe.
+ */
+public class LatencySketch {
+
+    /**
+     * Default weight at which all bucket weights are halved. The sketch then reflects roughly the
+     * last few hundred measurements.
+     */
+    public static final double DEFAULT_MAX_WEIGHT = 256;
+
+    // Upper bound in milliseconds of the first bucket
+    private static final double FIRST_BOUND = 1;
+
+    // Ratio between the upper bounds of consecutive buckets
+    private static final double GROWTH_FACTOR = Math.pow(2, 0.25);
+
+    private static final double LOG_GROWTH_FACTOR = Math.log(GROWTH_FACTOR);
+
+    // Number of buckets, the last one holds all values over the bound of the previous one
+    private static final int BUCKET_COUNT = 72;
+
+    private final double mMaxWeight;
+    private final double[] mWeights = new double[BUCKET_COUNT];
+    private double mTotalWeight;
+    private long mCount;
+
+    public LatencySketch(){
+        this(DEFAULT_MAX_WEIGHT);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param maxWeight Weight at which all bucket weights are halved
+     */
+    public LatencySketch(double maxWeight){
+        mMaxWeight = Math.max(maxWeight, 2);
+    }
+
+    /**
+     * Adds a measurement.
+     *
+     * @param millis    Latency in milliseconds
+     */
+    public synchronized void record(double millis){
+        if(Double.isNaN(millis) || millis < 0) return;
+        mWeights[bucketOf(millis)]++;
+        mTotalWeight++;
+        mCount++;
+        if(mTotalWeight >= mMaxWeight){
+            for(int i = 0; i < BUCKET_COUNT; i++){
+                mWeights[i] /= 2;
+            }
+            mTotalWeight /= 2;
+        }
+    }
+
+    /**
+     * Estimates a quantile of the recent measurements.
+     *
+     * @param quantile  The quantile, between 0 and 1. For instance 0.99 for the 99th percentile.
+     * @return          The estimated latency in milliseconds, or 0 if there are no measurements.
+     */
+    public synchronized double getQuantile(double quantile){
+        if(mTotalWeight == 0) return 0;
+        double rank = Math.min(Math.max(quantile, 0), 1) * mTotalWeight;
+        double accumulated = 0;
+        for(int i = 0; i < BUCKET_COUNT; i++){
+            double weight = mWeights[i];
+            if(weight > 0 && accumulated + weight >= rank){
+                // Interpolating geometrically inside the bucket
+                double fraction = (rank - accumulated) / weight;
+                double upper = upperBoundOf(i);
+                double lower = i == 0 ? 0 : upper / GROWTH_FACTOR;
+                if(i == 0) return upper * fraction;
+                return lower * Math.pow(GROWTH_FACTOR, fraction);
+            }
+            accumulated += weight;
+        }
+        return upperBoundOf(BUCKET_COUNT - 1);
+    }
+
+    /**
+     * @return  The estimated median latency in milliseconds, or 0 if there are no measurements.
+     */
+    public double getMedian(){
+        return getQuantile(0.5);
+    }
+
+    /**
+     * @return  Total number of measurements recorded so far, including the faded ones.
+     */
+    public synchronized long getCount(){
+        return mCount;
+    }
+
+    /**
+     * Removes all measurements.
+     */
+    public synchronized void clear(){
+        for(int i = 0; i < BUCKET_COUNT; i++){
+            mWeights[i] = 0;
+        }
+        mTotalWeight = 0;
+        mCount = 0;
+    }
+
+    private static int bucketOf(double millis){
+        if(millis <= FIRST_BOUND) return 0;
+        int bucket = (int) Math.ceil(Math.log(millis / FIRST_BOUND) / LOG_GROWTH_FACTOR);
+        return Math.min(bucket, BUCKET_COUNT - 1);
+    }
+
+    private static double upperBoundOf(int bucket){
+        return FIRST_BOUND * Math.pow(GROWTH_FACTOR, bucket);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("(count=%d, p50=%.1f, p95=%.1f, p99=%.1f)",
+                getCount(), getQuantile(0.5), getQuantile(0.95), getQuantile(0.99));
+    }
+}
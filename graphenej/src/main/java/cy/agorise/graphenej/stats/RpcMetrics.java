@@ -0,0 +1,350 @@
+package cy.agorise.graphenej.stats;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.reactivex.Observable;
+import io.reactivex.functions.Function;
+
+/**
+ * Registry of the metrics collected while talking to the full nodes.
+ * <p>
+ * It holds a latency histogram and success/error counts for every RPC method, success and
+ * error counts for every node, global counters and gauges. The current values can be
+ * obtained at any time with {@link #getSnapshot()}, or periodically with {@link #observe(long, TimeUnit)}.
+ * <p>
+ * All methods are thread-safe, and recording values does not take any lock.
+ */
+public class RpcMetrics {
+
+    /* Names of the counters maintained by the NetworkClient */
+    public static final String COUNTER_REQUESTS_SENT = "requests_sent";
+    public static final String COUNTER_RESPONSES_RECEIVED = "responses_received";
+    public static final String COUNTER_NOTIFICATIONS_RECEIVED = "notifications_received";
+    public static final String COUNTER_BYTES_SENT = "bytes_sent";
+    public static final String COUNTER_BYTES_RECEIVED = "bytes_received";
+    public static final String COUNTER_TIMEOUTS = "timeouts";
+    public static final String COUNTER_CONNECTIONS = "connections";
+    public static final String COUNTER_DISCONNECTIONS = "disconnections";
+    public static final String COUNTER_RECONNECTIONS = "reconnections";
+    public static final String COUNTER_MIGRATIONS = "migrations";
+
+    /* Names of the gauges registered by the NetworkClient */
+    public static final String GAUGE_PENDING_REQUESTS = "pending_requests";
+    public static final String GAUGE_JOURNALED_REQUESTS = "journaled_requests";
+    public static final String GAUGE_DECODER_QUEUE = "decoder_queue";
+    public static final String GAUGE_READY_SESSIONS = "ready_sessions";
+
+    /**
+     * Interface implemented by the sources of values that are sampled only when a snapshot
+     * is taken, like the size of a queue.
+     */
+    public interface Gauge {
+        long getValue();
+    }
+
+    private final ConcurrentHashMap<String, AtomicLong> mCounters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Gauge> mGauges = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, CallMetrics> mMethods = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, CallMetrics> mNodes = new ConcurrentHashMap<>();
+
+    // Time spent de-serializing incoming messages
+    private final LatencyHistogram mParseTime = new LatencyHistogram();
+
+    /**
+     * Adds a value to a counter, creating it if needed.
+     *
+     * @param counter   Name of the counter
+     * @param delta     Value to add
+     */
+    public void increment(String counter, long delta){
+        AtomicLong value = mCounters.get(counter);
+        if(value == null){
+            AtomicLong created = new AtomicLong();
+            value = mCounters.putIfAbsent(counter, created);
+            if(value == null) value = created;
+        }
+        value.addAndGet(delta);
+    }
+
+    /**
+     * Adds one to a counter, creating it if needed.
+     *
+     * @param counter   Name of the counter
+     */
+    public void increment(String counter){
+        increment(counter, 1);
+    }
+
+    /**
+     * Registers a gauge, replacing any previous one with the same name.
+     *
+     * @param name  Name of the gauge
+     * @param gauge Source of its values
+     */
+    public void registerGauge(String name, Gauge gauge){
+        mGauges.put(name, gauge);
+    }
+
+    /**
+     * Records the outcome of a call that got a response.
+     *
+     * @param method        Name of the RPC method
+     * @param nodeUrl       URL of the node that answered
+     * @param latencyNanos  Time elapsed between sending the request and receiving its response
+     * @param success       False if the node answered with an error
+     */
+    public void recordCall(String method, String nodeUrl, long latencyNanos, boolean success){
+        CallMetrics methodMetrics = getCallMetrics(mMethods, method);
+        methodMetrics.latency.record(latencyNanos);
+        methodMetrics.record(success);
+        getCallMetrics(mNodes, nodeUrl).record(success);
+    }
+
+    /**
+     * Records a call that never got a response, because it timed out or its connection was lost.
+     *
+     * @param method    Name of the RPC method
+     * @param nodeUrl   URL of the node the request was sent to
+     */
+    public void recordFailure(String method, String nodeUrl){
+        getCallMetrics(mMethods, method).record(false);
+        getCallMetrics(mNodes, nodeUrl).record(false);
+    }
+
+    /**
+     * Records the time it took to de-serialize an incoming message.
+     *
+     * @param nanos Duration in nanoseconds
+     */
+    public void recordParseTime(long nanos){
+        mParseTime.record(nanos);
+    }
+
+    /**
+     * @return  The current value of all metrics.
+     */
+    public Snapshot getSnapshot(){
+        TreeMap<String, Long> counters = new TreeMap<>();
+        for(Map.Entry<String, AtomicLong> entry : mCounters.entrySet()){
+            counters.put(entry.getKey(), entry.getValue().get());
+        }
+        TreeMap<String, Long> gauges = new TreeMap<>();
+        for(Map.Entry<String, Gauge> entry : mGauges.entrySet()){
+            gauges.put(entry.getKey(), entry.getValue().getValue());
+        }
+        return new Snapshot(System.currentTimeMillis(), counters, gauges,
+                snapshotOf(mMethods), snapshotOf(mNodes), mParseTime.getSnapshot());
+    }
+
+    /**
+     * Returns an Observable that emits a snapshot of all metrics periodically, to be used for
+     * instance to report them or to raise alarms on regressions.
+     *
+     * @param period    Time between snapshots
+     * @param unit      Unit of the period
+     * @return          The Observable, which operates on the computation scheduler.
+     */
+    public Observable<Snapshot> observe(long period, TimeUnit unit){
+        return Observable.interval(period, unit).map(new Function<Long, Snapshot>() {
+            @Override
+            public Snapshot apply(Long tick) {
+                return getSnapshot();
+            }
+        });
+    }
+
+    private static CallMetrics getCallMetrics(ConcurrentHashMap<String, CallMetrics> map, String key){
+        if(key == null) key = "unknown";
+        CallMetrics metrics = map.get(key);
+        if(metrics == null){
+            CallMetrics created = new CallMetrics();
+            metrics = map.putIfAbsent(key, created);
+            if(metrics == null) metrics = created;
+        }
+        return metrics;
+    }
+
+    private static Map<String, CallSnapshot> snapshotOf(ConcurrentHashMap<String, CallMetrics> map){
+        TreeMap<String, CallSnapshot> snapshots = new TreeMap<>();
+        for(Map.Entry<String, CallMetrics> entry : map.entrySet()){
+            CallMetrics metrics = entry.getValue();
+            snapshots.put(entry.getKey(), new CallSnapshot(metrics.successes.get(), metrics.errors.get(),
+                    metrics.latency.getSnapshot()));
+        }
+        return Collections.unmodifiableMap(snapshots);
+    }
+
+    /**
+     * Counts of calls made to a single method or node.
+     */
+    private static class CallMetrics {
+        final AtomicLong successes = new AtomicLong();
+        final AtomicLong errors = new AtomicLong();
+        final LatencyHistogram latency = new LatencyHistogram();
+
+        void record(boolean success){
+            if(success)
+                successes.incrementAndGet();
+            else
+                errors.incrementAndGet();
+        }
+    }
+
+    /**
+     * Immutable copy of the metrics of a single method or node.
+     */
+    public static class CallSnapshot {
+        private final long successes;
+        private final long errors;
+        private final LatencyHistogram.Snapshot latency;
+
+        CallSnapshot(long successes, long errors, LatencyHistogram.Snapshot latency){
+            this.successes = successes;
+            this.errors = errors;
+            this.latency = latency;
+        }
+
+        public long getSuccessCount(){
+            return successes;
+        }
+
+        /**
+         * @return  Number of calls answered with an error, timed out, or lost with their connection
+         */
+        public long getErrorCount(){
+            return errors;
+        }
+
+        /**
+         * @return  Ratio of failed calls, between 0 and 1
+         */
+        public double getErrorRate(){
+            long total = successes + errors;
+            return total == 0 ? 0 : (double) errors / total;
+        }
+
+        /**
+         * @return  Latency of the calls that got a response. It is only recorded per method,
+         *          so it is empty for nodes.
+         */
+        public LatencyHistogram.Snapshot getLatency(){
+            return latency;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("(successes=%d, errors=%d, latency=%s)", successes, errors, latency);
+        }
+    }
+
+    /**
+     * Immutable copy of all the metrics at a given point in time.
+     */
+    public static class Snapshot {
+        private final long timestamp;
+        private final Map<String, Long> counters;
+        private final Map<String, Long> gauges;
+        private final Map<String, CallSnapshot> methods;
+        private final Map<String, CallSnapshot> nodes;
+        private final LatencyHistogram.Snapshot parseTime;
+
+        Snapshot(long timestamp, Map<String, Long> counters, Map<String, Long> gauges,
+                 Map<String, CallSnapshot> methods, Map<String, CallSnapshot> nodes, LatencyHistogram.Snapshot parseTime){
+            this.timestamp = timestamp;
+            this.counters = Collections.unmodifiableMap(counters);
+            this.gauges = Collections.unmodifiableMap(gauges);
+            this.methods = methods;
+            this.nodes = nodes;
+            this.parseTime = parseTime;
+        }
+
+        /**
+         * @return  Time at which this snapshot was taken, in milliseconds since the epoch
+         */
+        public long getTimestamp(){
+            return timestamp;
+        }
+
+        /**
+         * @param name  Name of the counter
+         * @return      Its value, or 0 if it was never incremented
+         */
+        public long getCounter(String name){
+            Long value = counters.get(name);
+            return value != null ? value : 0;
+        }
+
+        public Map<String, Long> getCounters(){
+            return counters;
+        }
+
+        /**
+         * @param name  Name of the gauge
+         * @return      Its value, or 0 if there is no such gauge
+         */
+        public long getGauge(String name){
+            Long value = gauges.get(name);
+            return value != null ? value : 0;
+        }
+
+        public Map<String, Long> getGauges(){
+            return gauges;
+        }
+
+        /**
+         * @return  Metrics of every RPC method, by method name
+         */
+        public Map<String, CallSnapshot> getMethods(){
+            return methods;
+        }
+
+        /**
+         * @return  Metrics of every node, by URL
+         */
+        public Map<String, CallSnapshot> getNodes(){
+            return nodes;
+        }
+
+        /**
+         * @return  Time spent de-serializing incoming messages
+         */
+        public LatencyHistogram.Snapshot getParseTime(){
+            return parseTime;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("(counters=%s, gauges=%s, methods=%s, nodes=%s, parseTime=%s)",
+                    counters, gauges, methods, nodes, parseTime);
+        }
+    }
+
+    /**
+     * Computes the number of bytes a string takes once encoded in UTF-8, without encoding it.
+     *
+     * @param text  The string
+     * @return      Its size in bytes
+     */
+    public static long utf8Length(String text){
+        long length = 0;
+        for(int i = 0; i < text.length(); i++){
+            char c = text.charAt(i);
+            if(c < 0x80){
+                length++;
+            }else if(c < 0x800){
+                length += 2;
+            }else if(Character.isHighSurrogate(c) && i + 1 < text.length() && Character.isLowSurrogate(text.charAt(i + 1))){
+                length += 4;
+                i++;
+            }else{
+                length += 3;
+            }
+        }
+        return length;
+    }
+}
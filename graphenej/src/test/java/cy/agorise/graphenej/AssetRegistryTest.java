@@ -0,0 +1,116 @@
+package cy.agorise.graphenej;
+
+import com.google.common.primitives.UnsignedLong;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AssetRegistryTest {
+    private AssetRegistry registry = AssetRegistry.getInstance();
+
+    @Before
+    public void setUp(){
+        registry.clear();
+    }
+
+    @After
+    public void tearDown(){
+        registry.clear();
+    }
+
+    @Test
+    public void testIntern(){
+        Asset first = registry.intern("1.3.0");
+        assertSame(first, registry.intern("1.3.0"));
+        assertSame(first, registry.get("1.3.0"));
+        assertNull(registry.get("1.3.121"));
+        assertEquals(1, registry.size());
+    }
+
+    @Test
+    public void testRegister(){
+        Asset bts = registry.intern("1.3.0");
+        Asset definition = new Asset("1.3.0", "BTS", 5, "1.2.3");
+        assertSame(definition, registry.register(definition));
+        assertSame(definition, registry.intern("1.3.0"));
+        assertEquals(bts, definition);
+
+        // The instance handed out before is not modified
+        assertNull(bts.getSymbol());
+        assertEquals(1, registry.size());
+    }
+
+    @Test
+    public void testDeserializedAmountsShareAssets(){
+        Gson gson = new GsonBuilder()
+                .registerTypeAdapter(AssetAmount.class, new AssetAmount.AssetAmountDeserializer())
+                .create();
+        AssetAmount first = gson.fromJson("{\"amount\":100,\"asset_id\":\"1.3.0\"}", AssetAmount.class);
+        AssetAmount second = gson.fromJson("{\"amount\":200,\"asset_id\":\"1.3.0\"}", AssetAmount.class);
+        assertSame(first.getAsset(), second.getAsset());
+        assertSame(first.getAsset(), new AssetAmount(first).getAsset());
+        assertSame(first.getAsset(), first.multiplyBy(2).getAsset());
+        assertSame(first.getAsset(), first.divideBy(2).getAsset());
+    }
+
+    @Test
+    public void testAmountsUseLaterDefinitions(){
+        Gson gson = new GsonBuilder()
+                .registerTypeAdapter(AssetAmount.class, new AssetAmount.AssetAmountDeserializer())
+                .create();
+        AssetAmount before = gson.fromJson("{\"amount\":100,\"asset_id\":\"1.3.121\"}", AssetAmount.class);
+        Asset usd = registry.register(new Asset("1.3.121", "USD", 4));
+        AssetAmount after = gson.fromJson("{\"amount\":100,\"asset_id\":\"1.3.121\"}", AssetAmount.class);
+        assertSame(usd, after.getAsset());
+        assertEquals(4, after.getAsset().getPrecision());
+        assertEquals(before.getAsset(), after.getAsset());
+    }
+
+    @Test
+    public void testInternedAssetsAreReadOnly(){
+        Asset bts = registry.intern("1.3.0");
+        assertTrue(bts.isInterned());
+        try{
+            bts.setPrecision(5);
+            fail("An interned asset should not be modifiable");
+        }catch(UnsupportedOperationException e){
+            // Expected, the instance is shared
+        }
+
+        // Copies can be modified, and amounts only share interned assets
+        Asset copy = new Asset(bts);
+        copy.setPrecision(5);
+        assertFalse(copy.isInterned());
+        AssetAmount amount = new AssetAmount(UnsignedLong.valueOf(100), copy);
+        assertNotSame(copy, new AssetAmount(amount).getAsset());
+        assertNotSame(copy, amount.multiplyBy(2).getAsset());
+        assertNotSame(copy, amount.divideBy(2).getAsset());
+        assertEquals(-1, bts.getPrecision());
+    }
+
+    @Test
+    public void testUnusedAssetsAreDropped() throws InterruptedException {
+        registry.intern("1.3.121");
+        for(int i = 0; i < 50 && registry.size() > 0; i++){
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(registry.get("1.3.121"));
+        assertEquals(0, registry.size());
+
+        // The asset is created again when needed
+        Asset usd = registry.intern("1.3.121");
+        assertSame(usd, registry.intern("1.3.121"));
+    }
+}
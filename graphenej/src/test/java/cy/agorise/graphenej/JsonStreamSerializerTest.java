@@ -0,0 +1,118 @@
+package cy.agorise.graphenej;
+
+import com.google.common.primitives.UnsignedLong;
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import org.junit.Test;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+
+import cy.agorise.graphenej.interfaces.JsonSerializable;
+import cy.agorise.graphenej.models.ApiCall;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that the streamed JSON representation of outgoing messages is identical to the one
+ * obtained from their JSON trees.
+ */
+public class JsonStreamSerializerTest {
+
+    @Test
+    public void testApiCall(){
+        ArrayList<Serializable> accountIds = new ArrayList<>();
+        accountIds.add("1.2.100");
+        accountIds.add(12L);
+        accountIds.add(3);
+        accountIds.add(new Tree("<b>"));
+
+        ArrayList<Serializable> params = new ArrayList<>();
+        params.add(new Tree("a&b"));
+        params.add(42L);
+        params.add(0.5);
+        params.add("1.2.100");
+        params.add(null);
+        params.add(accountIds);
+        params.add(true);
+        params.add(new ArrayList<Serializable>());
+
+        ApiCall apiCall = new ApiCall(2, "get_objects", params, "2.0", 7);
+        assertEquals(new Gson().toJson(apiCall.toJsonObject()), apiCall.toJsonString());
+
+        // Missing fields are omitted, as they used to be
+        apiCall = new ApiCall(0, null, "login", null, null, 1);
+        assertEquals(new Gson().toJson(apiCall.toJsonObject()), apiCall.toJsonString());
+    }
+
+    @Test
+    public void testNestedSerialization(){
+        // Serializing from within another serialization must not disturb the outer one
+        ArrayList<Serializable> params = new ArrayList<>();
+        params.add(new Nested());
+        ApiCall apiCall = new ApiCall(2, "broadcast_transaction", params, "2.0", 3);
+        assertEquals(new Gson().toJson(apiCall.toJsonObject()), apiCall.toJsonString());
+    }
+
+    @Test
+    public void testJsonTree(){
+        ArrayList<Serializable> params = new ArrayList<>();
+        params.add(new Tree("a&b"));
+        params.add(null);
+        params.add(new AssetAmount(UnsignedLong.valueOf(100), new Asset("1.3.0")));
+
+        // The tree built from the stream holds the same as the streamed string
+        ApiCall apiCall = new ApiCall(2, "get_objects", params, null, 7);
+        assertEquals(apiCall.toJsonString(), new Gson().toJson(JsonStreamSerializer.toJsonTree(apiCall)));
+    }
+
+    @Test
+    public void testAssetAmount(){
+        AssetAmount amount = new AssetAmount(UnsignedLong.valueOf("18446744073709551615"), new Asset("1.3.0"));
+        assertEquals(new Gson().toJson(amount.toJsonObject()), amount.toJsonString());
+    }
+
+    /**
+     * Parameter that only provides a JSON tree.
+     */
+    private static class Tree implements JsonSerializable, Serializable {
+        private final String value;
+
+        Tree(String value){
+            this.value = value;
+        }
+
+        @Override
+        public String toJsonString() {
+            return toJsonObject().toString();
+        }
+
+        @Override
+        public JsonElement toJsonObject() {
+            JsonObject obj = new JsonObject();
+            obj.addProperty("value", value);
+            obj.add("missing", null);
+            return obj;
+        }
+    }
+
+    /**
+     * Parameter whose JSON tree is built from the serialization of another message.
+     */
+    private static class Nested implements JsonSerializable, Serializable {
+
+        @Override
+        public String toJsonString() {
+            return new ApiCall(1, "inner", null, "2.0", 1).toJsonString();
+        }
+
+        @Override
+        public JsonElement toJsonObject() {
+            JsonObject obj = new JsonObject();
+            obj.addProperty("inner", toJsonString());
+            return obj;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package cy.agorise.graphenej;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ObjectIdMapTest {
+
+    @Test
+    public void testPutAndGet(){
+        ObjectIdMap<String> map = new ObjectIdMap<>();
+        assertNull(map.put("1.3.0", "BTS"));
+        assertNull(map.put(ObjectId.pack(1, 3, 121), "USD"));
+        assertEquals("BTS", map.put("1.3.0", "bts"));
+        assertEquals(2, map.size());
+        assertEquals("bts", map.get("1.3.0"));
+        assertEquals("USD", map.get("1.3.121"));
+        assertNull(map.get("1.3.1"));
+        assertNull(map.get("BTS"));
+        assertTrue(map.containsKey(ObjectId.pack(1, 3, 0)));
+        assertFalse(map.containsKey(ObjectId.INVALID));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidKey(){
+        new ObjectIdMap<String>().put("BTS", "BTS");
+    }
+
+    @Test
+    public void testAgainstHashMap(){
+        // Random operations over a small range of ids, so that collisions and removals are frequent
+        Random random = new Random(42);
+        ObjectIdMap<Long> map = new ObjectIdMap<>(4);
+        HashMap<Long, Long> expected = new HashMap<>();
+        for(int i = 0; i < 20000; i++){
+            long key = ObjectId.pack(1, 2 + random.nextInt(2), random.nextInt(500));
+            if(random.nextInt(3) == 0){
+                assertEquals(expected.remove(key), map.remove(key));
+            }else{
+                long value = random.nextLong();
+                assertEquals(expected.put(key, value), map.put(key, value));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        for(int type = 2; type <= 3; type++){
+            for(int instance = 0; instance < 500; instance++){
+                long key = ObjectId.pack(1, type, instance);
+                assertEquals(expected.get(key), map.get(key));
+            }
+        }
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(ObjectId.pack(1, 2, 0)));
+    }
+}
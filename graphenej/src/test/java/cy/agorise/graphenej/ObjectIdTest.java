@@ -0,0 +1,52 @@
+package cy.agorise.graphenej;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ObjectIdTest {
+
+    @Test
+    public void testParseAndFormat(){
+        long packedId = ObjectId.parse("1.3.121");
+        assertEquals(1, ObjectId.getSpace(packedId));
+        assertEquals(3, ObjectId.getType(packedId));
+        assertEquals(121, ObjectId.getInstance(packedId));
+        assertEquals(ObjectId.pack(1, 3, 121), packedId);
+        assertEquals("1.3.121", ObjectId.format(packedId));
+        assertEquals("2.14.281474976710655", ObjectId.format(ObjectId.parse("2.14.281474976710655")));
+        assertEquals(0, ObjectId.parse("0.0.0"));
+    }
+
+    @Test
+    public void testInvalidIds(){
+        String[] invalid = { null, "", "BTS", "1.3", "1.3.", ".3.1", "1..1", "1.3.1.1", "1.3.-1", "1.3.x",
+                "256.1.1", "1.256.1", "1.2.281474976710656", "1.2.99999999999999999999" };
+        for(String id : invalid){
+            assertEquals(id, ObjectId.INVALID, ObjectId.parse(id));
+        }
+    }
+
+    @Test
+    public void testCanonical(){
+        assertTrue(ObjectId.isCanonical("1.2.0"));
+        assertTrue(ObjectId.isCanonical("2.10.100"));
+        assertFalse(ObjectId.isCanonical("1.2.01"));
+        assertFalse(ObjectId.isCanonical("01.2.1"));
+        assertFalse(ObjectId.isCanonical("BTS"));
+        assertEquals("1.2.1", new GrapheneObject("1.2.01").getObjectId());
+    }
+
+    @Test
+    public void testGrapheneObject(){
+        String id = "1.2.100";
+        GrapheneObject object = new GrapheneObject(id);
+        assertSame(id, object.getObjectId());
+        assertEquals(ObjectId.parse(id), object.getPackedId());
+        assertEquals(ObjectType.ACCOUNT_OBJECT, object.getObjectType());
+        assertEquals("0.0.0", new GrapheneObject("BTS").getObjectId());
+    }
+}
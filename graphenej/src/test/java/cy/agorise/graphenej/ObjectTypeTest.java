@@ -23,4 +23,16 @@ public class ObjectTypeTest {
         Assert.assertEquals("2.0.0", globalPropertiesObject.getGenericObjectId());
         Assert.assertEquals("2.14.0", specialAuthorityObject.getGenericObjectId());
     }
+
+    @Test
+    public void fromSpaceAndType() throws Exception {
+        for(ObjectType objectType : ObjectType.values()){
+            Assert.assertEquals(objectType, ObjectType.fromSpaceAndType(objectType.getSpace(), objectType.getType()));
+        }
+        Assert.assertEquals("1.16.0", ObjectType.HTLC_OBJECT.getGenericObjectId());
+        Assert.assertEquals(ObjectType.ASSET_OBJECT, ObjectType.fromPackedId(ObjectId.parse("1.3.121")));
+        Assert.assertNull(ObjectType.fromSpaceAndType(1, 0));
+        Assert.assertNull(ObjectType.fromSpaceAndType(3, 1));
+        Assert.assertNull(ObjectType.fromPackedId(ObjectId.INVALID));
+    }
 }
\ No newline at end of file
@@ -12,6 +12,7 @@ import java.util.List;
 
 import cy.agorise.graphenej.Asset;
 import cy.agorise.graphenej.AssetAmount;
+import cy.agorise.graphenej.AssetRegistry;
 import cy.agorise.graphenej.Converter;
 import cy.agorise.graphenej.LimitOrder;
 import cy.agorise.graphenej.OrderBook;
@@ -40,6 +41,9 @@ public class GetLimitOrdersTest extends BaseApiTest {
 
     @Test
     public void testGetLimitOrders(){
+        // The decoded orders share the registered assets, which already carry their precision
+        AssetRegistry.getInstance().register(base);
+        AssetRegistry.getInstance().register(quote);
         try {
             mWebSocket.addListener(new GetLimitOrders(base.getObjectId(), quote.getObjectId(), 100, new WitnessResponseListener() {
                 @Override
@@ -51,16 +55,10 @@ public class GetLimitOrdersTest extends BaseApiTest {
 
                     for(LimitOrder order : orders){
                         if(order.getSellPrice().base.getAsset().getObjectId().equals(base.getObjectId())){
-                            order.getSellPrice().base.getAsset().setPrecision(base.getPrecision());
-                            order.getSellPrice().quote.getAsset().setPrecision(quote.getPrecision());
-
                             baseToQuoteExchange = converter.getConversionRate(order.getSellPrice(), Converter.BASE_TO_QUOTE);
                             quoteToBaseExchange = converter.getConversionRate(order.getSellPrice(), Converter.QUOTE_TO_BASE);
                             System.out.println(String.format("> id: %s, base to quote: %.5f, quote to base: %.5f", order.getObjectId(), baseToQuoteExchange, quoteToBaseExchange));
                         }else{
-                            order.getSellPrice().base.getAsset().setPrecision(quote.getPrecision());
-                            order.getSellPrice().quote.getAsset().setPrecision(base.getPrecision());
-
                             baseToQuoteExchange = converter.getConversionRate(order.getSellPrice(), Converter.BASE_TO_QUOTE);
                             quoteToBaseExchange = converter.getConversionRate(order.getSellPrice(), Converter.QUOTE_TO_BASE);
                             System.out.println(String.format("< id: %s, base to quote: %.5f, quote to base: %.5f", order.getObjectId(), baseToQuoteExchange, quoteToBaseExchange));
@@ -146,5 +144,6 @@ public class GetLimitOrdersTest extends BaseApiTest {
     @After
     public void tearDown() throws Exception {
         mWebSocket.disconnect();
+        AssetRegistry.getInstance().clear();
     }
 }
\ No newline at end of file
@@ -0,0 +1,49 @@
+package cy.agorise.graphenej.api.android;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import org.junit.Test;
+
+import java.lang.reflect.Type;
+import java.util.List;
+
+import cy.agorise.graphenej.api.calls.BroadcastTransaction;
+import cy.agorise.graphenej.api.calls.GetAccounts;
+import cy.agorise.graphenej.api.calls.GetBlock;
+import cy.agorise.graphenej.models.AccountProperties;
+import cy.agorise.graphenej.models.Block;
+import cy.agorise.graphenej.models.JsonRpcResponse;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class DeserializationMapTest {
+
+    @Test
+    public void testRegisteredCalls(){
+        DeserializationMap map = new DeserializationMap();
+        assertEquals(new TypeToken<JsonRpcResponse<Block>>(){}.getType(), map.getResponseType(GetBlock.class));
+        assertEquals(Block.class, map.getReceivedClass(GetBlock.class));
+        assertNotNull(map.getGson(GetBlock.class));
+
+        assertEquals(new TypeToken<JsonRpcResponse<List<AccountProperties>>>(){}.getType(), map.getResponseType(GetAccounts.class));
+        assertEquals(List.class, map.getReceivedClass(GetAccounts.class));
+    }
+
+    @Test
+    public void testCustomRegistration(){
+        DeserializationMap map = new DeserializationMap();
+        assertNull(map.getResponseType(BroadcastTransaction.class));
+        assertNull(map.getGson(BroadcastTransaction.class));
+
+        Type type = new TypeToken<JsonRpcResponse<String>>(){}.getType();
+        Gson gson = new Gson();
+        map.register(BroadcastTransaction.class, type, gson);
+        assertEquals(type, map.getResponseType(BroadcastTransaction.class));
+        assertEquals(String.class, map.getReceivedClass(BroadcastTransaction.class));
+        assertSame(gson, map.getGson(BroadcastTransaction.class));
+    }
+}
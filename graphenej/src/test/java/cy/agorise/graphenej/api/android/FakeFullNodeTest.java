@@ -0,0 +1,468 @@
+package cy.agorise.graphenej.api.android;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import cy.agorise.graphenej.Asset;
+import cy.agorise.graphenej.RPC;
+import cy.agorise.graphenej.api.ApiAccess;
+import cy.agorise.graphenej.api.ConnectionStatusUpdate;
+import cy.agorise.graphenej.api.calls.GetAssets;
+import cy.agorise.graphenej.api.calls.GetDynamicGlobalProperties;
+import cy.agorise.graphenej.api.calls.SetSubscribeCallback;
+import cy.agorise.graphenej.models.DynamicGlobalProperties;
+import cy.agorise.graphenej.models.JsonRpcResponse;
+import cy.agorise.graphenej.network.FullNode;
+import cy.agorise.graphenej.network.NodeLatencyVerifier;
+import cy.agorise.graphenej.network.NodeStatisticsStore;
+import cy.agorise.graphenej.stats.RpcMetrics;
+import cy.agorise.graphenej.test.FakeFullNode;
+import io.reactivex.Single;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.functions.Consumer;
+import io.reactivex.subjects.PublishSubject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Runs the networking classes against a local {@link FakeFullNode}.
+ */
+public class FakeFullNodeTest {
+    private FakeFullNode mNode;
+    private NetworkClient mClient;
+
+    @Before
+    public void setUp() throws Exception {
+        mNode = new FakeFullNode()
+                .loadRecording("/recordings/bitshares.json")
+                .start();
+    }
+
+    @After
+    public void tearDown(){
+        if(mClient != null)
+            mClient.stop();
+        mNode.shutdown();
+    }
+
+    private NetworkClient connect(int requestedApis) throws InterruptedException {
+        return connect(requestedApis, null);
+    }
+
+    private NetworkClient connect(int requestedApis, PersistentObjectStore store) throws InterruptedException {
+        mClient = new NetworkClient.Builder()
+                .setNodeUrls(Arrays.asList(mNode.getUrl()))
+                .setRequestedApis(requestedApis)
+                .setAutoConnect(true)
+                .setNodeLatencyVerification(false)
+                .setObjectStore(store)
+                .build();
+        mClient.start();
+        waitUntilReady(requestedApis);
+        assertTrue("Could not connect to the fake node", mClient.isConnected());
+        return mClient;
+    }
+
+    /**
+     * Waits until the client is logged in and has got, or was denied, every requested API.
+     * Being logged in is not enough, since the API accesses are answered afterwards.
+     */
+    private void waitUntilReady(int requestedApis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while(!isReady(requestedApis) && System.currentTimeMillis() < deadline){
+            Thread.sleep(10);
+        }
+    }
+
+    private boolean isReady(int requestedApis){
+        if(!mClient.isConnected())
+            return false;
+        int[] apis = {ApiAccess.API_DATABASE, ApiAccess.API_HISTORY, ApiAccess.API_NETWORK_BROADCAST};
+        for(int api : apis){
+            if((requestedApis & api) == api && !mClient.hasApiId(api) && !mNode.isApiDenied(api))
+                return false;
+        }
+        return true;
+    }
+
+    @Test
+    public void testRecordedResponse() throws Exception {
+        NetworkClient client = connect(ApiAccess.API_DATABASE | ApiAccess.API_HISTORY);
+        assertTrue(client.hasApiId(ApiAccess.API_DATABASE));
+        assertTrue(client.hasApiId(ApiAccess.API_HISTORY));
+
+        JsonRpcResponse<?> response = client
+                .sendRequest(new GetDynamicGlobalProperties(), ApiAccess.API_DATABASE)
+                .blockingGet();
+        DynamicGlobalProperties properties = (DynamicGlobalProperties) response.result;
+        assertEquals(34100000, properties.head_block_number);
+        assertEquals(1, mNode.getConnectionCount());
+
+        RpcMetrics.Snapshot metrics = client.getMetrics().getSnapshot();
+        assertEquals(1, metrics.getCounter(RpcMetrics.COUNTER_CONNECTIONS));
+        assertTrue(metrics.getCounter(RpcMetrics.COUNTER_BYTES_SENT) > 0);
+        assertTrue(metrics.getCounter(RpcMetrics.COUNTER_BYTES_RECEIVED) > 0);
+        assertEquals(0, metrics.getGauge(RpcMetrics.GAUGE_PENDING_REQUESTS));
+        assertEquals(1, metrics.getGauge(RpcMetrics.GAUGE_READY_SESSIONS));
+        RpcMetrics.CallSnapshot call = metrics.getMethods().get(RPC.CALL_GET_DYNAMIC_GLOBAL_PROPERTIES);
+        assertEquals(1, call.getSuccessCount());
+        assertEquals(1, call.getLatency().getCount());
+    }
+
+    @Test
+    public void testResponseCache() throws Exception {
+        NetworkClient client = connect(ApiAccess.API_DATABASE);
+        int requests = mNode.getRequestCount();
+
+        JsonRpcResponse<?> first = client.sendRequest(new GetAssets("1.3.0"), GetAssets.REQUIRED_API).blockingGet();
+        JsonRpcResponse<?> second = client.sendRequest(new GetAssets("1.3.0"), GetAssets.REQUIRED_API).blockingGet();
+        assertEquals("BTS", ((List<Asset>) second.result).get(0).getSymbol());
+        assertSame(first.result, second.result);
+        assertNotEquals(first.id, second.id);
+        assertEquals(requests + 1, mNode.getRequestCount());
+        assertEquals(1, client.getResponseCache().getHitCount());
+    }
+
+    @Test
+    public void testObjectStore() throws Exception {
+        File file = File.createTempFile("objects", ".db");
+        try{
+            PersistentObjectStore store = new PersistentObjectStore(file);
+            connect(ApiAccess.API_DATABASE, store)
+                    .sendRequest(new GetAssets("1.3.0"), GetAssets.REQUIRED_API)
+                    .blockingGet();
+            mClient.stop();
+            store.close();
+
+            // After a restart, the asset definition is read from disk
+            store = new PersistentObjectStore(file);
+            NetworkClient client = connect(ApiAccess.API_DATABASE, store);
+            int requests = mNode.getRequestCount();
+            JsonRpcResponse<?> response = client.sendRequest(new GetAssets("1.3.0"), GetAssets.REQUIRED_API).blockingGet();
+            assertEquals("BTS", ((List<Asset>) response.result).get(0).getSymbol());
+            assertEquals(5, ((List<Asset>) response.result).get(0).getPrecision());
+            assertEquals(requests, mNode.getRequestCount());
+            store.close();
+        }finally{
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testDeniedApi() throws Exception {
+        mNode.denyApi(ApiAccess.API_HISTORY);
+        NetworkClient client = connect(ApiAccess.API_DATABASE | ApiAccess.API_HISTORY);
+        assertTrue(client.hasApiId(ApiAccess.API_DATABASE));
+        assertFalse(client.hasApiId(ApiAccess.API_HISTORY));
+    }
+
+    @Test
+    public void testDroppedRequest() throws Exception {
+        NetworkClient client = connect(ApiAccess.API_DATABASE);
+        mNode.setDropRate(1);
+        try{
+            client.sendRequest(new GetDynamicGlobalProperties(), ApiAccess.API_DATABASE, 200).blockingGet();
+            fail("The request should have timed out");
+        }catch(RuntimeException e){
+            // Expected, the node never answered
+        }
+        assertEquals(1, mNode.getDroppedCount());
+        RpcMetrics.Snapshot metrics = client.getMetrics().getSnapshot();
+        assertEquals(1, metrics.getCounter(RpcMetrics.COUNTER_TIMEOUTS));
+        assertEquals(1.0, metrics.getNodes().get(mNode.getUrl()).getErrorRate(), 0);
+    }
+
+    @Test
+    public void testLatency() throws Exception {
+        NetworkClient client = connect(ApiAccess.API_DATABASE);
+        mNode.setLatency(50, 20);
+
+        long before = System.nanoTime();
+        for(int i = 0; i < 3; i++){
+            client.sendRequest(new GetDynamicGlobalProperties(), ApiAccess.API_DATABASE).blockingGet();
+        }
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - before);
+        assertTrue("Elapsed: " + elapsed, elapsed >= 150);
+    }
+
+    @Test
+    public void testThrottling() throws Exception {
+        NetworkClient client = connect(ApiAccess.API_DATABASE);
+        mNode.setThrottle(10);
+
+        // With 10 messages per second, the last of 5 simultaneous responses is sent after 400 ms
+        long before = System.nanoTime();
+        ArrayList<Single<JsonRpcResponse<?>>> requests = new ArrayList<>();
+        for(int i = 0; i < 5; i++){
+            requests.add(client.sendRequest(new GetDynamicGlobalProperties(), ApiAccess.API_DATABASE));
+        }
+        for(Single<JsonRpcResponse<?>> request : requests){
+            request.blockingGet();
+        }
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - before);
+        assertTrue("Elapsed: " + elapsed, elapsed >= 400);
+    }
+
+    @Test
+    public void testLatencyVerifier() throws Exception {
+        mNode.setLatency(100, 0);
+        ArrayList<FullNode> nodes = new ArrayList<>();
+        nodes.add(new FullNode(mNode.getUrl()));
+        NodeLatencyVerifier verifier = new NodeLatencyVerifier(nodes);
+        PublishSubject<FullNode> subject = verifier.start();
+        FullNode node = subject.timeout(5, TimeUnit.SECONDS).blockingFirst();
+        verifier.stop();
+        assertTrue(node.getLatencyValue() >= 100);
+    }
+
+    @Test
+    public void testLatencyVerifierConnectionReuse() throws Exception {
+        mNode.setLatency(100, 0);
+        ArrayList<FullNode> nodes = new ArrayList<>();
+        FullNode fullNode = new FullNode(mNode.getUrl());
+        nodes.add(fullNode);
+        NodeLatencyVerifier verifier = new NodeLatencyVerifier(nodes, 50, 200);
+        PublishSubject<FullNode> subject = verifier.start();
+        subject.take(5).timeout(5, TimeUnit.SECONDS).blockingLast();
+        long interval = verifier.getProbeInterval(fullNode);
+        verifier.stop();
+
+        // All probes went through a single connection, and the node being stable they backed off
+        assertEquals(1, mNode.getConnectionCount());
+        assertTrue(mNode.getRequestCount() >= 5);
+        assertTrue("Interval: " + interval, interval > 50);
+        assertTrue(fullNode.getLatencyValue() >= 100 && fullNode.getLatencyValue() < 1000);
+    }
+
+    @Test
+    public void testMigration() throws Exception {
+        mNode.record(RPC.CALL_SET_SUBSCRIBE_CALLBACK, "null");
+        FakeFullNode other = new FakeFullNode()
+                .loadRecording("/recordings/bitshares.json")
+                .record(RPC.CALL_SET_SUBSCRIBE_CALLBACK, "null")
+                .start();
+        try{
+            mClient = new NetworkClient.Builder()
+                    .setNodeUrls(Arrays.asList(mNode.getUrl(), other.getUrl()))
+                    .setRequestedApis(ApiAccess.API_DATABASE)
+                    .setAutoConnect(true)
+                    .setNodeLatencyVerification(false)
+                    .build();
+            mClient.start();
+            waitUntilReady(ApiAccess.API_DATABASE);
+            assertTrue("Could not connect to the fake nodes", mClient.isConnected());
+            boolean first = mClient.getSelectedNode().getUrl().equals(mNode.getUrl());
+            FakeFullNode current = first ? mNode : other;
+            FakeFullNode target = first ? other : mNode;
+
+            mClient.sendMessage(new SetSubscribeCallback(false), SetSubscribeCallback.REQUIRED_API);
+            current.setLatency(300, 0);
+            Single<JsonRpcResponse<?>> inFlight = mClient.sendRequest(new GetDynamicGlobalProperties(), ApiAccess.API_DATABASE);
+            int targetRequests = target.getRequestCount();
+            mClient.reconnectNode();
+
+            // The request sent before the switch is still answered by the previous node
+            DynamicGlobalProperties properties = (DynamicGlobalProperties) inFlight.blockingGet().result;
+            assertEquals(34100000, properties.head_block_number);
+
+            long deadline = System.currentTimeMillis() + 5000;
+            while(!mClient.getSelectedNode().getUrl().equals(target.getUrl()) && System.currentTimeMillis() < deadline){
+                Thread.sleep(10);
+            }
+            assertEquals(target.getUrl(), mClient.getSelectedNode().getUrl());
+            assertTrue(mClient.isConnected());
+
+            // Login, database access and the subscription callback were sent to the new node
+            deadline = System.currentTimeMillis() + 5000;
+            while(target.getRequestCount() < targetRequests + 3 && System.currentTimeMillis() < deadline){
+                Thread.sleep(10);
+            }
+            assertTrue(target.getRequestCount() >= targetRequests + 3);
+            RpcMetrics.Snapshot metrics = mClient.getMetrics().getSnapshot();
+            assertEquals(1, metrics.getCounter(RpcMetrics.COUNTER_MIGRATIONS));
+            assertEquals(0, metrics.getCounter(RpcMetrics.COUNTER_TIMEOUTS));
+        }finally{
+            mClient.stop();
+            mClient = null;
+            other.shutdown();
+        }
+    }
+
+    @Test
+    public void testNodeLostDuringMigration() throws Exception {
+        mNode.record(RPC.CALL_SET_SUBSCRIBE_CALLBACK, "null");
+        FakeFullNode other = new FakeFullNode()
+                .loadRecording("/recordings/bitshares.json")
+                .record(RPC.CALL_SET_SUBSCRIBE_CALLBACK, "null")
+                .start();
+        final List<Integer> updates = Collections.synchronizedList(new ArrayList<Integer>());
+        Disposable busSubscription = RxBus.getBusInstance().asFlowable().subscribe(new Consumer<Object>() {
+            @Override
+            public void accept(Object message) {
+                if(message instanceof ConnectionStatusUpdate)
+                    updates.add(((ConnectionStatusUpdate) message).getUpdateCode());
+            }
+        });
+        try{
+            mClient = new NetworkClient.Builder()
+                    .setNodeUrls(Arrays.asList(mNode.getUrl(), other.getUrl()))
+                    .setRequestedApis(ApiAccess.API_DATABASE)
+                    .setAutoConnect(true)
+                    .setNodeLatencyVerification(false)
+                    .build();
+            mClient.start();
+            waitUntilReady(ApiAccess.API_DATABASE);
+            assertTrue("Could not connect to the fake nodes", mClient.isConnected());
+            boolean first = mClient.getSelectedNode().getUrl().equals(mNode.getUrl());
+            FakeFullNode current = first ? mNode : other;
+            FakeFullNode target = first ? other : mNode;
+
+            mClient.sendMessage(new SetSubscribeCallback(false), SetSubscribeCallback.REQUIRED_API);
+            int targetRequests = target.getRequestCount();
+
+            // The handshake with the new node is still going on when the old one is lost
+            target.setLatency(300, 0);
+            mClient.reconnectNode();
+            Thread.sleep(100);
+            updates.clear();
+            current.dropConnections(1001);
+
+            // The listeners first learn that the node was lost, and then that the new one is ready
+            long deadline = System.currentTimeMillis() + 5000;
+            while(!updates.contains(ConnectionStatusUpdate.API_UPDATE) && System.currentTimeMillis() < deadline){
+                Thread.sleep(10);
+            }
+            assertTrue(mClient.isConnected());
+            assertEquals(target.getUrl(), mClient.getSelectedNode().getUrl());
+
+            // The new node is announced to the listeners, and the subscription callback is set up on it
+            deadline = System.currentTimeMillis() + 5000;
+            while(target.getRequestCount() < targetRequests + 3 && System.currentTimeMillis() < deadline){
+                Thread.sleep(10);
+            }
+            assertTrue(target.getRequestCount() >= targetRequests + 3);
+            assertEquals(ConnectionStatusUpdate.DISCONNECTED, (int) updates.get(0));
+            assertTrue(updates.contains(ConnectionStatusUpdate.CONNECTED));
+            assertTrue(updates.contains(ConnectionStatusUpdate.AUTHENTICATED));
+            assertTrue(updates.contains(ConnectionStatusUpdate.API_UPDATE));
+        }finally{
+            busSubscription.dispose();
+            mClient.stop();
+            mClient = null;
+            other.shutdown();
+        }
+    }
+
+    @Test
+    public void testConnectionRace() throws Exception {
+        FakeFullNode slow = new FakeFullNode()
+                .loadRecording("/recordings/bitshares.json")
+                .setLatency(2000, 0)
+                .start();
+        File file = File.createTempFile("nodes", ".json");
+        try{
+            // The statistics of a previous run rank the node that is now slow as the best one
+            FullNode slowNode = new FullNode(slow.getUrl());
+            slowNode.addLatencyValue(10);
+            FullNode fastNode = new FullNode(mNode.getUrl());
+            fastNode.addLatencyValue(100);
+            new NodeStatisticsStore(file).save(Arrays.asList(slowNode, fastNode));
+
+            mClient = new NetworkClient.Builder()
+                    .setNodeUrls(Arrays.asList(slow.getUrl(), mNode.getUrl()))
+                    .setRequestedApis(ApiAccess.API_DATABASE)
+                    .setAutoConnect(true)
+                    .setNodeLatencyVerification(false)
+                    .setNodeStatisticsStore(new NodeStatisticsStore(file))
+                    .build();
+            long before = System.currentTimeMillis();
+            mClient.start();
+            while(!mClient.isConnected() && System.currentTimeMillis() - before < 5000){
+                Thread.sleep(10);
+            }
+            long elapsed = System.currentTimeMillis() - before;
+
+            // The second node was attempted shortly after the first one and won the race
+            assertTrue(mClient.isConnected());
+            assertTrue("Elapsed: " + elapsed, elapsed < 1500);
+            assertEquals(mNode.getUrl(), mClient.getSelectedNode().getUrl());
+
+            // The attempt with the slow node was started, and is cancelled once its upgrade completes
+            assertEquals(1, slow.getConnectionAttemptCount());
+            assertEquals(0, slow.getConnectionCount());
+            Thread.sleep(2500);
+            assertEquals(0, slow.getRequestCount());
+            assertEquals(mNode.getUrl(), mClient.getSelectedNode().getUrl());
+            assertEquals(1, mClient.getMetrics().getSnapshot().getCounter(RpcMetrics.COUNTER_CONNECTIONS));
+        }finally{
+            mClient.stop();
+            mClient = null;
+            slow.shutdown();
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testHedgedRequest() throws Exception {
+        FakeFullNode other = new FakeFullNode()
+                .loadRecording("/recordings/bitshares.json")
+                .start();
+        final AtomicInteger strayResponses = new AtomicInteger();
+        Disposable busSubscription = RxBus.getBusInstance().asFlowable().subscribe(new Consumer<Object>() {
+            @Override
+            public void accept(Object message) {
+                if(message instanceof JsonRpcResponse) strayResponses.incrementAndGet();
+            }
+        });
+        try{
+            mClient = new NetworkClient.Builder()
+                    .setNodeUrls(Arrays.asList(mNode.getUrl(), other.getUrl()))
+                    .setRequestedApis(ApiAccess.API_DATABASE)
+                    .setAutoConnect(true)
+                    .setNodeLatencyVerification(false)
+                    .setConnectionPoolSize(2)
+                    .build();
+            mClient.start();
+            long deadline = System.currentTimeMillis() + 5000;
+            while(mClient.getMetrics().getSnapshot().getGauge(RpcMetrics.GAUGE_READY_SESSIONS) < 2
+                    && System.currentTimeMillis() < deadline){
+                Thread.sleep(10);
+            }
+            assertEquals(2, mClient.getMetrics().getSnapshot().getGauge(RpcMetrics.GAUGE_READY_SESSIONS));
+            FakeFullNode slow = mClient.getSelectedNode().getUrl().equals(mNode.getUrl()) ? mNode : other;
+            slow.setLatency(1500, 0);
+
+            // The request is hedged to the fast node after the default delay, and its response wins
+            long before = System.nanoTime();
+            JsonRpcResponse<?> response = mClient
+                    .sendHedgedRequest(new GetDynamicGlobalProperties(), ApiAccess.API_DATABASE)
+                    .blockingGet();
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - before);
+            assertEquals(34100000, ((DynamicGlobalProperties) response.result).head_block_number);
+            assertTrue("Elapsed: " + elapsed, elapsed < 1500);
+
+            // The late response of the slow node is not broadcasted to the bus
+            Thread.sleep(2000);
+            assertEquals(0, strayResponses.get());
+        }finally{
+            busSubscription.dispose();
+            mClient.stop();
+            mClient = null;
+            other.shutdown();
+        }
+    }
+}
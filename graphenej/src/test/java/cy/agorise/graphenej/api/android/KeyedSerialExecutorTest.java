@@ -0,0 +1,99 @@
+package cy.agorise.graphenej.api.android;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class KeyedSerialExecutorTest {
+
+    @Test
+    public void testOrderPerKey() throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        KeyedSerialExecutor executor = new KeyedSerialExecutor(pool);
+        final int keys = 5;
+        final int tasksPerKey = 200;
+        final CountDownLatch latch = new CountDownLatch(keys * tasksPerKey);
+        final List<List<Integer>> results = new ArrayList<>();
+        for(int i = 0; i < keys; i++){
+            results.add(Collections.synchronizedList(new ArrayList<Integer>()));
+        }
+        for(int n = 0; n < tasksPerKey; n++){
+            for(int i = 0; i < keys; i++){
+                final List<Integer> result = results.get(i);
+                final int value = n;
+                executor.execute(i, new Runnable() {
+                    @Override
+                    public void run() {
+                        result.add(value);
+                        latch.countDown();
+                    }
+                });
+            }
+        }
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        for(List<Integer> result : results){
+            assertEquals(tasksPerKey, result.size());
+            for(int n = 0; n < tasksPerKey; n++){
+                assertEquals(n, (int) result.get(n));
+            }
+        }
+        pool.shutdown();
+    }
+
+    @Test
+    public void testFailingTaskDoesNotStallKey() throws InterruptedException {
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        KeyedSerialExecutor executor = new KeyedSerialExecutor(pool);
+        final CountDownLatch latch = new CountDownLatch(1);
+        executor.execute("key", new Runnable() {
+            @Override
+            public void run() {
+                throw new IllegalStateException("Failing task");
+            }
+        });
+        executor.execute("key", new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        });
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        pool.shutdown();
+    }
+
+    @Test
+    public void testIndependentKeysRunConcurrently() throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        KeyedSerialExecutor executor = new KeyedSerialExecutor(pool);
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(1);
+        executor.execute("slow", new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    blocked.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        executor.execute("fast", new Runnable() {
+            @Override
+            public void run() {
+                done.countDown();
+            }
+        });
+        assertTrue("A slow task must not hold back other keys", done.await(2, TimeUnit.SECONDS));
+        blocked.countDown();
+        pool.shutdown();
+    }
+}
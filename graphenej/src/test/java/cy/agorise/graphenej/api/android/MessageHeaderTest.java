@@ -0,0 +1,52 @@
+package cy.agorise.graphenej.api.android;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MessageHeaderTest {
+
+    @Test
+    public void testResponse(){
+        MessageHeader header = MessageHeader.read("{\"id\":12,\"jsonrpc\":\"2.0\",\"result\":[{\"id\":\"1.3.0\"}]}");
+        assertEquals(12, header.id);
+        assertNull(header.method);
+        assertFalse(header.isNotification());
+    }
+
+    @Test
+    public void testResponseWithTrailingId(){
+        // Nested 'id' fields of the payload must not be taken as the id of the response
+        MessageHeader header = MessageHeader.read("{\"jsonrpc\":\"2.0\",\"result\":{\"objects\":[{\"id\":5}]},\"id\":\"7\"}");
+        assertEquals(7, header.id);
+        assertFalse(header.isNotification());
+    }
+
+    @Test
+    public void testNotification(){
+        MessageHeader header = MessageHeader.read("{\"method\":\"notice\",\"params\":[1,[[\"2.1.0\"]]]}");
+        assertEquals(MessageHeader.NO_ID, header.id);
+        assertEquals("notice", header.method);
+        assertEquals(1, header.subscriptionId);
+        assertTrue(header.isNotification());
+
+        // Parameters could also come before the method
+        header = MessageHeader.read("{\"params\":[3,[[\"2.1.0\"]]],\"method\":\"notice\"}");
+        assertEquals("notice", header.method);
+        assertEquals(3, header.subscriptionId);
+    }
+
+    @Test
+    public void testMalformedMessage(){
+        MessageHeader header = MessageHeader.read("not a json message");
+        assertEquals(MessageHeader.NO_ID, header.id);
+        assertFalse(header.isNotification());
+
+        header = MessageHeader.read("{\"id\":null,\"error\":{\"message\":\"Unknown\"}}");
+        assertEquals(MessageHeader.NO_ID, header.id);
+        assertFalse(header.isNotification());
+    }
+}
@@ -0,0 +1,46 @@
+package cy.agorise.graphenej.api.android;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import cy.agorise.graphenej.api.ApiAccess;
+import cy.agorise.graphenej.api.calls.GetBlock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+public class NetworkClientTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMissingNodeUrls(){
+        new NetworkClient.Builder()
+                .setNodeUrls(new ArrayList<String>())
+                .build();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoConnectionStrategy(){
+        new NetworkClient.Builder()
+                .setNodeUrls(Arrays.asList("wss://domain1.com/ws"))
+                .setAutoConnect(false)
+                .setNodeLatencyVerification(false)
+                .build();
+    }
+
+    @Test
+    public void testStateBeforeConnecting(){
+        NetworkClient client = new NetworkClient.Builder()
+                .setNodeUrls(Arrays.asList("wss://domain1.com/ws", "wss://domain2.com/ws"))
+                .setRequestedApis(ApiAccess.API_DATABASE)
+                .build();
+        assertFalse(client.isConnected());
+        assertFalse(client.hasApiId(ApiAccess.API_DATABASE));
+        assertNull(client.getSelectedNode());
+        assertEquals(0, client.getNodes().size());
+        assertEquals(-1, client.sendMessage(new GetBlock(1), ApiAccess.API_NONE));
+        client.stop();
+    }
+}
@@ -0,0 +1,110 @@
+package cy.agorise.graphenej.api.android;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PersistentObjectStoreTest {
+
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        file = File.createTempFile("objects", ".db");
+    }
+
+    @After
+    public void tearDown(){
+        file.delete();
+    }
+
+    @Test
+    public void testPutAndGet() throws Exception {
+        PersistentObjectStore store = new PersistentObjectStore(file);
+        store.put("1.3.0", "{\"symbol\":\"BTS\"}");
+        store.put("1.3.121", "{\"symbol\":\"USD\"}");
+        store.put("1.3.0", "{\"symbol\":\"BTS\",\"precision\":5}");
+        assertEquals(2, store.size());
+        assertEquals("{\"symbol\":\"BTS\",\"precision\":5}", store.get("1.3.0", PersistentObjectStore.ANY_AGE));
+        assertEquals("{\"symbol\":\"USD\"}", store.get("1.3.121", PersistentObjectStore.ANY_AGE));
+        assertNull(store.get("1.3.1", PersistentObjectStore.ANY_AGE));
+        store.close();
+    }
+
+    @Test
+    public void testReopen() throws Exception {
+        PersistentObjectStore store = new PersistentObjectStore(file);
+        store.put("block/1", "{\"witness\":\"1.6.1\"}");
+        store.put("account/init0", "1.2.100");
+        store.put("block/1", "{\"witness\":\"1.6.2\"}");
+        store.close();
+
+        store = new PersistentObjectStore(file);
+        assertEquals(2, store.size());
+        assertEquals("{\"witness\":\"1.6.2\"}", store.get("block/1", PersistentObjectStore.ANY_AGE));
+        assertEquals("1.2.100", store.get("account/init0", PersistentObjectStore.ANY_AGE));
+
+        // New records must be appended after the existing ones
+        store.put("block/2", "{}");
+        store.close();
+        store = new PersistentObjectStore(file);
+        assertEquals(3, store.size());
+        store.close();
+    }
+
+    @Test
+    public void testMaxAge() throws Exception {
+        PersistentObjectStore store = new PersistentObjectStore(file);
+        store.put("1.3.0", "{}");
+        Thread.sleep(20);
+        assertNull(store.get("1.3.0", 10));
+        assertEquals("{}", store.get("1.3.0", PersistentObjectStore.ANY_AGE));
+        store.close();
+    }
+
+    @Test
+    public void testUnknownFile() throws Exception {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        randomAccessFile.writeBytes("Not an object store");
+        randomAccessFile.close();
+
+        PersistentObjectStore store = new PersistentObjectStore(file);
+        assertEquals(0, store.size());
+        store.put("1.3.0", "{}");
+        assertEquals("{}", store.get("1.3.0", PersistentObjectStore.ANY_AGE));
+        store.close();
+    }
+
+    @Test
+    public void testGrowthAndCompaction() throws Exception {
+        int maxSize = 4 * PersistentObjectStore.INITIAL_SIZE;
+        PersistentObjectStore store = new PersistentObjectStore(file, maxSize);
+        StringBuilder value = new StringBuilder();
+        for(int i = 0; i < 1000; i++) value.append('x');
+
+        // Writing about twice the maximum size
+        int count = 2 * maxSize / 1000;
+        for(int i = 0; i < count; i++){
+            store.put("block/" + i, value.toString());
+        }
+        assertTrue(file.length() <= maxSize);
+        assertTrue(store.size() < count);
+        // The newest records are always kept
+        assertEquals(value.toString(), store.get("block/" + (count - 1), PersistentObjectStore.ANY_AGE));
+        assertNull(store.get("block/0", PersistentObjectStore.ANY_AGE));
+        int size = store.size();
+        store.close();
+
+        store = new PersistentObjectStore(file, maxSize);
+        assertEquals(size, store.size());
+        assertEquals(value.toString(), store.get("block/" + (count - 1), PersistentObjectStore.ANY_AGE));
+        store.close();
+    }
+}
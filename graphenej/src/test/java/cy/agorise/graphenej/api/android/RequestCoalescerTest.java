@@ -0,0 +1,55 @@
+package cy.agorise.graphenej.api.android;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import cy.agorise.graphenej.api.calls.GetObjects;
+import cy.agorise.graphenej.models.JsonRpcResponse;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class RequestCoalescerTest {
+
+    @Test
+    public void testSplitResponse(){
+        // Merged request for the ids 1.3.0, 1.3.121 and 1.3.120, in that order
+        LinkedHashMap<String, Integer> indexes = new LinkedHashMap<>();
+        indexes.put("1.3.0", 0);
+        indexes.put("1.3.121", 1);
+        indexes.put("1.3.120", 2);
+        JsonRpcResponse<List<String>> merged = new JsonRpcResponse<>();
+        merged.id = 5;
+        merged.result = new ArrayList<>(Arrays.asList("BTS", "USD", "EUR"));
+
+        JsonRpcResponse<?> first = RequestCoalescer.splitResponse(merged, Arrays.asList("1.3.120", "1.3.0"), indexes);
+        assertEquals(Arrays.asList("EUR", "BTS"), first.result);
+        assertEquals(5, first.id);
+
+        JsonRpcResponse<?> second = RequestCoalescer.splitResponse(merged, Arrays.asList("1.3.121", "1.3.1"), indexes);
+        List<?> secondResult = (List<?>) second.result;
+        assertEquals("USD", secondResult.get(0));
+        assertNull("Ids missing from the merged request map to null entries", secondResult.get(1));
+    }
+
+    @Test
+    public void testSplitErrorResponse(){
+        JsonRpcResponse<List<String>> merged = new JsonRpcResponse<>();
+        merged.error = new JsonRpcResponse.Error("Assert Exception");
+        JsonRpcResponse<?> split = RequestCoalescer.splitResponse(merged, Arrays.asList("1.3.0"), new LinkedHashMap<String, Integer>());
+        assertSame("Error responses are passed on as they are", merged, split);
+    }
+
+    @Test
+    public void testBatchableCallSerialization(){
+        GetObjects getObjects = new GetObjects(Arrays.asList("2.4.21"));
+        GetObjects merged = (GetObjects) getObjects.withObjectIds(Arrays.asList("2.4.21", "2.4.22"));
+        String expected = "{\"id\":3,\"method\":\"call\",\"params\":[2,\"get_objects\",[[\"2.4.21\",\"2.4.22\"]]],\"jsonrpc\":\"2.0\"}";
+        assertEquals(expected, merged.toApiCall(2, 3).toJsonString());
+    }
+}
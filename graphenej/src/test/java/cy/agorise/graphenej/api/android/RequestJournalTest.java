@@ -0,0 +1,74 @@
+package cy.agorise.graphenej.api.android;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import cy.agorise.graphenej.api.ApiAccess;
+import cy.agorise.graphenej.api.calls.CancelAllSubscriptions;
+import cy.agorise.graphenej.api.calls.GetBlock;
+import cy.agorise.graphenej.api.calls.GetDynamicGlobalProperties;
+import cy.agorise.graphenej.models.JsonRpcResponse;
+import io.reactivex.subjects.SingleSubject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RequestJournalTest {
+
+    private PendingRequest createRequest(){
+        SingleSubject<JsonRpcResponse<?>> subject = SingleSubject.create();
+        return new PendingRequest(new GetBlock(1000), ApiAccess.API_DATABASE, subject);
+    }
+
+    @Test
+    public void testCapacityAndOrder(){
+        RequestJournal journal = new RequestJournal(2, 3);
+        PendingRequest first = createRequest();
+        PendingRequest second = createRequest();
+        assertTrue(journal.add(first));
+        assertTrue(journal.add(second));
+        assertFalse("Requests beyond the capacity are rejected", journal.add(createRequest()));
+
+        List<PendingRequest> drained = journal.drain();
+        assertEquals(2, drained.size());
+        assertSame(first, drained.get(0));
+        assertSame(second, drained.get(1));
+        assertEquals(0, journal.size());
+    }
+
+    @Test
+    public void testRetryBudget(){
+        RequestJournal journal = new RequestJournal(10, 2);
+        PendingRequest request = createRequest();
+        request.attempts = 1;
+        assertTrue(journal.add(request));
+        assertTrue(journal.remove(request));
+        request.attempts = 2;
+        assertFalse("Requests that used up their attempts are rejected", journal.add(request));
+    }
+
+    @Test
+    public void testNonReplayableRequests(){
+        RequestJournal journal = new RequestJournal();
+        SingleSubject<JsonRpcResponse<?>> subject = SingleSubject.create();
+        assertFalse(journal.add(new PendingRequest(new CancelAllSubscriptions(), ApiAccess.API_NONE, subject)));
+        assertFalse("Requests without a subject are rejected",
+                journal.add(new PendingRequest(new GetDynamicGlobalProperties(), ApiAccess.API_NONE, null)));
+    }
+
+    @Test
+    public void testRetryDelay(){
+        RequestJournal journal = new RequestJournal();
+        for(int i = 0; i < 100; i++){
+            long first = journal.getRetryDelay(1);
+            assertTrue(first >= RequestJournal.BASE_RETRY_DELAY / 2 && first <= RequestJournal.BASE_RETRY_DELAY * 3 / 2);
+            long third = journal.getRetryDelay(3);
+            assertTrue(third >= RequestJournal.BASE_RETRY_DELAY * 2 && third <= RequestJournal.BASE_RETRY_DELAY * 6);
+            long last = journal.getRetryDelay(100);
+            assertTrue(last <= RequestJournal.MAX_RETRY_DELAY * 3 / 2);
+        }
+    }
+}
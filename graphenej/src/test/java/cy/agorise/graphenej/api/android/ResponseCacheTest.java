@@ -0,0 +1,84 @@
+package cy.agorise.graphenej.api.android;
+
+import org.junit.Test;
+
+import cy.agorise.graphenej.api.ApiAccess;
+import cy.agorise.graphenej.api.calls.GetBlock;
+import cy.agorise.graphenej.api.calls.GetDynamicGlobalProperties;
+import cy.agorise.graphenej.models.JsonRpcResponse;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class ResponseCacheTest {
+
+    private static JsonRpcResponse<Object> response(Object result){
+        JsonRpcResponse<Object> response = new JsonRpcResponse<>();
+        response.result = result;
+        return response;
+    }
+
+    @Test
+    public void testHitsAndMisses(){
+        ResponseCache cache = new ResponseCache();
+        GetBlock call = new GetBlock(100);
+        String key = cache.getKey(call, ApiAccess.API_DATABASE);
+        assertNull(cache.get(key));
+
+        JsonRpcResponse<Object> response = response("block");
+        cache.put(key, call, response);
+        assertSame(response, cache.get(cache.getKey(new GetBlock(100), ApiAccess.API_DATABASE)));
+        assertNull(cache.get(cache.getKey(new GetBlock(101), ApiAccess.API_DATABASE)));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(1.0 / 3, cache.getHitRate(), 0.0001);
+    }
+
+    @Test
+    public void testUncacheableResponses(){
+        ResponseCache cache = new ResponseCache();
+        assertNull(cache.getKey(new GetDynamicGlobalProperties(), ApiAccess.API_DATABASE));
+
+        // Missing blocks and errors are not stored
+        GetBlock call = new GetBlock(100);
+        String key = cache.getKey(call, ApiAccess.API_DATABASE);
+        cache.put(key, call, response(null));
+        JsonRpcResponse<Object> error = response("block");
+        error.error = new JsonRpcResponse.Error("Failed");
+        cache.put(key, call, error);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testEviction(){
+        ResponseCache cache = new ResponseCache(2);
+        for(int i = 0; i < 3; i++){
+            GetBlock call = new GetBlock(i);
+            cache.put(cache.getKey(call, ApiAccess.API_DATABASE), call, response(i));
+            if(i == 1){
+                // Using the first entry, so that the second one is the least recently used
+                cache.get(cache.getKey(new GetBlock(0), ApiAccess.API_DATABASE));
+            }
+        }
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(0, cache.get(cache.getKey(new GetBlock(0), ApiAccess.API_DATABASE)).result);
+        assertNull(cache.get(cache.getKey(new GetBlock(1), ApiAccess.API_DATABASE)));
+        assertEquals(2, cache.get(cache.getKey(new GetBlock(2), ApiAccess.API_DATABASE)).result);
+    }
+
+    @Test
+    public void testExpiration() throws InterruptedException {
+        ResponseCache cache = new ResponseCache();
+        cache.setTimeToLive(GetBlock.class, 50);
+        GetBlock call = new GetBlock(100);
+        String key = cache.getKey(call, ApiAccess.API_DATABASE);
+        cache.put(key, call, response("block"));
+        assertNotEquals(null, cache.get(key));
+        Thread.sleep(100);
+        assertNull(cache.get(key));
+        assertEquals(0, cache.size());
+    }
+}
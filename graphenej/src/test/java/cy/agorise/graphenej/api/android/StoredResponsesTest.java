@@ -0,0 +1,57 @@
+package cy.agorise.graphenej.api.android;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+
+import cy.agorise.graphenej.api.calls.GetBlock;
+import cy.agorise.graphenej.api.calls.GetDynamicGlobalProperties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class StoredResponsesTest {
+    private static final String BLOCK = "{\"id\":1,\"jsonrpc\":\"2.0\",\"result\":{\"witness\":\"1.6.1\"}}";
+
+    private File file;
+    private PersistentObjectStore store;
+    private StoredResponses storedResponses;
+
+    @Before
+    public void setUp() throws Exception {
+        file = File.createTempFile("objects", ".db");
+        store = new PersistentObjectStore(file);
+        storedResponses = new StoredResponses(store);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        store.close();
+        file.delete();
+    }
+
+    private static String globalProperties(long lastIrreversibleBlock){
+        return "{\"id\":2,\"jsonrpc\":\"2.0\",\"result\":{\"head_block_number\":" + (lastIrreversibleBlock + 15)
+                + ",\"last_irreversible_block_num\":" + lastIrreversibleBlock + "}}";
+    }
+
+    @Test
+    public void testOnlyIrreversibleBlocksAreStored(){
+        // Nothing is known about the irreversible blocks yet
+        storedResponses.save(new GetBlock(100), BLOCK);
+        assertNull(storedResponses.load(new GetBlock(100)));
+
+        storedResponses.save(new GetDynamicGlobalProperties(), globalProperties(100));
+        storedResponses.save(new GetBlock(100), BLOCK);
+        storedResponses.save(new GetBlock(101), BLOCK);
+        assertEquals("{\"witness\":\"1.6.1\"}", storedResponses.load(new GetBlock(100)));
+        assertNull(storedResponses.load(new GetBlock(101)));
+
+        // An older response does not move the last irreversible block back
+        storedResponses.save(new GetDynamicGlobalProperties(), globalProperties(90));
+        storedResponses.save(new GetBlock(95), BLOCK);
+        assertEquals("{\"witness\":\"1.6.1\"}", storedResponses.load(new GetBlock(95)));
+    }
+}
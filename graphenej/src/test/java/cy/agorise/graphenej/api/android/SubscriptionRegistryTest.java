@@ -0,0 +1,79 @@
+package cy.agorise.graphenej.api.android;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import cy.agorise.graphenej.api.ApiAccess;
+import cy.agorise.graphenej.api.calls.CancelAllSubscriptions;
+import cy.agorise.graphenej.api.calls.GetDynamicGlobalProperties;
+import cy.agorise.graphenej.api.calls.GetFullAccounts;
+import cy.agorise.graphenej.api.calls.SetSubscribeCallback;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SubscriptionRegistryTest {
+
+    @Test
+    public void testRegisteredCalls(){
+        SubscriptionRegistry registry = new SubscriptionRegistry();
+        SetSubscribeCallback callback = new SetSubscribeCallback(false);
+        GetFullAccounts subscribed = new GetFullAccounts(Arrays.asList("1.2.100"), true);
+        registry.onRequestSent(callback, ApiAccess.API_DATABASE);
+        registry.onRequestSent(new GetDynamicGlobalProperties(), ApiAccess.API_DATABASE);
+        registry.onRequestSent(new GetFullAccounts(Arrays.asList("1.2.100"), false), ApiAccess.API_NONE);
+        registry.onRequestSent(subscribed, ApiAccess.API_NONE);
+
+        // Identical calls are only kept once
+        registry.onRequestSent(new GetFullAccounts(Arrays.asList("1.2.100"), true), ApiAccess.API_NONE);
+
+        List<SubscriptionRegistry.Entry> entries = registry.getEntries();
+        assertEquals(2, entries.size());
+        assertSame(callback, entries.get(0).apiCallable);
+        assertEquals(ApiAccess.API_DATABASE, entries.get(0).requiredApi);
+        assertTrue(entries.get(1).apiCallable instanceof GetFullAccounts);
+    }
+
+    @Test
+    public void testReplayKeepsRegistry(){
+        SubscriptionRegistry registry = new SubscriptionRegistry();
+        registry.onRequestSent(new SetSubscribeCallback(false), ApiAccess.API_DATABASE);
+        registry.onRequestSent(new GetFullAccounts(Arrays.asList("1.2.100"), true), ApiAccess.API_NONE);
+        registry.onRequestSent(new GetFullAccounts(Arrays.asList("1.2.200"), true), ApiAccess.API_NONE);
+
+        List<SubscriptionRegistry.Entry> entries = registry.getEntries();
+        for(SubscriptionRegistry.Entry entry : entries){
+            registry.onRequestSent(entry.apiCallable, entry.requiredApi);
+        }
+        List<SubscriptionRegistry.Entry> replayed = registry.getEntries();
+        assertEquals(entries.size(), replayed.size());
+        for(int i = 0; i < entries.size(); i++){
+            assertSame(entries.get(i).apiCallable, replayed.get(i).apiCallable);
+        }
+    }
+
+    @Test
+    public void testResetAndCapacity(){
+        SubscriptionRegistry registry = new SubscriptionRegistry(3);
+        SetSubscribeCallback callback = new SetSubscribeCallback(false);
+        registry.onRequestSent(callback, ApiAccess.API_DATABASE);
+        GetFullAccounts[] accounts = new GetFullAccounts[5];
+        for(int i = 0; i < accounts.length; i++){
+            accounts[i] = new GetFullAccounts(Arrays.asList("1.2." + i), true);
+            registry.onRequestSent(accounts[i], ApiAccess.API_NONE);
+        }
+
+        // The subscription callback stays, the oldest account subscriptions are dropped
+        List<SubscriptionRegistry.Entry> entries = registry.getEntries();
+        assertEquals(3, entries.size());
+        assertSame(callback, entries.get(0).apiCallable);
+        assertSame(accounts[3], entries.get(1).apiCallable);
+        assertSame(accounts[4], entries.get(2).apiCallable);
+
+        registry.onRequestSent(new CancelAllSubscriptions(), ApiAccess.API_DATABASE);
+        assertTrue(registry.isEmpty());
+    }
+}
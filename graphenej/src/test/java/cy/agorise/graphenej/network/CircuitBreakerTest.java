@@ -0,0 +1,124 @@
+package cy.agorise.graphenej.network;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CircuitBreakerTest {
+    private static final long HALF_LIFE = 30 * 1000;
+    private static final long MIN_OPEN_INTERVAL = 2 * 1000;
+    private static final long MAX_OPEN_INTERVAL = 8 * 1000;
+
+    private long time;
+    private CircuitBreaker breaker;
+
+    @Before
+    public void setUp(){
+        time = 1000;
+        breaker = new CircuitBreaker(3, HALF_LIFE, MIN_OPEN_INTERVAL, MAX_OPEN_INTERVAL){
+            @Override
+            long now() {
+                return time;
+            }
+        };
+    }
+
+    private void trip(){
+        breaker.onFailure();
+        breaker.onFailure();
+        breaker.onFailure();
+    }
+
+    @Test
+    public void testOpensAfterThreshold(){
+        breaker.onFailure();
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest());
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+        assertFalse(breaker.isAvailable());
+        assertEquals(MIN_OPEN_INTERVAL, breaker.getRemainingOpenTime());
+    }
+
+    @Test
+    public void testTimeoutWeight(){
+        // A slow call weighs less than a lost connection
+        for(int i = 0; i < 5; i++){
+            breaker.onTimeout();
+        }
+        assertEquals(5 * CircuitBreaker.TIMEOUT_WEIGHT, breaker.getFailureScore(), 1e-9);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        breaker.onTimeout();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void testFailureScoreDecay(){
+        breaker.onFailure();
+        breaker.onFailure();
+        assertEquals(2, breaker.getFailureScore(), 1e-9);
+
+        // After one half-life the two failures only count as one
+        time += HALF_LIFE;
+        assertEquals(1, breaker.getFailureScore(), 1e-9);
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void testHalfOpenSingleAttempt(){
+        trip();
+        time += MIN_OPEN_INTERVAL;
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.isAvailable());
+
+        // Only one attempt goes through until its outcome is known
+        assertTrue(breaker.allowRequest());
+        assertFalse(breaker.allowRequest());
+        assertFalse(breaker.isAvailable());
+
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(0, breaker.getFailureScore(), 0);
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    public void testOpenIntervalBackOff(){
+        trip();
+        long expected = MIN_OPEN_INTERVAL;
+        for(int i = 0; i < 4; i++){
+            assertEquals(expected, breaker.getRemainingOpenTime());
+            time += expected;
+            assertTrue(breaker.allowRequest());
+            breaker.onFailure();
+            assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+            expected = Math.min(expected * 2, MAX_OPEN_INTERVAL);
+        }
+        assertEquals(MAX_OPEN_INTERVAL, breaker.getRemainingOpenTime());
+
+        // A success resets the interval
+        time += MAX_OPEN_INTERVAL;
+        assertTrue(breaker.allowRequest());
+        breaker.onSuccess();
+        trip();
+        assertEquals(MIN_OPEN_INTERVAL, breaker.getRemainingOpenTime());
+    }
+
+    @Test
+    public void testUnreportedAttempt(){
+        trip();
+        time += MIN_OPEN_INTERVAL;
+        assertTrue(breaker.allowRequest());
+
+        // The attempt never reported back, so it is eventually considered failed
+        time += 30 * 1000;
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(2 * MIN_OPEN_INTERVAL, breaker.getRemainingOpenTime());
+    }
+}
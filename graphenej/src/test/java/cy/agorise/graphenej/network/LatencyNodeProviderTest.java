@@ -5,6 +5,7 @@ import org.junit.Test;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 
 public class LatencyNodeProviderTest {
     private FullNode nodeA, nodeB, nodeC;
@@ -176,4 +177,26 @@ public class LatencyNodeProviderTest {
         FullNode best = provider.getBestNode();
         assertEquals("Expects node4 to be the best", node4, best);
     }
+
+    @Test
+    public void testUnavailableNodes(){
+        setupTestNodes();
+        for(int i = 0; i < 3; i++){
+            nodeC.getCircuitBreaker().onFailure();
+        }
+
+        // The fastest node is out of use, but its position in the heap is unchanged
+        assertEquals(nodeB, latencyNodeProvider.getBestNode());
+        List<FullNode> sortedNodes = latencyNodeProvider.getSortedNodes();
+        assertEquals(nodeB, sortedNodes.get(0));
+        assertEquals(nodeA, sortedNodes.get(1));
+        assertEquals(nodeC, sortedNodes.get(2));
+
+        for(int i = 0; i < 3; i++){
+            nodeA.getCircuitBreaker().onFailure();
+            nodeB.getCircuitBreaker().onFailure();
+        }
+        assertNull(latencyNodeProvider.getBestNode());
+        assertEquals(3, latencyNodeProvider.getSortedNodes().size());
+    }
 }
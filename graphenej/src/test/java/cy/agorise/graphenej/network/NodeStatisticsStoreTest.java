@@ -0,0 +1,112 @@
+package cy.agorise.graphenej.network;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class NodeStatisticsStoreTest {
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        file = File.createTempFile("graphenej-nodes", ".json");
+        file.delete();
+    }
+
+    @After
+    public void tearDown(){
+        file.delete();
+    }
+
+    @Test
+    public void testSaveAndLoad(){
+        FullNode nodeA = new FullNode("wss://nodeA");
+        FullNode nodeB = new FullNode("wss://nodeB");
+        FullNode nodeC = new FullNode("wss://nodeC");
+        nodeA.addLatencyValue(120);
+        nodeA.addCallResult(true);
+        nodeB.addLatencyValue(40);
+        nodeB.addCallResult(false);
+        nodeB.addCallResult(false);
+        // A node whose latency average was poisoned by a penalty
+        nodeC.addLatencyValue(Long.MAX_VALUE);
+        new NodeStatisticsStore(file).save(Arrays.asList(nodeA, nodeB, nodeC));
+
+        FullNode restoredA = new FullNode("wss://nodeA");
+        FullNode restoredB = new FullNode("wss://nodeB");
+        FullNode restoredC = new FullNode("wss://nodeC");
+        FullNode unknown = new FullNode("wss://unknown");
+        List<FullNode> nodes = Arrays.asList(restoredA, restoredB, restoredC, unknown);
+        assertEquals(3, new NodeStatisticsStore(file).load(nodes));
+
+        assertEquals(120, restoredA.getLatencyValue(), 0.001);
+        assertEquals(nodeA.getLastSuccessTime(), restoredA.getLastSuccessTime());
+        assertEquals(40, restoredB.getLatencyValue(), 0.001);
+        assertEquals(2, restoredB.getFailureCount());
+        assertEquals(nodeB.getErrorRate(), restoredB.getErrorRate(), 0.001);
+        assertEquals(Long.MAX_VALUE, restoredC.getLatencyValue(), 0);
+        assertEquals(Long.MAX_VALUE, unknown.getLatencyValue(), 0);
+
+        // The restored statistics are enough to rank the nodes right away
+        ScoringNodeProvider provider = new ScoringNodeProvider();
+        for(FullNode node : nodes) provider.addNode(node);
+        assertTrue(provider.getSortedNodes().indexOf(restoredA) < provider.getSortedNodes().indexOf(restoredC));
+    }
+
+    @Test
+    public void testMaxAge() throws Exception {
+        FullNode node = new FullNode("wss://node");
+        node.addLatencyValue(100);
+        new NodeStatisticsStore(file).save(Arrays.asList(node));
+        Thread.sleep(20);
+
+        FullNode restored = new FullNode("wss://node");
+        assertEquals(0, new NodeStatisticsStore(file, 10).load(Arrays.asList(restored)));
+        assertEquals(Long.MAX_VALUE, restored.getLatencyValue(), 0);
+    }
+
+    @Test
+    public void testRestoredNodesKeepTheirAge() throws Exception {
+        FullNode node = new FullNode("wss://node");
+        node.addLatencyValue(100);
+        new NodeStatisticsStore(file).save(Arrays.asList(node));
+        Thread.sleep(20);
+
+        // Saved again without any new measurement, the statistics keep their original age
+        FullNode restored = new FullNode("wss://node");
+        FullNode unmeasured = new FullNode("wss://unmeasured");
+        assertEquals(1, new NodeStatisticsStore(file).load(Arrays.asList(restored)));
+        assertEquals(node.getLastMeasurementTime(), restored.getLastMeasurementTime());
+        new NodeStatisticsStore(file).save(Arrays.asList(restored, unmeasured));
+        assertEquals(0, new NodeStatisticsStore(file, 10).load(Arrays.asList(new FullNode("wss://node"))));
+
+        // A new measurement makes them fresh again
+        restored.addLatencyValue(80);
+        new NodeStatisticsStore(file).save(Arrays.asList(restored, unmeasured));
+        FullNode fresh = new FullNode("wss://node");
+        assertEquals(1, new NodeStatisticsStore(file, 10000).load(Arrays.asList(fresh, new FullNode("wss://unmeasured"))));
+        assertTrue(fresh.getLastMeasurementTime() > node.getLastMeasurementTime());
+    }
+
+    @Test
+    public void testMissingAndCorruptFile() throws Exception {
+        List<FullNode> nodes = new ArrayList<>();
+        nodes.add(new FullNode("wss://node"));
+        NodeStatisticsStore store = new NodeStatisticsStore(file);
+        assertEquals(0, store.load(nodes));
+
+        FileOutputStream outputStream = new FileOutputStream(file);
+        outputStream.write("[{\"url\":".getBytes("UTF-8"));
+        outputStream.close();
+        assertEquals(0, store.load(nodes));
+    }
+}
@@ -0,0 +1,138 @@
+package cy.agorise.graphenej.network;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ScoringNodeProviderTest {
+    private FullNode nodeA, nodeB, nodeC;
+
+    private ScoringNodeProvider setupTestNodes(NodeSelectionStrategy strategy){
+        // Creating 3 nodes with different latencies, all at the same block
+        nodeA = new FullNode("wss://nodeA");
+        nodeB = new FullNode("wss://nodeB");
+        nodeC = new FullNode("wss://nodeC");
+        nodeA.addLatencyValue(100);
+        nodeB.addLatencyValue(50);
+        nodeC.addLatencyValue(20);
+        nodeA.setHeadBlockNumber(1000);
+        nodeB.setHeadBlockNumber(1000);
+        nodeC.setHeadBlockNumber(1000);
+
+        ScoringNodeProvider provider = new ScoringNodeProvider(strategy);
+        provider.addNode(nodeA);
+        provider.addNode(nodeB);
+        provider.addNode(nodeC);
+        return provider;
+    }
+
+    @Test
+    public void testLatencyOrder(){
+        ScoringNodeProvider provider = setupTestNodes(new NodeSelectionStrategy.StrictBest());
+        List<FullNode> nodes = provider.getSortedNodes();
+        assertEquals(nodeC, nodes.get(0));
+        assertEquals(nodeB, nodes.get(1));
+        assertEquals(nodeA, nodes.get(2));
+        assertEquals(nodeC, provider.getBestNode());
+    }
+
+    @Test
+    public void testBlockLag(){
+        ScoringNodeProvider provider = setupTestNodes(new NodeSelectionStrategy.StrictBest());
+
+        // The fastest node is stuck 20 blocks behind the others
+        nodeC.setHeadBlockNumber(980);
+        provider.updateNode(nodeC);
+        assertEquals(nodeB, provider.getBestNode());
+        assertEquals(nodeC, provider.getSortedNodes().get(2));
+    }
+
+    @Test
+    public void testErrorRate(){
+        ScoringNodeProvider provider = setupTestNodes(new NodeSelectionStrategy.StrictBest());
+
+        // The fastest node fails most of its calls
+        for(int i = 0; i < 10; i++){
+            nodeC.addCallResult(false);
+            nodeB.addCallResult(true);
+        }
+        assertTrue(nodeC.getErrorRate() > 0.5);
+        assertEquals(nodeB, provider.getBestNode());
+    }
+
+    @Test
+    public void testUnmeasuredNodes(){
+        ScoringNodeProvider provider = new ScoringNodeProvider(new NodeSelectionStrategy.PowerOfTwoChoices(new Random(1)));
+        assertNull(provider.getBestNode());
+        FullNode unknown = new FullNode("wss://unknown");
+        provider.addNode(unknown);
+        assertEquals(unknown, provider.getBestNode());
+
+        // Nodes that were never measured are not chosen while there are other options
+        FullNode measured = new FullNode("wss://measured");
+        measured.addLatencyValue(500);
+        provider.addNode(measured);
+        for(int i = 0; i < 100; i++){
+            assertEquals(measured, provider.getBestNode());
+        }
+    }
+
+    @Test
+    public void testWeightedRandom(){
+        ScoringNodeProvider provider = setupTestNodes(new NodeSelectionStrategy.WeightedRandom(new Random(42)));
+        HashMap<FullNode, Integer> counts = select(provider, 3000);
+
+        // With weights inversely proportional to the latency, nodeC should get 5/8 of the selections
+        assertTrue(counts.get(nodeC) > counts.get(nodeB));
+        assertTrue(counts.get(nodeB) > counts.get(nodeA));
+        assertEquals(3000 * 5 / 8.0, counts.get(nodeC), 150);
+    }
+
+    @Test
+    public void testPowerOfTwoChoices(){
+        ScoringNodeProvider provider = setupTestNodes(new NodeSelectionStrategy.PowerOfTwoChoices(new Random(42)));
+        HashMap<FullNode, Integer> counts = select(provider, 3000);
+
+        // The worst of three nodes is never chosen, the other two share the load
+        assertNull(counts.get(nodeA));
+        assertEquals(2000, counts.get(nodeC), 150);
+        assertEquals(1000, counts.get(nodeB), 150);
+    }
+
+    @Test
+    public void testOpenCircuitBreaker(){
+        ScoringNodeProvider provider = setupTestNodes(new NodeSelectionStrategy.StrictBest());
+
+        // The fastest node keeps failing until its circuit breaker opens
+        for(int i = 0; i < CircuitBreaker.DEFAULT_FAILURE_THRESHOLD; i++){
+            nodeC.getCircuitBreaker().onFailure();
+        }
+        assertEquals(CircuitBreaker.State.OPEN, nodeC.getCircuitBreaker().getState());
+        assertEquals(nodeB, provider.getBestNode());
+        assertEquals(nodeC, provider.getSortedNodes().get(2));
+
+        // With all breakers open there is nothing to select, but the nodes are still known
+        for(int i = 0; i < CircuitBreaker.DEFAULT_FAILURE_THRESHOLD; i++){
+            nodeA.getCircuitBreaker().onFailure();
+            nodeB.getCircuitBreaker().onFailure();
+        }
+        assertNull(provider.getBestNode());
+        assertEquals(3, provider.getSortedNodes().size());
+    }
+
+    private HashMap<FullNode, Integer> select(NodeProvider provider, int times){
+        HashMap<FullNode, Integer> counts = new HashMap<>();
+        for(int i = 0; i < times; i++){
+            FullNode node = provider.getBestNode();
+            Integer count = counts.get(node);
+            counts.put(node, count == null ? 1 : count + 1);
+        }
+        return counts;
+    }
+}
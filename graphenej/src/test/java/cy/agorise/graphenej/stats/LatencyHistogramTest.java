@@ -0,0 +1,48 @@
+package cy.agorise.graphenej.stats;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testEmpty(){
+        LatencyHistogram.Snapshot snapshot = new LatencyHistogram().getSnapshot();
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0, snapshot.getMean(), 0);
+        assertEquals(0, snapshot.getPercentile(99), 0);
+    }
+
+    @Test
+    public void testPercentiles(){
+        LatencyHistogram histogram = new LatencyHistogram();
+        for(int i = 1; i <= 1000; i++){
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(i));
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.getSnapshot();
+        assertEquals(1000, snapshot.getCount());
+        assertEquals(500.5, snapshot.getMean(), 0.01);
+        assertEquals(1000, snapshot.getMax(), 0);
+        // Buckets are at most 19% wide, so estimates must be within that error
+        assertEquals(500, snapshot.getPercentile(50), 500 * 0.19);
+        assertEquals(950, snapshot.getPercentile(95), 950 * 0.19);
+        assertEquals(990, snapshot.getPercentile(99), 990 * 0.19);
+        assertTrue(snapshot.getPercentile(99) <= snapshot.getMax());
+        assertTrue(snapshot.getPercentile(50) < snapshot.getPercentile(95));
+    }
+
+    @Test
+    public void testOutOfRangeValues(){
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-1);
+        histogram.record(TimeUnit.HOURS.toNanos(1));
+        LatencyHistogram.Snapshot snapshot = histogram.getSnapshot();
+        assertEquals(2, snapshot.getCount());
+        assertEquals(TimeUnit.HOURS.toMillis(1), snapshot.getMax(), 0);
+        assertEquals(TimeUnit.HOURS.toMillis(1), snapshot.getPercentile(100), 0);
+    }
+}
@@ -0,0 +1,74 @@
+package cy.agorise.graphenej.stats;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import cy.agorise.graphenej.network.FullNode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencySketchTest {
+
+    @Test
+    public void testQuantiles(){
+        LatencySketch sketch = new LatencySketch(100000);
+        assertEquals(0, sketch.getMedian(), 0);
+        for(int i = 1; i <= 1000; i++){
+            sketch.record(i);
+        }
+        assertEquals(1000, sketch.getCount());
+        // Quantiles are off by less than 10%
+        assertEquals(500, sketch.getMedian(), 50);
+        assertEquals(950, sketch.getQuantile(0.95), 95);
+        assertEquals(990, sketch.getQuantile(0.99), 99);
+        assertTrue(sketch.getQuantile(0) <= sketch.getQuantile(0.5));
+    }
+
+    @Test
+    public void testSteadyAndErraticNodes(){
+        // Two nodes with about the same average latency
+        Random random = new Random(7);
+        LatencySketch steady = new LatencySketch();
+        LatencySketch erratic = new LatencySketch();
+        for(int i = 0; i < 1000; i++){
+            steady.record(150 + random.nextInt(20));
+            erratic.record(random.nextInt(10) == 0 ? 1000 + random.nextInt(1000) : 50);
+        }
+        assertTrue(steady.getQuantile(0.99) < 200);
+        assertTrue(erratic.getMedian() < 60);
+        assertTrue(erratic.getQuantile(0.99) > 1000);
+    }
+
+    @Test
+    public void testDecay(){
+        LatencySketch sketch = new LatencySketch(64);
+        for(int i = 0; i < 1000; i++){
+            sketch.record(1000);
+        }
+        // After a few hundred faster measurements, the old ones barely count
+        for(int i = 0; i < 300; i++){
+            sketch.record(100);
+        }
+        assertEquals(100, sketch.getQuantile(0.99), 10);
+    }
+
+    @Test
+    public void testTailLatency(){
+        FullNode fullNode = new FullNode("wss://node");
+        fullNode.addRoundTripTime(100);
+        // Not enough measurements yet, the latency is still unknown
+        assertEquals(Long.MAX_VALUE, fullNode.getTailLatencyValue(), 0);
+        for(int i = 0; i < 19; i++){
+            fullNode.addRoundTripTime(100);
+        }
+        fullNode.addRoundTripTime(2000);
+        fullNode.addRoundTripTime(2000);
+        assertTrue(fullNode.getTailLatencyValue() > 1000);
+
+        // Penalties still push the node to the bottom of the ranking
+        fullNode.addLatencyValue(Long.MAX_VALUE);
+        assertTrue(fullNode.getTailLatencyValue() > 1e18);
+    }
+}
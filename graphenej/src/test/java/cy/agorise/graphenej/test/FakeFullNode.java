@@ -0,0 +1,416 @@
+package cy.agorise.graphenej.test;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import cy.agorise.graphenej.RPC;
+import cy.agorise.graphenej.api.ApiAccess;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+/**
+ * In-process stand-in for a Graphene full node, used to test and benchmark the networking
+ * classes without depending on public nodes.
+ * <p>
+ * The node accepts websocket connections on a local port, answers the login and API access
+ * handshake and replays recorded results for every other API method. Network conditions can be
+ * simulated by adding latency, jitter, dropped responses and a limit on the number of messages
+ * sent per second.
+ * <p>
+ * Since it is reached through a regular 'ws://' URL, {@link #getUrl()} can be handed to the
+ * NetworkService, NetworkClient, NodeConnection or NodeLatencyVerifier classes just like the
+ * URL of a real node.
+ */
+public class FakeFullNode {
+    private final Logger logger = Logger.getLogger(this.getClass().getName());
+
+    /**
+     * Ids assigned by this node to each one of the APIs
+     */
+    public static final int LOGIN_API_ID = 1;
+    public static final int DATABASE_API_ID = 2;
+    public static final int HISTORY_API_ID = 3;
+    public static final int NETWORK_BROADCAST_API_ID = 4;
+
+    /**
+     * Error code sent back for methods with no recorded result
+     */
+    public static final int ERROR_UNKNOWN_METHOD = 1;
+
+    private final MockWebServer mServer = new MockWebServer();
+
+    // Recorded results, by method name
+    private final Map<String, JsonElement> mRecordedResults = new ConcurrentHashMap<>();
+
+    // APIs whose access is denied during the handshake, as ApiAccess constants
+    private final Set<Integer> mDeniedApis = Collections.newSetFromMap(new ConcurrentHashMap<Integer, Boolean>());
+
+    // Currently open client connections
+    private final List<WebSocket> mSockets = new CopyOnWriteArrayList<>();
+
+    private final ScheduledExecutorService mExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "graphenej-fake-node");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private final Random mRandom = new Random();
+
+    private final AtomicInteger mConnectionAttemptCount = new AtomicInteger();
+    private final AtomicInteger mConnectionCount = new AtomicInteger();
+    private final AtomicInteger mRequestCount = new AtomicInteger();
+    private final AtomicInteger mDroppedCount = new AtomicInteger();
+
+    private volatile long mLatency;
+    private volatile long mJitter;
+    private volatile double mDropRate;
+    private volatile int mMaxMessagesPerSecond;
+
+    // Earliest time in nanoseconds at which the next message can be sent, when throttling
+    private long mNextSendTime;
+
+    /**
+     * Starts listening on a free local port.
+     *
+     * @return  This instance, to allow chaining
+     * @throws IOException  If the server could not be started
+     */
+    public FakeFullNode start() throws IOException {
+        mServer.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                mConnectionAttemptCount.incrementAndGet();
+                // The connection latency is the time it takes the node to answer the upgrade
+                Thread.sleep(nextDelay());
+                return new MockResponse().withWebSocketUpgrade(new NodeListener());
+            }
+        });
+        mServer.start();
+        return this;
+    }
+
+    /**
+     * Closes all connections and stops listening.
+     */
+    public void shutdown(){
+        mExecutor.shutdownNow();
+        try {
+            mServer.shutdown();
+        } catch (IOException e) {
+            logger.warning("Could not shut down the server. Msg: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return  The websocket URL of this node.
+     */
+    public String getUrl(){
+        return "ws://" + mServer.getHostName() + ":" + mServer.getPort() + "/ws";
+    }
+
+    /**
+     * Records the result to be sent back for all calls to a given method.
+     *
+     * @param method    Name of the API method, like 'get_dynamic_global_properties'
+     * @param result    The JSON-formatted result
+     * @return          This instance, to allow chaining
+     */
+    public FakeFullNode record(String method, String result){
+        mRecordedResults.put(method, new JsonParser().parse(result));
+        return this;
+    }
+
+    /**
+     * Loads a recording, a JSON object whose keys are method names and whose values are the
+     * results to be sent back for them.
+     *
+     * @param reader    Reader of the recording
+     * @return          This instance, to allow chaining
+     */
+    public FakeFullNode loadRecording(Reader reader){
+        JsonObject recording = new JsonParser().parse(reader).getAsJsonObject();
+        for(Map.Entry<String, JsonElement> entry : recording.entrySet()){
+            mRecordedResults.put(entry.getKey(), entry.getValue());
+        }
+        return this;
+    }
+
+    /**
+     * Loads a recording from the test resources.
+     *
+     * @param resource  Path of the resource, like '/recordings/bitshares.json'
+     * @return          This instance, to allow chaining
+     * @throws IOException  If the resource could not be read
+     */
+    public FakeFullNode loadRecording(String resource) throws IOException {
+        InputStream stream = FakeFullNode.class.getResourceAsStream(resource);
+        if(stream == null) throw new IOException("Missing recording: " + resource);
+        try (Reader reader = new InputStreamReader(stream, "UTF-8")) {
+            return loadRecording(reader);
+        }
+    }
+
+    /**
+     * Sets the time the node takes to answer a connection or a request.
+     *
+     * @param latency   Latency in milliseconds
+     * @param jitter    Maximum random time in milliseconds added to the latency
+     * @return          This instance, to allow chaining
+     */
+    public FakeFullNode setLatency(long latency, long jitter){
+        mLatency = latency;
+        mJitter = jitter;
+        return this;
+    }
+
+    /**
+     * Sets the probability of a request being silently ignored.
+     *
+     * @param dropRate  Value from 0 (no request is dropped) to 1 (every request is dropped)
+     * @return          This instance, to allow chaining
+     */
+    public FakeFullNode setDropRate(double dropRate){
+        mDropRate = dropRate;
+        return this;
+    }
+
+    /**
+     * Limits the number of messages the node sends per second, among all of its connections.
+     * Messages over the limit are delayed, not dropped.
+     *
+     * @param maxMessagesPerSecond  The limit, or 0 for no limit
+     * @return                      This instance, to allow chaining
+     */
+    public FakeFullNode setThrottle(int maxMessagesPerSecond){
+        mMaxMessagesPerSecond = maxMessagesPerSecond;
+        return this;
+    }
+
+    /**
+     * Makes the node deny the access to one of its APIs during the handshake.
+     *
+     * @param whichApi  One of the constants specified in the ApiAccess class.
+     * @return          This instance, to allow chaining
+     */
+    public FakeFullNode denyApi(int whichApi){
+        mDeniedApis.add(whichApi);
+        return this;
+    }
+
+    /**
+     * @param whichApi  One of the constants specified in the ApiAccess class.
+     * @return          True if the access to that API is denied during the handshake.
+     */
+    public boolean isApiDenied(int whichApi){
+        return mDeniedApis.contains(whichApi);
+    }
+
+    /**
+     * Sends a message, like a subscription notification, to all connected clients.
+     *
+     * @param message   The raw message
+     */
+    public void broadcast(String message){
+        for(WebSocket socket : mSockets){
+            sendLater(socket, message, 0);
+        }
+    }
+
+    /**
+     * Closes all open connections, as a node going down would.
+     *
+     * @param code  Status code as defined by RFC 6455 section 7.4.
+     */
+    public void dropConnections(int code){
+        for(WebSocket socket : mSockets){
+            socket.close(code, null);
+        }
+        mSockets.clear();
+    }
+
+    /**
+     * @return  The number of connection attempts received so far, including those whose
+     * upgrade is still being delayed by the latency.
+     */
+    public int getConnectionAttemptCount(){
+        return mConnectionAttemptCount.get();
+    }
+
+    /**
+     * @return  The number of connections accepted so far.
+     */
+    public int getConnectionCount(){
+        return mConnectionCount.get();
+    }
+
+    /**
+     * @return  The number of requests received so far, handshake included.
+     */
+    public int getRequestCount(){
+        return mRequestCount.get();
+    }
+
+    /**
+     * @return  The number of requests that were not answered.
+     */
+    public int getDroppedCount(){
+        return mDroppedCount.get();
+    }
+
+    /**
+     * @return  The latency plus a random jitter, in milliseconds.
+     */
+    private long nextDelay(){
+        long jitter = mJitter;
+        synchronized (mRandom){
+            return mLatency + (jitter > 0 ? (long) (mRandom.nextDouble() * jitter) : 0);
+        }
+    }
+
+    /**
+     * Schedules a message to be sent after the given delay, or later if the throttling limit
+     * would be exceeded otherwise.
+     *
+     * @param socket    The connection to send the message through
+     * @param message   The raw message
+     * @param delay     Delay in milliseconds
+     */
+    private void sendLater(final WebSocket socket, final String message, long delay){
+        long delayNanos = TimeUnit.MILLISECONDS.toNanos(delay);
+        int maxMessagesPerSecond = mMaxMessagesPerSecond;
+        if(maxMessagesPerSecond > 0){
+            synchronized (this){
+                long now = System.nanoTime();
+                long sendTime = Math.max(now + delayNanos, mNextSendTime);
+                mNextSendTime = sendTime + TimeUnit.SECONDS.toNanos(1) / maxMessagesPerSecond;
+                delayNanos = sendTime - now;
+            }
+        }
+        try{
+            mExecutor.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    socket.send(message);
+                }
+            }, delayNanos, TimeUnit.NANOSECONDS);
+        }catch(RejectedExecutionException e){
+            // The node was shut down
+        }
+    }
+
+    /**
+     * Builds the response to a single request.
+     *
+     * @param text  The raw request
+     * @return      The raw response
+     */
+    private String respond(String text){
+        JsonObject request = new JsonParser().parse(text).getAsJsonObject();
+        JsonArray params = request.getAsJsonArray("params");
+        int apiId = params.get(0).getAsInt();
+        String method = params.get(1).getAsString();
+
+        JsonObject response = new JsonObject();
+        response.add("id", request.get("id"));
+        response.addProperty("jsonrpc", RPC.VERSION);
+        if(apiId == LOGIN_API_ID && method.equals(RPC.CALL_LOGIN)){
+            response.addProperty("result", true);
+        }else if(apiId == LOGIN_API_ID && method.equals(RPC.CALL_DATABASE)){
+            addApiId(response, ApiAccess.API_DATABASE, DATABASE_API_ID);
+        }else if(apiId == LOGIN_API_ID && method.equals(RPC.CALL_HISTORY)){
+            addApiId(response, ApiAccess.API_HISTORY, HISTORY_API_ID);
+        }else if(apiId == LOGIN_API_ID && method.equals(RPC.CALL_NETWORK_BROADCAST)){
+            addApiId(response, ApiAccess.API_NETWORK_BROADCAST, NETWORK_BROADCAST_API_ID);
+        }else if(mRecordedResults.containsKey(method)){
+            response.add("result", mRecordedResults.get(method));
+        }else{
+            JsonObject error = new JsonObject();
+            error.addProperty("code", ERROR_UNKNOWN_METHOD);
+            error.addProperty("message", "No recorded result for method: " + method);
+            response.add("error", error);
+        }
+        return response.toString();
+    }
+
+    private void addApiId(JsonObject response, int whichApi, int apiId){
+        if(mDeniedApis.contains(whichApi)){
+            response.add("result", null);
+        }else{
+            response.addProperty("result", apiId);
+        }
+    }
+
+    /**
+     * Listener of the server side of every client connection.
+     */
+    private class NodeListener extends WebSocketListener {
+
+        @Override
+        public void onOpen(WebSocket webSocket, Response response) {
+            mConnectionCount.incrementAndGet();
+            mSockets.add(webSocket);
+        }
+
+        @Override
+        public void onMessage(WebSocket webSocket, String text) {
+            mRequestCount.incrementAndGet();
+            double dropRate = mDropRate;
+            if(dropRate > 0){
+                synchronized (mRandom){
+                    if(mRandom.nextDouble() < dropRate){
+                        mDroppedCount.incrementAndGet();
+                        return;
+                    }
+                }
+            }
+            String response;
+            try{
+                response = respond(text);
+            }catch(RuntimeException e){
+                logger.warning("Malformed request: " + text);
+                return;
+            }
+            sendLater(webSocket, response, nextDelay());
+        }
+
+        @Override
+        public void onClosing(WebSocket webSocket, int code, String reason) {
+            mSockets.remove(webSocket);
+            webSocket.close(code, null);
+        }
+
+        @Override
+        public void onFailure(WebSocket webSocket, Throwable t, Response response) {
+            mSockets.remove(webSocket);
+        }
+    }
+}